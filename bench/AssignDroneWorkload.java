@@ -0,0 +1,64 @@
+import benchmarks.Workloads;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+/**
+ * Workload of benchmarks.AssignDroneBenchmark. Every call reports an incident on top of one drone, so that
+ * drone is the nearest idle one, and then puts the drone back to IDLE the way its next status update would.
+ * The scheduler's console output is discarded so the numbers show the dispatch work rather than printing.
+ */
+public class AssignDroneWorkload implements Workloads.AssignDrone {
+    private static final int AREA = 20000;
+
+    private Scheduler scheduler;
+    private PrintStream console;
+    private InetSocketAddress source;
+    private int fleetSize;
+    private int[] droneX;
+    private int[] droneY;
+    private int next;
+
+    @Override
+    public void setUp(int fleetSize, int zoneCount) throws Exception {
+        this.fleetSize = fleetSize;
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        scheduler = new Scheduler();
+        scheduler.loadZones(BenchmarkZones.writeGrid(zoneCount, AREA).toString());
+        scheduler.start();
+
+        source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 9);
+        Random random = new Random(42);
+        droneX = new int[fleetSize + 1];
+        droneY = new int[fleetSize + 1];
+        for (int drone = 1; drone <= fleetSize; drone++) {
+            droneX[drone] = random.nextInt(AREA);
+            droneY[drone] = random.nextInt(AREA);
+            scheduler.updateDroneStatus(drone, droneX[drone], droneY[drone], source, "IDLE", true);
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        scheduler.stop();
+        System.setOut(console);
+    }
+
+    @Override
+    public boolean assignNearestIdle() {
+        int drone = next = next % fleetSize + 1;
+        int x = droneX[drone], y = droneY[drone];
+        Incident incident = new Incident("12:00:00", scheduler.getZoneAt(x, y).getId(), "FIRE_DETECTED", "High");
+        incident.setLocation(x, y);
+        boolean assigned = scheduler.assignDrone(incident);
+        // The drone at the incident takes it, finish it so its IDLE frees the drone again
+        scheduler.getAllDrones().get(drone).currentIncident = null;
+        scheduler.updateDroneStatus(drone, x, y, source, "IDLE", true);
+        return assigned;
+    }
+}
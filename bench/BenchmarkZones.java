@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Helper that writes zone files for the benchmarks in the same format as the files in src/resources
+ */
+final class BenchmarkZones {
+    private BenchmarkZones() {
+    }
+
+    /**
+     * Writes a square grid of zones covering an area
+     * @param zoneCount number of zones, rounded up to the next perfect square
+     * @param area width and height of the covered area
+     * @return path of the temporary zone file
+     */
+    static Path writeGrid(int zoneCount, int area) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(zoneCount));
+        int zoneSize = (area + side - 1) / side;
+        Path file = Files.createTempFile("zones", ".csv");
+        file.toFile().deleteOnExit();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("Zone ID,Zone Start,Zone End");
+            int id = 1;
+            for (int row = 0; row < side; row++) {
+                for (int col = 0; col < side; col++) {
+                    out.printf("%d,(%d;%d),(%d;%d)%n", id++, col * zoneSize, row * zoneSize,
+                            (col + 1) * zoneSize, (row + 1) * zoneSize);
+                }
+            }
+        }
+        return file;
+    }
+}
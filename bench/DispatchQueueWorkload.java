@@ -0,0 +1,44 @@
+import benchmarks.Workloads;
+
+/**
+ * Workload of benchmarks.DispatchQueueBenchmark, a pending queue kept at a fixed depth so every operation
+ * pays the heap cost of a realistic backlog
+ */
+public class DispatchQueueWorkload implements Workloads.DispatchQueue {
+    private static final String[] SEVERITIES = {"Low", "Moderate", "High"};
+    private static final String[] EVENT_TYPES = {"FIRE_DETECTED", "DRONE_REQUEST"};
+
+    private DispatchQueue queue;
+    private Incident[] incidents;
+    private int depth;
+
+    @Override
+    public void setUp(int depth) {
+        this.depth = depth;
+        queue = new DispatchQueue();
+        incidents = new Incident[4096];
+        for (int i = 0; i < incidents.length; i++) {
+            incidents[i] = new Incident("12:00:00", i % 5 + 1, EVENT_TYPES[i % 2], SEVERITIES[i % 3]);
+        }
+        for (int i = 0; i < depth; i++) {
+            queue.offer(new Incident("12:00:00", 1, EVENT_TYPES[i % 2], SEVERITIES[i % 3]));
+        }
+    }
+
+    @Override
+    public Object offerThenPoll(int cursor) {
+        queue.offer(incidents[cursor & (incidents.length - 1)]);
+        return queue.poll();
+    }
+
+    @Override
+    public boolean offer(int cursor) {
+        if (queue.size() > depth * 2) return false;
+        return queue.offer(incidents[cursor & (incidents.length - 1)]);
+    }
+
+    @Override
+    public Object poll() {
+        return queue.poll();
+    }
+}
@@ -0,0 +1,35 @@
+import benchmarks.Workloads;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Workload of benchmarks.DroneStatusUpdateBenchmark. Each update moves a random drone to a random position
+ * and flips it between IDLE and EN_ROUTE, so the drone index moves it between cells and categories.
+ */
+public class DroneStatusUpdateWorkload implements Workloads.DroneStatusUpdate {
+    private static final int AREA = 20000;
+
+    private Scheduler scheduler;
+    private InetSocketAddress source;
+    private int fleetSize;
+
+    @Override
+    public void setUp(int fleetSize) {
+        this.fleetSize = fleetSize;
+        scheduler = new Scheduler();
+        source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 9);
+        for (int drone = 1; drone <= fleetSize; drone++) {
+            scheduler.updateDroneStatus(drone, 0, 0, source, "IDLE", true);
+        }
+    }
+
+    @Override
+    public void updateStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean idle = random.nextBoolean();
+        scheduler.updateDroneStatus(random.nextInt(fleetSize) + 1, random.nextInt(AREA), random.nextInt(AREA),
+                source, idle ? "IDLE" : "EN_ROUTE", idle);
+    }
+}
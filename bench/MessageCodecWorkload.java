@@ -0,0 +1,60 @@
+import benchmarks.Workloads;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Workload of benchmarks.MessageCodecBenchmark, encodes and decodes one message type using the reused
+ * buffers and message holder the receive loops use
+ */
+public class MessageCodecWorkload implements Workloads.MessageCodec {
+    private final ByteBuffer encodeBuffer = ByteBuffer.allocateDirect(MessageCodec.MAX_MESSAGE_SIZE);
+    private final ByteBuffer decodeBuffer = ByteBuffer.allocateDirect(MessageCodec.MAX_MESSAGE_SIZE);
+    private final MessageCodec.Message message = new MessageCodec.Message();
+    private Incident incident;
+    private byte code;
+
+    @Override
+    public void setUp(String type) {
+        incident = new Incident("14:03:15", 3, "FIRE_DETECTED", "High");
+        incident.setLocation(120, 450);
+        code = switch (type) {
+            case "INCIDENT" -> MessageCodec.INCIDENT;
+            case "ASSIGN" -> MessageCodec.ASSIGN;
+            case "STATUS" -> MessageCodec.STATUS;
+            case "COMPLETE" -> MessageCodec.COMPLETE;
+            case "REASSIGN" -> MessageCodec.REASSIGN;
+            case "FAULT" -> MessageCodec.FAULT;
+            case "RESET_COUNTDOWN" -> MessageCodec.RESET_COUNTDOWN;
+            case "ACK" -> MessageCodec.ACK;
+            default -> throw new IllegalArgumentException(type);
+        };
+        encode(decodeBuffer);
+        decodeBuffer.flip();
+    }
+
+    @Override
+    public Object encode() {
+        encodeBuffer.clear();
+        encode(encodeBuffer);
+        return encodeBuffer;
+    }
+
+    @Override
+    public boolean decode() {
+        decodeBuffer.rewind();
+        return MessageCodec.decode(decodeBuffer, message);
+    }
+
+    private void encode(ByteBuffer buf) {
+        switch (code) {
+            case MessageCodec.INCIDENT -> MessageCodec.encodeIncident(buf, incident);
+            case MessageCodec.ASSIGN -> MessageCodec.encodeAssign(buf, 7, 1, incident, 120, 450);
+            case MessageCodec.STATUS -> MessageCodec.encodeStatus(buf, 7, 120, 450, DroneSubsystem.DroneState.EN_ROUTE);
+            case MessageCodec.COMPLETE -> MessageCodec.encodeComplete(buf, 7, 1, incident);
+            case MessageCodec.REASSIGN -> MessageCodec.encodeReassign(buf, 7, 1, incident);
+            case MessageCodec.FAULT -> MessageCodec.encodeFault(buf, 7, FaultType.STUCK);
+            case MessageCodec.ACK -> MessageCodec.encodeAck(buf, 7, 1, MessageCodec.ACK_OK);
+            default -> MessageCodec.encodeResetCountdown(buf, 7);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import benchmarks.Workloads;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Workload of benchmarks.ZoneLookupBenchmark, looks zones up by id and by coordinate in a square grid of
+ * zones
+ */
+public class ZoneLookupWorkload implements Workloads.ZoneLookup {
+    private static final int AREA = 20000;
+
+    private final ZoneTable zones = new ZoneTable();
+    private int zoneCount;
+    private int extent;
+
+    @Override
+    public void setUp(int zoneCount) {
+        this.zoneCount = zoneCount;
+        int side = (int) Math.sqrt(zoneCount);
+        int zoneSize = AREA / side;
+        int id = 1;
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                zones.add(new Zone(id++, col * zoneSize, row * zoneSize, (col + 1) * zoneSize, (row + 1) * zoneSize));
+            }
+        }
+        extent = side * zoneSize;
+        zones.zoneAt(0, 0);
+    }
+
+    @Override
+    public Object zoneById() {
+        return zones.get(ThreadLocalRandom.current().nextInt(zoneCount) + 1);
+    }
+
+    @Override
+    public Object zoneAt() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return zones.zoneAt(random.nextInt(extent), random.nextInt(extent));
+    }
+}
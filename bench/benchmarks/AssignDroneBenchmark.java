@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Scheduler.assignDrone for different fleet sizes and zone counts, see AssignDroneWorkload
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignDroneBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int fleetSize;
+
+    /** Zones are laid out as a square grid, so counts should be perfect squares. */
+    @Param({"4", "64", "1024"})
+    int zoneCount;
+
+    private Workloads.AssignDrone workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = Workloads.load(Workloads.AssignDrone.class, "AssignDroneWorkload");
+        workload.setUp(fleetSize, zoneCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public boolean assignNearestIdle() {
+        return workload.assignNearestIdle();
+    }
+}
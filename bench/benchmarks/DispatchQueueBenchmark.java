@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offer and poll throughput of the scheduler's pending queue, see DispatchQueueWorkload. The grouped
+ * benchmark has the network thread offering while the dispatcher polls, as in the scheduler.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchQueueBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int depth;
+
+    private Workloads.DispatchQueue workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workloads.load(Workloads.DispatchQueue.class, "DispatchQueueWorkload");
+        workload.setUp(depth);
+    }
+
+    /**
+     * Per thread cursor over the prepared incidents
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Group("single")
+    public Object offerThenPoll(Cursor cursor) {
+        return workload.offerThenPoll(cursor.next++);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public boolean offer(Cursor cursor) {
+        return workload.offer(cursor.next++);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(1)
+    public Object poll() {
+        return workload.poll();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of Scheduler.updateDroneStatus with several network threads writing at once, see
+ * DroneStatusUpdateWorkload. Run with -t to change the number of writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class DroneStatusUpdateBenchmark {
+
+    @Param({"100", "10000"})
+    int fleetSize;
+
+    private Workloads.DroneStatusUpdate workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workloads.load(Workloads.DroneStatusUpdate.class, "DroneStatusUpdateWorkload");
+        workload.setUp(fleetSize);
+    }
+
+    @Benchmark
+    public void updateStatus() {
+        workload.updateStatus();
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of every MessageCodec message type, see MessageCodecWorkload
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    @Param({"INCIDENT", "ASSIGN", "STATUS", "COMPLETE", "REASSIGN", "FAULT", "RESET_COUNTDOWN", "ACK"})
+    String type;
+
+    private Workloads.MessageCodec workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workloads.load(Workloads.MessageCodec.class, "MessageCodecWorkload");
+        workload.setUp(type);
+    }
+
+    @Benchmark
+    public Object encode() {
+        return workload.encode();
+    }
+
+    @Benchmark
+    public boolean decode() {
+        return workload.decode();
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+/**
+ * JMH only runs benchmarks that are in a package, and code in a package cannot name the scheduler's
+ * classes since they are in the unnamed package. So each suite drives the scheduler through one of these
+ * interfaces, implemented by a workload class in bench/ that sits next to the scheduler sources and can
+ * reach their package-private members. The workload is loaded by name once per trial, so a measured call
+ * only pays for one interface call.
+ */
+public final class Workloads {
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload from the unnamed package
+     * @param type interface the workload implements
+     * @param className name of the workload class
+     * @return new workload
+     */
+    static <T> T load(Class<T> type, String className) {
+        try {
+            return type.cast(Class.forName(className).getConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+
+    public interface AssignDrone {
+        void setUp(int fleetSize, int zoneCount) throws Exception;
+
+        boolean assignNearestIdle();
+
+        void tearDown();
+    }
+
+    public interface DispatchQueue {
+        void setUp(int depth);
+
+        Object offerThenPoll(int cursor);
+
+        boolean offer(int cursor);
+
+        Object poll();
+    }
+
+    public interface DroneStatusUpdate {
+        void setUp(int fleetSize);
+
+        void updateStatus();
+    }
+
+    public interface MessageCodec {
+        void setUp(String type);
+
+        Object encode();
+
+        boolean decode();
+    }
+
+    public interface ZoneLookup {
+        void setUp(int zoneCount);
+
+        Object zoneById();
+
+        Object zoneAt();
+    }
+}
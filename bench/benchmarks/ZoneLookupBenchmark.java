@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of looking zones up by id and by coordinate in ZoneTable, see ZoneLookupWorkload
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZoneLookupBenchmark {
+
+    /** Zones are laid out as a square grid, so counts should be perfect squares. */
+    @Param({"4", "64", "1024", "65536"})
+    int zoneCount;
+
+    private Workloads.ZoneLookup workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workloads.load(Workloads.ZoneLookup.class, "ZoneLookupWorkload");
+        workload.setUp(zoneCount);
+    }
+
+    @Benchmark
+    public Object zoneById() {
+        return workload.zoneById();
+    }
+
+    @Benchmark
+    public Object zoneAt() {
+        return workload.zoneAt();
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Random;
+
+/**
+ * Generates incident arrival times for the load generator. Times are nanoseconds since the start of a
+ * run, and each call returns the arrival after the previous one, so the caller can keep an absolute
+ * schedule. Every model averages the configured rate over a long run.
+ */
+public abstract class ArrivalProcess {
+    /**
+     * Arrival models supported by the load generator
+     */
+    public enum Model { POISSON, BURSTY, DIURNAL }
+
+    protected final Model model;
+    protected final double ratePerSecond;
+
+    protected ArrivalProcess(Model model, double ratePerSecond) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("Rate must be positive");
+        this.model = model;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Returns the next arrival time
+     * @param previous time of the previous arrival, 0 for the first one
+     * @param random source of randomness
+     * @return time of the next arrival, after previous
+     */
+    public abstract long next(long previous, Random random);
+
+    /**
+     * Arrivals with exponential gaps, the usual model for independent sensors
+     */
+    public static ArrivalProcess poisson(double ratePerSecond) {
+        return new ArrivalProcess(Model.POISSON, ratePerSecond) {
+            @Override
+            public long next(long previous, Random random) {
+                return previous + exponentialNanos(this.ratePerSecond, random);
+            }
+        };
+    }
+
+    /**
+     * Arrivals that alternate between bursts at burstFactor times the rate and silent periods, with
+     * exponential lengths chosen so the long run average is still the rate
+     * @param burstFactor how many times the rate arrivals come in during a burst, at least 1
+     * @param meanBurstMillis average length of a burst
+     */
+    public static ArrivalProcess bursty(double ratePerSecond, double burstFactor, long meanBurstMillis) {
+        if (burstFactor < 1) throw new IllegalArgumentException("Burst factor must be at least 1");
+        return new ArrivalProcess(Model.BURSTY, ratePerSecond) {
+            private final double burstRate = ratePerSecond * burstFactor;
+            private final double meanBurstNanos = meanBurstMillis * 1e6;
+            private final double meanQuietNanos = meanBurstNanos * (burstFactor - 1);
+            private long burstEnd = -1;
+
+            @Override
+            public long next(long previous, Random random) {
+                if (burstEnd < 0) burstEnd = previous + (long) (-Math.log(1 - random.nextDouble()) * meanBurstNanos);
+                long t = previous + exponentialNanos(burstRate, random);
+                // An arrival past the end of the burst lands in a later burst, after a quiet period
+                while (t > burstEnd) {
+                    long quiet = (long) (-Math.log(1 - random.nextDouble()) * meanQuietNanos);
+                    long nextBurstStart = burstEnd + quiet;
+                    burstEnd = nextBurstStart + (long) (-Math.log(1 - random.nextDouble()) * meanBurstNanos);
+                    t = nextBurstStart + exponentialNanos(burstRate, random);
+                }
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Poisson arrivals whose rate follows a daily cycle, rate * (1 + amplitude * cos(2 pi (t - peak) / period)).
+     * Arrivals are drawn at the peak rate and thinned.
+     * @param amplitude relative swing of the rate between 0 and 1
+     * @param periodMillis length of a day, shorter than 24 h to compress a day into a shorter run
+     * @param peakMillis time after the start of the run the rate peaks
+     */
+    public static ArrivalProcess diurnal(double ratePerSecond, double amplitude, long periodMillis, long peakMillis) {
+        if (amplitude < 0 || amplitude > 1) throw new IllegalArgumentException("Amplitude must be between 0 and 1");
+        return new ArrivalProcess(Model.DIURNAL, ratePerSecond) {
+            private final double peakRate = ratePerSecond * (1 + amplitude);
+            private final double period = periodMillis * 1e6;
+            private final double peak = peakMillis * 1e6;
+
+            @Override
+            public long next(long previous, Random random) {
+                long t = previous;
+                while (true) {
+                    t += exponentialNanos(peakRate, random);
+                    double rate = 1 + amplitude * Math.cos(2 * Math.PI * (t - peak) / period);
+                    if (random.nextDouble() * (1 + amplitude) < rate) return t;
+                }
+            }
+        };
+    }
+
+    private static long exponentialNanos(double ratePerSecond, Random random) {
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) / ratePerSecond * 1e9));
+    }
+}
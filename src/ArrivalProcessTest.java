@@ -0,0 +1,58 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ArrivalProcessTest {
+    private static final long HOUR = 3_600_000_000_000L;
+
+    private static long countUntil(ArrivalProcess process, long end, Random random) {
+        long count = 0;
+        long t = 0;
+        while ((t = process.next(t, random)) <= end) count++;
+        return count;
+    }
+
+    @Test
+    public void testPoissonAveragesTargetRate() {
+        long count = countUntil(ArrivalProcess.poisson(20), HOUR, new Random(1));
+        assertEquals(72000, count, 72000 * 0.02);
+    }
+
+    @Test
+    public void testBurstyAveragesTargetRate() {
+        // Bursts and quiet periods average 10 s together, so it takes many hours to settle
+        long count = countUntil(ArrivalProcess.bursty(20, 5, 2000), 10 * HOUR, new Random(2));
+        assertEquals(720000, count, 720000 * 0.05);
+    }
+
+    @Test
+    public void testBurstyHasQuietSeconds() {
+        ArrivalProcess process = ArrivalProcess.bursty(20, 5, 2000);
+        Random random = new Random(3);
+        int[] perSecond = new int[600];
+        long t = 0;
+        while ((t = process.next(t, random)) < 600_000_000_000L) perSecond[(int) (t / 1_000_000_000L)]++;
+        int quiet = 0;
+        for (int n : perSecond) if (n == 0) quiet++;
+        // Poisson at 20/s has practically no empty seconds, bursts leave most seconds empty
+        assertTrue("Expected many empty seconds, got " + quiet, quiet > 300);
+    }
+
+    @Test
+    public void testDiurnalPeaksAtPeakTime() {
+        long day = 24 * HOUR;
+        ArrivalProcess process = ArrivalProcess.diurnal(1, 0.8, day / 1_000_000, day / 2_000_000);
+        Random random = new Random(4);
+        long[] perHour = new long[24];
+        long t = 0;
+        long total = 0;
+        while ((t = process.next(t, random)) < day) {
+            perHour[(int) (t / HOUR)]++;
+            total++;
+        }
+        assertEquals(86400, total, 86400 * 0.03);
+        assertTrue(perHour[12] > 3 * perHour[0]);
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+/**
+ * Solves the min-cost assignment of pending incidents (rows) to idle drones (columns) with the Hungarian
+ * method using row potentials. Each row is matched to a distinct column and the total cost is minimal.
+ * The solver needs at least as many columns as rows and runs in O(rows^2 * columns).
+ */
+public class AssignmentSolver {
+
+    /**
+     * Finds the min-cost assignment for a cost matrix
+     * @param cost cost[row][col], every row must have the same length, which is at least the number of rows
+     * @param deadlineNanos System.nanoTime() value after which the solver gives up
+     * @return column chosen for each row, or null if the deadline passed first
+     */
+    public static int[] solve(double[][] cost, long deadlineNanos) {
+        int n = cost.length;
+        if (n == 0) return new int[0];
+        int m = cost[0].length;
+        if (m < n) throw new IllegalArgumentException("Need at least as many columns as rows");
+
+        // 1-based arrays, column 0 is a virtual column used while growing the matching
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] rowOfCol = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            if (System.nanoTime() > deadlineNanos) return null;
+            rowOfCol[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = rowOfCol[j0];
+                double delta = Double.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    double reduced = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (reduced < minv[j]) {
+                        minv[j] = reduced;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[rowOfCol[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOfCol[j0] != 0);
+            do {
+                int j1 = way[j0];
+                rowOfCol[j0] = rowOfCol[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] colOfRow = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (rowOfCol[j] != 0) colOfRow[rowOfCol[j] - 1] = j - 1;
+        }
+        return colOfRow;
+    }
+}
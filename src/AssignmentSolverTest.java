@@ -0,0 +1,33 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AssignmentSolverTest {
+
+    @Test
+    public void testSolverAvoidsGreedyTrap() {
+        // greedy gives row 0 column 0 and leaves row 1 the far column, total 1 + 100
+        double[][] cost = {
+                {1, 2},
+                {2, 100}
+        };
+        int[] match = AssignmentSolver.solve(cost, System.nanoTime() + 1_000_000_000L);
+        assertArrayEquals(new int[]{1, 0}, match);
+    }
+
+    @Test
+    public void testMoreColumnsThanRows() {
+        double[][] cost = {
+                {9, 4, 7, 1},
+                {3, 8, 2, 6}
+        };
+        int[] match = AssignmentSolver.solve(cost, System.nanoTime() + 1_000_000_000L);
+        assertArrayEquals(new int[]{3, 2}, match);
+    }
+
+    @Test
+    public void testExpiredDeadlineReturnsNull() {
+        double[][] cost = {{1}};
+        assertNull(AssignmentSolver.solve(cost, System.nanoTime() - 1));
+    }
+}
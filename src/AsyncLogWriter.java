@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log file appender that never does disk I/O on the caller's thread. Lines go into a bounded ring buffer
+ * and a writer thread writes whatever has queued up in one write to a channel that stays open. Lines are
+ * written in the order they were appended. When the file gets too big or too old it is renamed to
+ * file.1 (older ones shift to file.2 and so on) and a new one is started.
+ */
+public class AsyncLogWriter implements AutoCloseable {
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final String CLOSE = new String("close");
+
+    /**
+     * What append does when the buffer is full
+     */
+    public enum OverflowPolicy {
+        /** Wait for room, nothing is lost but the caller can stall */
+        BLOCK,
+        /** Drop the line being appended */
+        DROP_NEWEST,
+        /** Drop the oldest queued line to make room */
+        DROP_OLDEST
+    }
+
+    private final Path path;
+    private final BlockingQueue<String> queue;
+    private final Thread writer;
+    private FileChannel channel;
+    private long fileSize;
+    private long openedAt;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private volatile long maxBytes = 10L * 1024 * 1024;
+    private volatile long rotateIntervalMillis = 0;
+    private volatile int maxFiles = 5;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long written = 0;
+    private volatile long batches = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens a log file, replacing what was in it
+     * @param file log file
+     * @param capacity how many lines can wait to be written
+     */
+    public AsyncLogWriter(String file, int capacity) throws IOException {
+        path = Path.of(file);
+        queue = new ArrayBlockingQueue<>(capacity);
+        open();
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Sets the size a file can grow to before it is rotated, 0 for no limit
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sets how long a file is written to before it is rotated, 0 for no limit
+     */
+    public void setRotateIntervalMillis(long rotateIntervalMillis) {
+        this.rotateIntervalMillis = rotateIntervalMillis;
+    }
+
+    /**
+     * Sets how many rotated files are kept
+     */
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Queues a line for the log file
+     * @return false if the line was dropped
+     */
+    public boolean append(String line) {
+        if (closed) return false;
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(line);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            case DROP_NEWEST:
+                if (queue.offer(line)) return true;
+                dropped.incrementAndGet();
+                return false;
+            default:
+                while (!queue.offer(line)) {
+                    if (queue.poll() != null) dropped.incrementAndGet();
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Returns how many lines were dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Returns how many writes were done, each covers a batch of lines
+     */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * Writes out the lines queued so far and closes the file
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(CLOSE);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        StringBuilder text = new StringBuilder();
+        long reportedDrops = 0;
+        boolean closing = false;
+        while (!closing) {
+            try {
+                String first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            text.setLength(0);
+            long drops = dropped.get();
+            if (drops > reportedDrops) {
+                text.append("[log] ").append(drops - reportedDrops).append(" lines dropped, buffer full")
+                        .append(System.lineSeparator());
+                reportedDrops = drops;
+            }
+            int lines = 0;
+            for (String line : batch) {
+                if (line == CLOSE) {
+                    closing = true;
+                    continue;
+                }
+                text.append(line).append(System.lineSeparator());
+                lines++;
+            }
+            batch.clear();
+            if (text.length() > 0) write(text, lines);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing log file: " + e.getMessage());
+        }
+    }
+
+    private void write(CharSequence text, int lines) {
+        try {
+            if (shouldRotate()) rotate();
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(text.toString());
+            fileSize += bytes.remaining();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            written += lines;
+            batches++;
+        } catch (IOException e) {
+            System.err.println("Error writing to log file: " + e.getMessage());
+        }
+    }
+
+    private boolean shouldRotate() {
+        long size = maxBytes;
+        long interval = rotateIntervalMillis;
+        return (size > 0 && fileSize >= size)
+                || (interval > 0 && System.currentTimeMillis() - openedAt >= interval);
+    }
+
+    /**
+     * Renames file to file.1, file.1 to file.2 and so on, dropping the oldest, and starts a new file
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        Files.deleteIfExists(rotated(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path rotated(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        fileSize = channel.size();
+        openedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,63 @@
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AsyncLogWriterTest {
+
+    @Test
+    public void testLinesWrittenInOrderInBatches() throws Exception {
+        Path file = Files.createTempDirectory("log").resolve("log.txt");
+        AsyncLogWriter writer = new AsyncLogWriter(file.toString(), 100_000);
+        writer.setOverflowPolicy(AsyncLogWriter.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 20_000; i++) assertTrue(writer.append("line " + i));
+        writer.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(20_000, lines.size());
+        for (int i = 0; i < lines.size(); i++) assertEquals("line " + i, lines.get(i));
+        assertEquals(20_000, writer.getWrittenCount());
+        assertTrue(writer.getBatchCount() < 20_000);
+        assertFalse(writer.append("after close"));
+    }
+
+    @Test
+    public void testSizeRotation() throws Exception {
+        Path dir = Files.createTempDirectory("log");
+        Path file = dir.resolve("log.txt");
+        AsyncLogWriter writer = new AsyncLogWriter(file.toString(), 16);
+        writer.setOverflowPolicy(AsyncLogWriter.OverflowPolicy.BLOCK);
+        writer.setMaxBytes(100);
+        writer.setMaxFiles(2);
+        for (int i = 0; i < 200; i++) writer.append(String.format("%03d 0123456789", i));
+        writer.close();
+
+        assertTrue(Files.size(dir.resolve("log.txt.1")) >= 100);
+        assertTrue(Files.exists(dir.resolve("log.txt.2")));
+        assertFalse(Files.exists(dir.resolve("log.txt.3")));
+        // The newest lines are in the current file, in order
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("199 0123456789", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void testDroppedLinesAreCountedAndOrderKept() throws Exception {
+        Path file = Files.createTempDirectory("log").resolve("log.txt");
+        AsyncLogWriter writer = new AsyncLogWriter(file.toString(), 4);
+        writer.setOverflowPolicy(AsyncLogWriter.OverflowPolicy.DROP_NEWEST);
+        writer.setMaxBytes(0);
+        for (int i = 0; i < 50_000; i++) writer.append(Integer.toString(i));
+        writer.close();
+
+        List<Integer> numbers = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (!line.startsWith("[log]")) numbers.add(Integer.parseInt(line));
+        }
+        assertEquals(50_000, numbers.size() + writer.getDroppedCount());
+        for (int i = 1; i < numbers.size(); i++) assertTrue(numbers.get(i) > numbers.get(i - 1));
+    }
+}
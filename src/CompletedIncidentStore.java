@@ -0,0 +1,304 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Completed incidents, with only a window of the most recent ones kept in memory. Older incidents are
+ * written to gzip compressed segment files in an archive directory, a segment at a time on a background
+ * thread, or dropped if there is no archive directory. Counts and response times per zone and severity are
+ * kept as running totals, so summaries never need the incidents themselves.
+ *
+ * <pre>
+ * segment   completed-NNNNNN.csv.gz, one line per incident:
+ *           number,time,zone,eventType,severity,x,y,responseMillis
+ * </pre>
+ */
+public class CompletedIncidentStore implements AutoCloseable {
+    private static final Segment STOP = new Segment(null, null);
+
+    private final int capacity;
+    private final int segmentSize;
+    private final Map<String, Incident> recent = new LinkedHashMap<>();
+    private final List<Incident> evicted = new ArrayList<>();
+    private final Map<Key, Aggregate> aggregates = new HashMap<>();
+    private final Aggregate total = new Aggregate();
+    private final BlockingQueue<Segment> segments = new LinkedBlockingQueue<>();
+    private Path archiveDirectory;
+    private Thread archiver;
+    private int nextSegment = 0;
+    private long version = 0;
+
+    /**
+     * Response time totals for one zone and severity
+     */
+    public record Key(int zone, String severity) {
+    }
+
+    private record Segment(Path file, List<Incident> incidents) {
+    }
+
+    /**
+     * Running count and response times of completed incidents
+     */
+    public static final class Aggregate {
+        private long count;
+        private long totalMillis;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis = Long.MIN_VALUE;
+
+        Aggregate() {
+        }
+
+        Aggregate(long count, long totalMillis, long minMillis, long maxMillis) {
+            this.count = count;
+            this.totalMillis = totalMillis;
+            this.minMillis = minMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        void record(long millis) {
+            count++;
+            totalMillis += millis;
+            minMillis = Math.min(minMillis, millis);
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        void add(Aggregate other) {
+            count += other.count;
+            totalMillis += other.totalMillis;
+            minMillis = Math.min(minMillis, other.minMillis);
+            maxMillis = Math.max(maxMillis, other.maxMillis);
+        }
+
+        Aggregate copy() {
+            return new Aggregate(count, totalMillis, minMillis, maxMillis);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMinMillis() {
+            return count == 0 ? 0 : minMillis;
+        }
+
+        public long getMaxMillis() {
+            return count == 0 ? 0 : maxMillis;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : (double) totalMillis / count;
+        }
+    }
+
+    /**
+     * @param capacity how many of the most recent incidents are kept in memory
+     * @param segmentSize how many evicted incidents go into one segment file
+     */
+    public CompletedIncidentStore(int capacity, int segmentSize) {
+        if (capacity < 1 || segmentSize < 1) throw new IllegalArgumentException("Capacity and segment size must be positive");
+        this.capacity = capacity;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Archives evicted incidents into a directory from now on, numbering segments after the ones already there
+     */
+    public synchronized void setArchiveDirectory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (var files = Files.list(directory)) {
+            nextSegment = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("completed-") && name.endsWith(".csv.gz"))
+                    .mapToInt(name -> Integer.parseInt(name.substring(10, name.length() - 7)) + 1)
+                    .max().orElse(0);
+        }
+        archiveDirectory = directory;
+        if (archiver == null) {
+            archiver = new Thread(this::archiveLoop, "completed-archiver");
+            archiver.setDaemon(true);
+            archiver.start();
+        }
+    }
+
+    /**
+     * Adds a completed incident
+     * @return false if the incident is already in the recent window
+     */
+    public synchronized boolean add(Incident incident) {
+        if (recent.containsKey(incident.getIncidentID())) return false;
+        recent.put(incident.getIncidentID(), incident);
+        long millis = responseMillis(incident);
+        total.record(millis);
+        aggregates.computeIfAbsent(new Key(incident.getZone(), incident.getSeverity()), k -> new Aggregate())
+                .record(millis);
+        version++;
+
+        if (recent.size() > capacity) {
+            var oldest = recent.entrySet().iterator();
+            evicted.add(oldest.next().getValue());
+            oldest.remove();
+            if (evicted.size() >= segmentSize) flushSegment();
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if an incident is in the recent window. Duplicate reports arrive shortly after the
+     * original, so older incidents do not need to be checked.
+     */
+    public synchronized boolean contains(String incidentID) {
+        return recent.containsKey(incidentID);
+    }
+
+    /**
+     * Returns a copy of the recent window, oldest first
+     */
+    public synchronized List<Incident> recent() {
+        return new ArrayList<>(recent.values());
+    }
+
+    /**
+     * Returns how many incidents have been completed, including evicted ones
+     */
+    public synchronized long getCount() {
+        return total.count;
+    }
+
+    /**
+     * Returns a number that changes whenever an incident is added, so a display can skip redrawing
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized Aggregate getTotal() {
+        return total.copy();
+    }
+
+    /**
+     * Returns a copy of the totals per zone and severity
+     */
+    public synchronized Map<Key, Aggregate> getAggregates() {
+        Map<Key, Aggregate> copy = new HashMap<>();
+        aggregates.forEach((key, aggregate) -> copy.put(key, aggregate.copy()));
+        return copy;
+    }
+
+    /**
+     * Adds totals carried over from before a restart
+     */
+    synchronized void restore(Map<Key, Aggregate> restored) {
+        restored.forEach((key, aggregate) -> {
+            aggregates.computeIfAbsent(key, k -> new Aggregate()).add(aggregate);
+            total.add(aggregate);
+        });
+        version++;
+    }
+
+    /**
+     * Archives the incidents evicted so far, even if they do not fill a segment, and stops the archiver
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!evicted.isEmpty()) flushSegment();
+            thread = archiver;
+            archiver = null;
+            archiveDirectory = null;
+        }
+        if (thread == null) return;
+        segments.add(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushSegment() {
+        if (archiveDirectory != null) {
+            Path file = archiveDirectory.resolve(String.format("completed-%06d.csv.gz", nextSegment++));
+            segments.add(new Segment(file, new ArrayList<>(evicted)));
+        }
+        evicted.clear();
+    }
+
+    private void archiveLoop() {
+        while (true) {
+            Segment segment;
+            try {
+                segment = segments.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (segment == STOP) return;
+            try {
+                writeSegment(segment.file(), segment.incidents());
+            } catch (IOException e) {
+                System.err.println("Could not archive completed incidents to " + segment.file() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a segment to a temporary file and renames it, so a segment file is never half written
+     */
+    static void writeSegment(Path file, List<Incident> incidents) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            for (Incident incident : incidents) {
+                out.write(incident.getIncidentNumber() + "," + incident.getTime() + "," + incident.getZone() + ","
+                        + incident.getEventType() + "," + incident.getSeverity() + "," + incident.getX() + ","
+                        + incident.getY() + "," + responseMillis(incident));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the incidents back from a segment file
+     */
+    public static List<Incident> readSegment(Path file) throws IOException {
+        List<Incident> incidents = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(",");
+                Incident incident = new Incident(Long.parseLong(parts[0]), parts[1], Integer.parseInt(parts[2]),
+                        parts[3], parts[4]);
+                incident.setLocation(Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+                incidents.add(incident);
+            }
+        }
+        return incidents;
+    }
+
+    private static long responseMillis(Incident incident) {
+        if (!incident.isCompleted()) return 0;
+        return Duration.between(incident.getCreationTime(), incident.getCompletionTime()).toMillis();
+    }
+}
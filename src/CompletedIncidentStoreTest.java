@@ -0,0 +1,77 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompletedIncidentStoreTest {
+    private final VirtualClock clock = new VirtualClock();
+    private final SimClock previous = SimClock.current();
+
+    @After
+    public void restoreClock() {
+        SimClock.install(previous);
+        clock.close();
+    }
+
+    private Incident completed(int number, int zone, String severity, long responseMillis) throws Exception {
+        SimClock.install(clock);
+        Incident incident = new Incident(number, "10:00:00", zone, "FIRE_DETECTED", severity);
+        incident.setLocation(number, 2 * number);
+        clock.sleep(responseMillis);
+        incident.markAsCompleted();
+        return incident;
+    }
+
+    @Test
+    public void testWindowAndAggregates() throws Exception {
+        CompletedIncidentStore store = new CompletedIncidentStore(3, 100);
+        for (int i = 1; i <= 5; i++) assertTrue(store.add(completed(i, i % 2, "High", i * 1000)));
+        assertFalse(store.add(completed(5, 1, "High", 0)));
+
+        assertEquals(5, store.getCount());
+        List<Long> recent = new ArrayList<>();
+        for (Incident incident : store.recent()) recent.add(incident.getIncidentNumber());
+        assertEquals(List.of(3L, 4L, 5L), recent);
+        assertFalse(store.contains(new Incident(1, "", 1, "FIRE_DETECTED", "High").getIncidentID()));
+
+        CompletedIncidentStore.Aggregate odd = store.getAggregates().get(new CompletedIncidentStore.Key(1, "High"));
+        assertEquals(3, odd.getCount());
+        assertEquals(1000, odd.getMinMillis());
+        assertEquals(5000, odd.getMaxMillis());
+        assertEquals(3000, store.getTotal().getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void testEvictedIncidentsAreArchived() throws Exception {
+        Path dir = Files.createTempDirectory("archive");
+        CompletedIncidentStore store = new CompletedIncidentStore(2, 3);
+        store.setArchiveDirectory(dir);
+        for (int i = 1; i <= 10; i++) store.add(completed(i, 1, "Low", 0));
+        store.close();
+
+        // 8 evicted: two full segments and the rest written on close
+        List<Long> archived = new ArrayList<>();
+        for (int segment = 0; segment < 3; segment++) {
+            Path file = dir.resolve(String.format("completed-%06d.csv.gz", segment));
+            for (Incident incident : CompletedIncidentStore.readSegment(file)) {
+                archived.add(incident.getIncidentNumber());
+                assertEquals(2 * incident.getIncidentNumber(), incident.getY());
+            }
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), archived);
+
+        // A new store carries on numbering after the existing segments
+        CompletedIncidentStore next = new CompletedIncidentStore(1, 1);
+        next.setArchiveDirectory(dir);
+        next.add(completed(11, 1, "Low", 0));
+        next.add(completed(12, 1, "Low", 0));
+        next.close();
+        assertEquals(11, CompletedIncidentStore.readSegment(dir.resolve("completed-000003.csv.gz"))
+                .get(0).getIncidentNumber());
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe priority queue for incidents waiting on a drone. Incidents are ordered by severity and
+ * event type first, and by how long they have been waiting second. Every incident ages at the same rate,
+ * so the aged priority of an incident can be turned into a fixed sort key when it is offered:
+ *
+ *     key = enqueueTime - basePriority * AGING_STEP_MS
+ *
+ * A lower key is dispatched first. A Low incident that has waited long enough will therefore overtake
+ * newer High incidents instead of starving behind them.
+ *
+ * Incidents that could not be placed are parked instead of being spun through the queue. Parked
+ * incidents still count towards the size of the queue and are returned by its iterator, but are only
+ * handed out again after {@link #unparkAll()} is called because a drone became available.
+ */
+public class DispatchQueue extends AbstractQueue<Incident> {
+    /** Waiting time that is worth one priority level. */
+    static final long AGING_STEP_MS = 30_000;
+
+    private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+    private final List<Entry> parked = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<String> queuedIDs = ConcurrentHashMap.newKeySet();
+    private long availabilityEpoch = 0;
+
+    /**
+     * Returns the base priority of an incident, higher values are dispatched first
+     * @param incident incident to rank
+     * @return priority level
+     */
+    static int basePriority(Incident incident) {
+        return severityRank(incident.getSeverity()) * 2 + eventTypeRank(incident.getEventType());
+    }
+
+    /**
+     * Returns the severity in form of a number based on the string
+     * @param severity severity from the event file
+     * @return 3 for high, 2 for moderate, 1 for low and 0 for anything else
+     */
+    static int severityRank(String severity) {
+        if (severity == null) return 0;
+        switch (severity.toUpperCase()) {
+            case "HIGH": return 3;
+            case "MODERATE":
+            case "MEDIUM": return 2;
+            case "LOW": return 1;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Confirmed fires are ranked above drone requests of the same severity
+     * @param eventType event type from the event file
+     * @return 1 for FIRE_DETECTED, 0 otherwise
+     */
+    static int eventTypeRank(String eventType) {
+        return "FIRE_DETECTED".equals(eventType) ? 1 : 0;
+    }
+
+    /**
+     * Adds an incident to the queue. An incident that was queued before keeps its original waiting time.
+     */
+    @Override
+    public boolean offer(Incident incident) {
+        if (incident == null) throw new NullPointerException();
+        incident.markQueued(SimClock.current().millis());
+        long key = incident.getQueuedTime() - basePriority(incident) * AGING_STEP_MS;
+        queuedIDs.add(incident.getIncidentID());
+        return queue.offer(new Entry(incident, key, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Checks if an incident with the given id is waiting in the queue, ready or parked
+     * @param incidentID incident id
+     * @return true if the incident is queued
+     */
+    public boolean containsIncident(String incidentID) {
+        return queuedIDs.contains(incidentID);
+    }
+
+    /**
+     * Blocks until an incident is ready to be dispatched
+     * @return the highest priority incident that is not parked
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Incident take() throws InterruptedException {
+        return dequeued(queue.take());
+    }
+
+    /**
+     * Waits up to a timeout for an incident to be ready to be dispatched
+     * @return the highest priority incident that is not parked, or null if none became ready in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Incident poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return dequeued(queue.poll(timeout, unit));
+    }
+
+    /**
+     * Returns the number of times drones have become available. Read it after taking an incident and
+     * pass it to {@link #park(Incident, long)} so an availability change in between is not missed.
+     * @return current availability epoch
+     */
+    public long availabilityEpoch() {
+        synchronized (parked) {
+            return availabilityEpoch;
+        }
+    }
+
+    /**
+     * Parks an incident that could not be assigned until a drone becomes available. If a drone became
+     * available since observedEpoch the incident is made ready again right away.
+     * @param incident incident that could not be placed
+     * @param observedEpoch availability epoch read before the assignment attempt
+     */
+    public void park(Incident incident, long observedEpoch) {
+        long key = incident.getQueuedTime() - basePriority(incident) * AGING_STEP_MS;
+        Entry entry = new Entry(incident, key, sequence.getAndIncrement());
+        queuedIDs.add(incident.getIncidentID());
+        synchronized (parked) {
+            if (observedEpoch == availabilityEpoch) {
+                parked.add(entry);
+                return;
+            }
+        }
+        queue.offer(entry);
+    }
+
+    /**
+     * Makes every parked incident ready again, called when a drone becomes available
+     */
+    public void unparkAll() {
+        synchronized (parked) {
+            availabilityEpoch++;
+            queue.addAll(parked);
+            parked.clear();
+        }
+    }
+
+    /**
+     * Returns the number of incidents waiting for a drone to become available
+     * @return parked incident count
+     */
+    public int parkedCount() {
+        synchronized (parked) {
+            return parked.size();
+        }
+    }
+
+    @Override
+    public Incident poll() {
+        return dequeued(queue.poll());
+    }
+
+    private Incident dequeued(Entry entry) {
+        if (entry == null) return null;
+        queuedIDs.remove(entry.incident.getIncidentID());
+        return entry.incident;
+    }
+
+    /**
+     * Returns the next ready incident, or the highest priority parked incident if none are ready
+     */
+    @Override
+    public Incident peek() {
+        Entry entry = queue.peek();
+        if (entry != null) return entry.incident;
+        synchronized (parked) {
+            Entry best = null;
+            for (Entry e : parked) {
+                if (best == null || e.compareTo(best) < 0) best = e;
+            }
+            return best == null ? null : best.incident;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Incident)) return false;
+        boolean removed = false;
+        for (Entry entry : queue) {
+            if (entry.incident == o) {
+                removed = queue.remove(entry);
+                break;
+            }
+        }
+        if (!removed) {
+            synchronized (parked) {
+                removed = parked.removeIf(entry -> entry.incident == o);
+            }
+        }
+        if (removed) queuedIDs.remove(((Incident) o).getIncidentID());
+        return removed;
+    }
+
+    /**
+     * Removes the incident with the given id, ready or parked
+     * @param incidentID incident id
+     * @return the removed incident, or null if it was not queued
+     */
+    public Incident removeIncident(String incidentID) {
+        if (!queuedIDs.contains(incidentID)) return null;
+        for (Incident incident : this) {
+            if (incident.getIncidentID().equals(incidentID) && remove(incident)) return incident;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return queue.size() + parkedCount();
+    }
+
+    /**
+     * Iterates over a snapshot of the ready and parked incidents, not in priority order
+     */
+    @Override
+    public Iterator<Incident> iterator() {
+        List<Incident> snapshot = new ArrayList<>(queue.size());
+        for (Entry entry : queue) snapshot.add(entry.incident);
+        synchronized (parked) {
+            for (Entry entry : parked) snapshot.add(entry.incident);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final Incident incident;
+        final long key;
+        final long seq;
+
+        Entry(Incident incident, long key, long seq) {
+            this.incident = incident;
+            this.key = key;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int c = Long.compare(key, other.key);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DispatchQueueTest {
+
+    @Test
+    public void testHighSeverityDispatchedBeforeEarlierLow() {
+        DispatchQueue queue = new DispatchQueue();
+        Incident low = new Incident("12:00:00", 1, "FIRE_DETECTED", "Low");
+        Incident high = new Incident("12:00:05", 2, "DRONE_REQUEST", "High");
+        queue.offer(low);
+        queue.offer(high);
+
+        assertSame(high, queue.poll());
+        assertSame(low, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testSamePriorityIsFifo() {
+        DispatchQueue queue = new DispatchQueue();
+        Incident first = new Incident("12:00:00", 1, "DRONE_REQUEST", "Moderate");
+        Incident second = new Incident("12:00:01", 2, "DRONE_REQUEST", "Moderate");
+        queue.offer(first);
+        queue.offer(second);
+
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+    }
+
+    @Test
+    public void testFireDetectedRankedAboveDroneRequest() {
+        Incident fire = new Incident("12:00:00", 1, "FIRE_DETECTED", "Moderate");
+        Incident request = new Incident("12:00:00", 1, "DRONE_REQUEST", "Moderate");
+        assertTrue(DispatchQueue.basePriority(fire) > DispatchQueue.basePriority(request));
+    }
+
+    @Test
+    public void testParkedIncidentReleasedWhenDroneAvailable() {
+        DispatchQueue queue = new DispatchQueue();
+        Incident incident = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        queue.offer(incident);
+        Incident taken = queue.poll();
+        queue.park(taken, queue.availabilityEpoch());
+
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.parkedCount());
+        assertNull(queue.poll());
+
+        queue.unparkAll();
+        assertSame(incident, queue.poll());
+    }
+
+    @Test
+    public void testParkAfterAvailabilityChangeIsNotLost() {
+        DispatchQueue queue = new DispatchQueue();
+        Incident incident = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        queue.offer(incident);
+        Incident taken = queue.poll();
+        long epoch = queue.availabilityEpoch();
+        queue.unparkAll();
+        queue.park(taken, epoch);
+
+        assertEquals(0, queue.parkedCount());
+        assertSame(incident, queue.poll());
+    }
+}
@@ -0,0 +1,188 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Drones grouped into square cells of the map, with a count and a breakdown by state per cell. Kept up to
+ * date one drone at a time, so an update costs the same no matter how big the fleet is. The map draws a
+ * cluster per cell when it is zoomed out and uses the cells to find the drones on screen when zoomed in.
+ * Not thread safe, the map only uses it on the event dispatch thread.
+ */
+public class DroneClusters {
+
+    /**
+     * Last known position and state of a drone
+     */
+    public static final class Drone {
+        final int id;
+        int x, y;
+        String state;
+        Cluster cluster;
+
+        Drone(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The drones in one cell
+     */
+    public static final class Cluster {
+        final int cellX, cellY;
+        final Set<Drone> drones = new HashSet<>();
+        final Map<String, Integer> states = new TreeMap<>();
+        long sumX, sumY;
+
+        Cluster(int cellX, int cellY) {
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        public int count() {
+            return drones.size();
+        }
+
+        public int centerX() {
+            return (int) (sumX / drones.size());
+        }
+
+        public int centerY() {
+            return (int) (sumY / drones.size());
+        }
+
+        /**
+         * Returns how many drones in the cell are in each state
+         */
+        public Map<String, Integer> states() {
+            return states;
+        }
+    }
+
+    private int cellSize;
+    private final Map<Integer, Drone> drones = new HashMap<>();
+    private final Map<Long, Cluster> cells = new HashMap<>();
+
+    /**
+     * @param cellSize width and height of a cell in map coordinates
+     */
+    public DroneClusters(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    /**
+     * Moves a drone to its new position and state, adding it if it is new
+     * @return true if anything changed
+     */
+    public boolean update(int id, int x, int y, String state) {
+        Drone drone = drones.get(id);
+        if (drone == null) {
+            drone = new Drone(id);
+            drones.put(id, drone);
+        } else if (drone.x == x && drone.y == y && drone.state.equals(state)) {
+            return false;
+        } else {
+            leave(drone);
+        }
+        drone.x = x;
+        drone.y = y;
+        drone.state = state;
+        join(drone);
+        return true;
+    }
+
+    public void remove(int id) {
+        Drone drone = drones.remove(id);
+        if (drone != null) leave(drone);
+    }
+
+    public Drone get(int id) {
+        return drones.get(id);
+    }
+
+    public int size() {
+        return drones.size();
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Changes the cell size, which regroups every drone. Only needed when the map zooms.
+     */
+    public void setCellSize(int cellSize) {
+        cellSize = Math.max(1, cellSize);
+        if (cellSize == this.cellSize) return;
+        this.cellSize = cellSize;
+        cells.clear();
+        for (Drone drone : drones.values()) join(drone);
+    }
+
+    /**
+     * Returns the cluster a position falls in, null if no drone is in that cell
+     */
+    public Cluster clusterAt(int x, int y) {
+        return cells.get(key(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize)));
+    }
+
+    /**
+     * Calls back with every cluster whose cell overlaps an area of the map
+     */
+    public void forEachCluster(int minX, int minY, int maxX, int maxY, Consumer<Cluster> action) {
+        int minCellX = Math.floorDiv(minX, cellSize), maxCellX = Math.floorDiv(maxX, cellSize);
+        int minCellY = Math.floorDiv(minY, cellSize), maxCellY = Math.floorDiv(maxY, cellSize);
+        long area = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+        if (area > cells.size()) {
+            // Fewer occupied cells than cells in the area, cheaper to go through the occupied ones
+            for (Cluster cluster : cells.values()) {
+                if (cluster.cellX >= minCellX && cluster.cellX <= maxCellX
+                        && cluster.cellY >= minCellY && cluster.cellY <= maxCellY) {
+                    action.accept(cluster);
+                }
+            }
+            return;
+        }
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                Cluster cluster = cells.get(key(cx, cy));
+                if (cluster != null) action.accept(cluster);
+            }
+        }
+    }
+
+    /**
+     * Returns how many drones are in the cells overlapping an area of the map
+     */
+    public int countIn(int minX, int minY, int maxX, int maxY) {
+        int[] count = {0};
+        forEachCluster(minX, minY, maxX, maxY, cluster -> count[0] += cluster.count());
+        return count[0];
+    }
+
+    private void join(Drone drone) {
+        int cx = Math.floorDiv(drone.x, cellSize), cy = Math.floorDiv(drone.y, cellSize);
+        Cluster cluster = cells.computeIfAbsent(key(cx, cy), k -> new Cluster(cx, cy));
+        cluster.drones.add(drone);
+        cluster.states.merge(drone.state, 1, Integer::sum);
+        cluster.sumX += drone.x;
+        cluster.sumY += drone.y;
+        drone.cluster = cluster;
+    }
+
+    private void leave(Drone drone) {
+        Cluster cluster = drone.cluster;
+        cluster.drones.remove(drone);
+        cluster.states.merge(drone.state, -1, (count, change) -> count + change == 0 ? null : count + change);
+        cluster.sumX -= drone.x;
+        cluster.sumY -= drone.y;
+        if (cluster.drones.isEmpty()) cells.remove(key(cluster.cellX, cluster.cellY));
+        drone.cluster = null;
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DroneClustersTest {
+
+    @Test
+    public void testUpdatesMoveDronesBetweenCells() {
+        DroneClusters clusters = new DroneClusters(100);
+        clusters.update(1, 10, 10, "IDLE");
+        clusters.update(2, 90, 50, "EN_ROUTE");
+        clusters.update(3, 150, 10, "IDLE");
+
+        DroneClusters.Cluster first = clusters.clusterAt(0, 0);
+        assertEquals(2, first.count());
+        assertEquals(Map.of("EN_ROUTE", 1, "IDLE", 1), first.states());
+        assertEquals(50, first.centerX());
+
+        assertFalse(clusters.update(2, 90, 50, "EN_ROUTE"));
+        assertTrue(clusters.update(2, 120, 50, "DROPPING_AGENT"));
+        assertEquals(Map.of("IDLE", 1), first.states());
+        assertEquals(Map.of("DROPPING_AGENT", 1, "IDLE", 1), clusters.clusterAt(100, 0).states());
+
+        clusters.remove(1);
+        assertNull(clusters.clusterAt(0, 0));
+        assertEquals(2, clusters.size());
+    }
+
+    @Test
+    public void testAreaQueriesAndCellSizeChange() {
+        DroneClusters clusters = new DroneClusters(10);
+        for (int i = 0; i < 100; i++) clusters.update(i, i * 10, -i * 10, i % 2 == 0 ? "IDLE" : "RETURNING");
+        assertEquals(100, clusters.countIn(-10_000, -10_000, 10_000, 10_000));
+        assertEquals(11, clusters.countIn(0, -100, 100, 0));
+
+        clusters.setCellSize(1000);
+        List<DroneClusters.Cluster> found = new ArrayList<>();
+        clusters.forEachCluster(0, -1000, 999, -1, found::add);
+        assertEquals(1, found.size());
+        assertEquals(99, found.get(0).count());
+        assertEquals(Map.of("IDLE", 49, "RETURNING", 50), found.get(0).states());
+    }
+}
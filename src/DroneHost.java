@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many simulated drones in one process. Every drone's mission runs on virtual threads and all drones
+ * share one UDP channel. Messages from the scheduler are routed to a drone by the drone id they carry, and
+ * the scheduler replies to the address and port a drone's messages come from, so only one port is used no
+ * matter how many drones the host runs.
+ */
+public class DroneHost implements AutoCloseable {
+    private static final int SCHEDULER_DRONE_PORT = 6000;
+    private static final int RECEIVE_BUFFER_SIZE = 2048;
+    /** Large enough for the burst of status updates when thousands of drones start together. */
+    private static final int SOCKET_BUFFER_SIZE = 1 << 22;
+
+    private final InetAddress schedulerAddress;
+    private final InetSocketAddress schedulerTarget;
+    private final DatagramChannel channel;
+    private final Map<Integer, DroneSubsystem> drones = new ConcurrentHashMap<>();
+    private final Queue<ByteBuffer> sendBuffers = new ConcurrentLinkedQueue<>();
+    private final Thread receiver;
+    private volatile boolean running = true;
+    private final AtomicLong unroutable = new AtomicLong();
+    /** Runs the resends of every drone on the host */
+    private final TimerWheel timers = new TimerWheel(SimClock.current(), 100, 512);
+
+    /**
+     * @param schedulerAddress address of the scheduler
+     * @param localPort port the host binds, 0 for any free port
+     */
+    public DroneHost(InetAddress schedulerAddress, int localPort) throws IOException {
+        this(schedulerAddress, SCHEDULER_DRONE_PORT, localPort);
+    }
+
+    DroneHost(InetAddress schedulerAddress, int schedulerPort, int localPort) throws IOException {
+        this.schedulerAddress = schedulerAddress;
+        this.schedulerTarget = new InetSocketAddress(schedulerAddress, schedulerPort);
+        this.channel = DatagramChannel.open();
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        this.channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        this.channel.bind(new InetSocketAddress(localPort));
+        this.receiver = new Thread(this::receiveLoop, "drone-host-receiver");
+        this.receiver.start();
+    }
+
+    /**
+     * Creates a drone on this host and starts it on a virtual thread
+     * @param droneID id of the drone, unique on this host
+     * @param x starting x coordinate
+     * @param y starting y coordinate
+     * @return the running drone
+     */
+    public DroneSubsystem addDrone(int droneID, int x, int y) throws SocketException {
+        DroneSubsystem drone = new DroneSubsystem(droneID, x, y, this);
+        if (drones.putIfAbsent(droneID, drone) != null) {
+            throw new IllegalArgumentException("Drone " + droneID + " is already running on this host");
+        }
+        Thread.ofVirtual().name("drone-" + droneID).start(drone);
+        return drone;
+    }
+
+    public Map<Integer, DroneSubsystem> getDrones() {
+        return drones;
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns how many messages arrived for a drone this host does not run
+     */
+    public long getUnroutableCount() {
+        return unroutable.get();
+    }
+
+    TimerWheel getTimers() {
+        return timers;
+    }
+
+    InetAddress getSchedulerAddress() {
+        return schedulerAddress;
+    }
+
+    void remove(int droneID) {
+        drones.remove(droneID);
+    }
+
+    /**
+     * Sends an encoded message to the scheduler through a pooled direct buffer
+     * @param message heap buffer holding the encoded message, not yet flipped
+     */
+    void send(ByteBuffer message) throws IOException {
+        ByteBuffer buffer = sendBuffers.poll();
+        if (buffer == null) buffer = ByteBuffer.allocateDirect(MessageCodec.MAX_MESSAGE_SIZE);
+        try {
+            buffer.clear();
+            buffer.put(message.array(), message.arrayOffset(), message.position());
+            buffer.flip();
+            channel.send(buffer, schedulerTarget);
+        } catch (ClosedChannelException e) {
+            // The host closed the channel under a drone that was still sending, expected while stopping
+            if (running) throw e;
+        } finally {
+            sendBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Function run by the receiver thread, decodes every message in a datagram and hands it to its drone
+     */
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        MessageCodec.Message message = new MessageCodec.Message();
+        try {
+            while (running) {
+                channel.receive(buffer.clear());
+                buffer.flip();
+                while (MessageCodec.decode(buffer, message)) {
+                    DroneSubsystem drone = drones.get(message.droneId);
+                    if (drone == null) {
+                        unroutable.incrementAndGet();
+                        continue;
+                    }
+                    drone.deliver(message);
+                    message = new MessageCodec.Message();
+                }
+            }
+        } catch (ClosedChannelException ignored) {
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops every drone on the host and closes the shared channel
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (DroneSubsystem drone : new ArrayList<>(drones.values())) {
+            drone.stop();
+        }
+        timers.close();
+        try {
+            channel.close();
+            receiver.join();
+        } catch (IOException ignored) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== DRONE HOST STARTING ===");
+        Scanner scanner = new Scanner(System.in);
+        try {
+            System.out.print("Enter Scheduler IP address (press Enter for localhost): ");
+            String ipAddress = scanner.nextLine().trim();
+            InetAddress schedulerAddress = ipAddress.isEmpty() ? InetAddress.getLocalHost() : InetAddress.getByName(ipAddress);
+
+            System.out.print("Enter number of drones: ");
+            int numDrones = Integer.parseInt(scanner.nextLine().trim());
+
+            System.out.print("Enter first drone id (press Enter for 1): ");
+            String first = scanner.nextLine().trim();
+            int firstId = first.isEmpty() ? 1 : Integer.parseInt(first);
+
+            try (DroneHost host = new DroneHost(schedulerAddress, 0)) {
+                for (int i = 0; i < numDrones; i++) {
+                    host.addDrone(firstId + i, 0, 0);
+                }
+                System.out.printf("Running drones %d to %d on port %d. Press Enter to stop.%n",
+                        firstId, firstId + numDrones - 1, host.getPort());
+                scanner.nextLine();
+            }
+        } catch (Exception e) {
+            System.err.println("Error running drone host: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            scanner.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DroneHostTest {
+    private static final int DRONES = 50;
+
+    @Test
+    public void testDronesShareOneSocketAndAreRoutedById() throws Exception {
+        InetAddress localhost = InetAddress.getLocalHost();
+        try (DatagramSocket scheduler = new DatagramSocket(0, localhost);
+             DroneHost host = new DroneHost(localhost, scheduler.getLocalPort(), 0)) {
+            scheduler.setSoTimeout(5000);
+            for (int id = 1; id <= DRONES; id++) {
+                host.addDrone(id, 0, 0);
+            }
+
+            byte[] buffer = new byte[1024];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            MessageCodec.Message message = new MessageCodec.Message();
+            Set<Integer> registered = new HashSet<>();
+            Set<Integer> ports = new HashSet<>();
+            while (registered.size() < DRONES) {
+                packet.setLength(buffer.length);
+                scheduler.receive(packet);
+                assertTrue(MessageCodec.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), message));
+                assertEquals(MessageCodec.STATUS, message.type);
+                registered.add(message.droneId);
+                ports.add(packet.getPort());
+            }
+            assertEquals(Set.of(host.getPort()), ports);
+
+            ByteBuffer reset = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+            MessageCodec.encodeResetCountdown(reset, 7);
+            scheduler.send(new DatagramPacket(reset.array(), reset.position(), localhost, host.getPort()));
+
+            // Drone 7 alone reacts to the reset by flying back to base
+            do {
+                packet.setLength(buffer.length);
+                scheduler.receive(packet);
+                assertTrue(MessageCodec.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), message));
+            } while (!message.stateName().equals("RETURNING"));
+            assertEquals(7, message.droneId);
+
+            reset.clear();
+            MessageCodec.encodeResetCountdown(reset, DRONES + 1);
+            scheduler.send(new DatagramPacket(reset.array(), reset.position(), localhost, host.getPort()));
+            for (int i = 0; i < 50 && host.getUnroutableCount() == 0; i++) Thread.sleep(20);
+            assertEquals(1, host.getUnroutableCount());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over drone positions used by the scheduler to pick drones without scanning the whole fleet.
+ * Only drones that can take part in an assignment are placed in the grid: idle drones that are available,
+ * and en route drones that could still be rerouted. The index is kept current by calling
+ * {@link #update(Scheduler.DroneStatus)} whenever a drone's position, state or assignment changes.
+ */
+public class DroneIndex {
+    /**
+     * Which grid a drone is stored in
+     */
+    enum Category { IDLE, EN_ROUTE, OTHER }
+
+    private final int cellSize;
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    private final Grid idleGrid = new Grid();
+    private final Grid enRouteGrid = new Grid();
+
+    public DroneIndex(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns the grid category of a drone based on its current status
+     * @param status drone status
+     * @return category the drone belongs in
+     */
+    static Category categorize(Scheduler.DroneStatus status) {
+        if (status.health != FailureDetector.Health.ALIVE || status.faultMessage != null) return Category.OTHER;
+        if (status.isAvailable && "IDLE".equals(status.state) && status.currentIncident == null) return Category.IDLE;
+        if (!status.isAvailable && "EN_ROUTE".equals(status.state)
+                && status.currentIncident != null && !status.hasBeenRerouted) {
+            return Category.EN_ROUTE;
+        }
+        return Category.OTHER;
+    }
+
+    /**
+     * Adds a drone or moves it to its current cell and category
+     * @param status drone status
+     */
+    public synchronized void update(Scheduler.DroneStatus status) {
+        int id = status.droneInfo.id;
+        int x = status.droneInfo.x;
+        int y = status.droneInfo.y;
+        Category category = categorize(status);
+        long key = cellKey(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize));
+
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            entry = new Entry(status);
+            byId.put(id, entry);
+        } else if (entry.category == category && entry.cellKey == key) {
+            entry.x = x;
+            entry.y = y;
+            entry.status = status;
+            return;
+        } else {
+            Grid previous = gridFor(entry.category);
+            if (previous != null) previous.remove(entry);
+        }
+
+        entry.status = status;
+        entry.x = x;
+        entry.y = y;
+        entry.cellKey = key;
+        entry.category = category;
+        Grid grid = gridFor(category);
+        if (grid != null) grid.add(entry, Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize));
+    }
+
+    /**
+     * Removes a drone from the index
+     * @param id drone id
+     */
+    public synchronized void remove(int id) {
+        Entry entry = byId.remove(id);
+        if (entry != null && gridFor(entry.category) != null) gridFor(entry.category).remove(entry);
+    }
+
+    /**
+     * Returns the number of drones known to the index
+     */
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Returns the number of drones in a category
+     * @param category grid category
+     */
+    public synchronized int count(Category category) {
+        Grid grid = gridFor(category);
+        return grid == null ? byId.size() - idleGrid.count - enRouteGrid.count : grid.count;
+    }
+
+    /**
+     * Finds the idle, available drone closest to a point by searching rings of cells outwards from the
+     * point's cell until no closer drone can exist
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return closest idle drone or null if none are idle
+     */
+    public synchronized Scheduler.DroneStatus nearestIdle(int x, int y) {
+        if (idleGrid.count == 0) return null;
+        int cx = Math.floorDiv(x, cellSize);
+        int cy = Math.floorDiv(y, cellSize);
+        int maxRing = idleGrid.ringsToCover(cx, cy);
+
+        Nearest nearest = new Nearest(x, y);
+        for (int r = 0; r <= maxRing; r++) {
+            if (r == 0) {
+                nearest.visit(idleGrid.cells.get(cellKey(cx, cy)));
+            } else {
+                for (int i = cx - r; i <= cx + r; i++) {
+                    nearest.visit(idleGrid.cells.get(cellKey(i, cy - r)));
+                    nearest.visit(idleGrid.cells.get(cellKey(i, cy + r)));
+                }
+                for (int j = cy - r + 1; j <= cy + r - 1; j++) {
+                    nearest.visit(idleGrid.cells.get(cellKey(cx - r, j)));
+                    nearest.visit(idleGrid.cells.get(cellKey(cx + r, j)));
+                }
+            }
+            // every cell in the next ring is at least r cells away from the point
+            if (nearest.best != null && (double) r * cellSize > nearest.bestDist) break;
+        }
+        return nearest.best == null ? null : nearest.best.status;
+    }
+
+    /**
+     * Returns every idle, available drone
+     * @return idle drones in no particular order
+     */
+    public synchronized List<Scheduler.DroneStatus> idleDrones() {
+        List<Scheduler.DroneStatus> result = new ArrayList<>(idleGrid.count);
+        for (List<Entry> cell : idleGrid.cells.values()) {
+            for (Entry e : cell) result.add(e.status);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the en route drones that have not been rerouted yet and are strictly closer than a radius
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param radius search radius, Double.MAX_VALUE for no limit
+     * @return matching drones, closest first
+     */
+    public synchronized List<Scheduler.DroneStatus> enRouteWithin(int x, int y, double radius) {
+        List<Entry> found = new ArrayList<>();
+        if (enRouteGrid.count > 0) {
+            double rings = Math.ceil(radius / cellSize);
+            if ((2 * rings + 1) * (2 * rings + 1) >= enRouteGrid.cells.size()) {
+                // the search box covers more cells than are occupied, walk the occupied ones instead
+                for (List<Entry> cell : enRouteGrid.cells.values()) collectWithin(cell, x, y, radius, found);
+            } else {
+                int r = (int) rings;
+                int cx = Math.floorDiv(x, cellSize);
+                int cy = Math.floorDiv(y, cellSize);
+                for (int i = cx - r; i <= cx + r; i++) {
+                    for (int j = cy - r; j <= cy + r; j++) {
+                        List<Entry> cell = enRouteGrid.cells.get(cellKey(i, j));
+                        if (cell != null) collectWithin(cell, x, y, radius, found);
+                    }
+                }
+            }
+        }
+        found.sort((a, b) -> Double.compare(Math.hypot(a.x - x, a.y - y), Math.hypot(b.x - x, b.y - y)));
+        List<Scheduler.DroneStatus> result = new ArrayList<>(found.size());
+        for (Entry e : found) result.add(e.status);
+        return result;
+    }
+
+    private static void collectWithin(List<Entry> cell, int x, int y, double radius, List<Entry> found) {
+        for (Entry e : cell) {
+            if (Math.hypot(e.x - x, e.y - y) < radius) found.add(e);
+        }
+    }
+
+    private Grid gridFor(Category category) {
+        switch (category) {
+            case IDLE: return idleGrid;
+            case EN_ROUTE: return enRouteGrid;
+            default: return null;
+        }
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /**
+     * Tracks the closest entry seen during a ring search
+     */
+    private static final class Nearest {
+        final int x, y;
+        Entry best = null;
+        double bestDist = Double.MAX_VALUE;
+
+        Nearest(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        void visit(List<Entry> cell) {
+            if (cell == null) return;
+            for (Entry e : cell) {
+                double dist = Math.hypot(e.x - x, e.y - y);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = e;
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        Scheduler.DroneStatus status;
+        int x, y;
+        long cellKey;
+        Category category = Category.OTHER;
+
+        Entry(Scheduler.DroneStatus status) {
+            this.status = status;
+        }
+    }
+
+    /**
+     * Cells of one category, with the bounding box of every cell that has been used so ring searches
+     * know when to stop
+     */
+    private static final class Grid {
+        final Map<Long, List<Entry>> cells = new LinkedHashMap<>();
+        int count = 0;
+        int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE;
+        int maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE;
+
+        void add(Entry entry, int cx, int cy) {
+            cells.computeIfAbsent(entry.cellKey, k -> new ArrayList<>()).add(entry);
+            count++;
+            minCx = Math.min(minCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCx = Math.max(maxCx, cx);
+            maxCy = Math.max(maxCy, cy);
+        }
+
+        void remove(Entry entry) {
+            List<Entry> cell = cells.get(entry.cellKey);
+            if (cell != null && cell.remove(entry)) {
+                count--;
+                if (cell.isEmpty()) cells.remove(entry.cellKey);
+            }
+        }
+
+        int ringsToCover(int cx, int cy) {
+            int dx = Math.max(Math.abs(cx - minCx), Math.abs(maxCx - cx));
+            int dy = Math.max(Math.abs(cy - minCy), Math.abs(maxCy - cy));
+            return Math.max(dx, dy);
+        }
+    }
+}
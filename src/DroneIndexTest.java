@@ -0,0 +1,57 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DroneIndexTest {
+
+    private static Scheduler.DroneStatus drone(int id, int x, int y, String state, boolean available) {
+        Scheduler.DroneStatus status = new Scheduler.DroneStatus(new Scheduler.DroneInfo(id, x, y, null));
+        status.state = state;
+        status.isAvailable = available;
+        return status;
+    }
+
+    @Test
+    public void testNearestIdleAcrossCells() {
+        DroneIndex index = new DroneIndex(100);
+        index.update(drone(1, 950, 950, "IDLE", true));
+        index.update(drone(2, 120, 80, "IDLE", true));
+        index.update(drone(3, 10, 10, "EN_ROUTE", false));
+
+        assertEquals(2, index.nearestIdle(0, 0).droneInfo.id);
+        assertEquals(1, index.nearestIdle(800, 900).droneInfo.id);
+    }
+
+    @Test
+    public void testDroneLeavesIdleGridWhenAssigned() {
+        DroneIndex index = new DroneIndex(100);
+        Scheduler.DroneStatus status = drone(1, 0, 0, "IDLE", true);
+        index.update(status);
+        status.isAvailable = false;
+        index.update(status);
+
+        assertNull(index.nearestIdle(0, 0));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testEnRouteWithinExcludesReroutedDrones() {
+        DroneIndex index = new DroneIndex(100);
+        Scheduler.DroneStatus near = drone(1, 50, 50, "EN_ROUTE", false);
+        near.currentIncident = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        Scheduler.DroneStatus rerouted = drone(2, 60, 60, "EN_ROUTE", false);
+        rerouted.currentIncident = new Incident("12:00:00", 2, "FIRE_DETECTED", "High");
+        rerouted.hasBeenRerouted = true;
+        Scheduler.DroneStatus far = drone(3, 900, 900, "EN_ROUTE", false);
+        far.currentIncident = new Incident("12:00:00", 3, "FIRE_DETECTED", "High");
+        index.update(near);
+        index.update(rerouted);
+        index.update(far);
+
+        List<Scheduler.DroneStatus> found = index.enRouteWithin(0, 0, 200);
+        assertEquals(1, found.size());
+        assertSame(near, found.get(0));
+    }
+}
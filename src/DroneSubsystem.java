@@ -1,40 +1,76 @@
 import javax.swing.*;
 import java.net.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class represents a drone subsystem. It's responsible for communicating with the scheduler
- * to register itself as available and receive incident assignments.
+ * to register itself as available and receive incident assignments. A standalone drone sends and receives
+ * on its own socket bound to port 6000 + id, a drone run by a {@link DroneHost} shares the host's socket.
+ * Either way messages are handed to the drone through {@link #deliver}, which answers ACKs and assignments
+ * right away and queues the rest in an inbox for the drone's listener thread.
  */
 public class DroneSubsystem implements Runnable {
     private static int DRONE_PORT = 6000;
     private static final int SCHEDULER_PORT = 4000;
+    /** Peer id of the scheduler on the drone's {@link ReliableLink} */
+    private static final int SCHEDULER = 0;
+    private static final long ACK_TIMEOUT_MS = 250;
+    private static TimerWheel standaloneTimers;
     private final int droneID;
     private int xPosition;
     private int yPosition;
     private volatile boolean shouldRun = true;
     private final InetAddress schedulerAddress;
     private final AtomicBoolean isAvailable = new AtomicBoolean(true);
-    private DatagramSocket receiveSocket;
-    public DatagramSocket sendSocket;
-    private DroneState currentState = DroneState.IDLE;
+    private final DatagramSocket socket;
+    private final DroneHost host;
+    private final BlockingQueue<MessageCodec.Message> inbox;
+    private volatile Thread listenerThread;
+    private volatile DroneState currentState = DroneState.IDLE;
+    /** Guards the state against a reroute being accepted as the drone leaves EN_ROUTE */
+    private final Object rerouteLock = new Object();
+    private MessageCodec.Message reroute;
     private int countdownTime;
     private volatile boolean isCountdownActive = true;
-    private static final int MAX_RETRY = 5;
     private volatile boolean faultInjected = false;
     private Incident currentIncident = null;
     private int waterCapacity;
     private double distanceTraveled;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+    /** Guards sendBuffer, a lock rather than a monitor so a virtual thread blocked on the send can unmount */
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final DatagramPacket sendPacket = new DatagramPacket(sendBuffer.array(), 0);
+    private final SimClock clock = SimClock.current();
+    private final ReliableLink link;
 
     public DroneSubsystem(int droneID, int xPosition, int yPosition, InetAddress schedulerAddress) throws SocketException {
+        this(droneID, xPosition, yPosition, schedulerAddress, null);
+    }
+
+    /**
+     * Creates a drone run by a host, it shares the host's socket instead of binding its own
+     */
+    DroneSubsystem(int droneID, int xPosition, int yPosition, DroneHost host) throws SocketException {
+        this(droneID, xPosition, yPosition, host.getSchedulerAddress(), host);
+    }
+
+    private DroneSubsystem(int droneID, int xPosition, int yPosition, InetAddress schedulerAddress,
+                           DroneHost host) throws SocketException {
         this.droneID = droneID;
         this.xPosition = xPosition;
         this.yPosition = yPosition;
         this.schedulerAddress = schedulerAddress;
-        this.receiveSocket = new DatagramSocket(DRONE_PORT + droneID);
-        this.sendSocket = new DatagramSocket();
+        this.host = host;
+        this.socket = host == null ? new DatagramSocket(DRONE_PORT + droneID) : null;
+        this.inbox = new LinkedBlockingQueue<>();
+        this.link = new ReliableLink(host == null ? standaloneTimers() : host.getTimers(),
+                (peer, message) -> transmit(message), ACK_TIMEOUT_MS);
         Random rand = new Random();
         this.countdownTime = rand.nextInt(10) + 15;
         this.waterCapacity = 40;
@@ -43,8 +79,72 @@ public class DroneSubsystem implements Runnable {
 
     public void stop() {
         shouldRun = false;
-        if (receiveSocket != null && !receiveSocket.isClosed()) receiveSocket.close();
-        if (sendSocket != null && !sendSocket.isClosed()) sendSocket.close();
+        if (socket != null && !socket.isClosed()) socket.close();
+        if (host != null) host.remove(droneID);
+        Thread listener = listenerThread;
+        if (listener != null) listener.interrupt();
+    }
+
+    /**
+     * Timer wheel shared by the standalone drones of a process, drones on a host use the host's
+     */
+    private static synchronized TimerWheel standaloneTimers() {
+        if (standaloneTimers == null) standaloneTimers = new TimerWheel(SimClock.current(), 100, 512);
+        return standaloneTimers;
+    }
+
+    /**
+     * Hands a message from the scheduler to this drone. ACKs are matched to the messages waiting for them.
+     * An assignment is ACKed right away, or answered BUSY if the drone already has one, so the scheduler
+     * does not wait for a drone in the middle of a mission. A drone that is en route takes a new assignment
+     * as a reroute, and switches to it at its next step. A resent assignment gets the same answer again
+     * and is not queued twice.
+     * @param message decoded message, not reused by the caller
+     */
+    void deliver(MessageCodec.Message message) {
+        switch (message.type) {
+            case MessageCodec.ACK:
+                link.acknowledged(SCHEDULER, message.seq, message.ackStatus);
+                break;
+            case MessageCodec.ASSIGN:
+                byte reply = link.previousReply(SCHEDULER, message.seq);
+                boolean isNew = reply < 0;
+                boolean queue = false;
+                if (isNew) {
+                    queue = isAvailable.compareAndSet(true, false);
+                    reply = queue || acceptReroute(message) ? MessageCodec.ACK_OK : MessageCodec.ACK_BUSY;
+                    link.replied(SCHEDULER, message.seq, reply);
+                }
+                sendAck(message.seq, reply);
+                if (queue) inbox.add(message);
+                break;
+            default:
+                inbox.add(message);
+                break;
+        }
+    }
+
+    /**
+     * Keeps an assignment for the drone to switch to, if it is en route and has not taken a reroute already
+     * @return true if the drone will take it
+     */
+    private boolean acceptReroute(MessageCodec.Message message) {
+        synchronized (rerouteLock) {
+            if (currentState != DroneState.EN_ROUTE || reroute != null) return false;
+            reroute = message;
+            return true;
+        }
+    }
+
+    /**
+     * Takes the reroute the drone accepted, if there is one
+     */
+    private MessageCodec.Message takeReroute() {
+        synchronized (rerouteLock) {
+            MessageCodec.Message message = reroute;
+            reroute = null;
+            return message;
+        }
     }
 
     /**
@@ -52,60 +152,83 @@ public class DroneSubsystem implements Runnable {
      */
     @Override
     public void run() {
-        System.out.println("The drone system has been deployed. Waiting on instructions to proceed further.\n");
-        Thread listenerThread = new Thread(this::listenForAssignments);
-        listenerThread.start();
+        if (host == null) {
+            System.out.println("The drone system has been deployed. Waiting on instructions to proceed further.\n");
+        }
+        Thread.Builder builder = host == null ? Thread.ofPlatform() : Thread.ofVirtual();
+        Thread listener = builder.name("drone-" + droneID + "-listener").start(this::listenForAssignments);
+        listenerThread = listener;
+        if (host == null) builder.name("drone-" + droneID + "-receiver").start(this::receiveFromSocket);
         sendStatusUpdate();
         try {
-            listenerThread.join();
+            listener.join();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Function run by a standalone drone's receiver thread, reads datagrams from the drone's socket and
+     * delivers them
+     */
+    private void receiveFromSocket() {
+        byte[] buffer = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        ByteBuffer data = ByteBuffer.wrap(buffer);
+        while (shouldRun) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                data.clear().limit(packet.getLength());
+                MessageCodec.Message message = new MessageCodec.Message();
+                while (MessageCodec.decode(data, message)) {
+                    deliver(message);
+                    message = new MessageCodec.Message();
+                }
+            } catch (IOException e) {
+                if (shouldRun) e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * The function is used to wait for messages from the scheduler. Once it receives an assignment
      * it calls helper function to update its movement and state
      */
     private void listenForAssignments() {
         try {
-            System.out.println("Drone " + droneID + " listening for assignments on port " + (DRONE_PORT + droneID));
+            if (host == null) {
+                System.out.println("Drone " + droneID + " listening for assignments on port " + (DRONE_PORT + droneID));
+            }
             while (shouldRun) {
-                byte[] buffer = new byte[1024];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                MessageCodec.Message message = inbox.take();
+                clock.enter();
                 try {
-                    receiveSocket.receive(packet);
-                    String message = new String(packet.getData(), 0, packet.getLength());
-                    Thread.sleep(1000);
+                    clock.sleep(1000);
 
-                    if (message.startsWith("ResetCountdown")) {
+                    if (message.type == MessageCodec.RESET_COUNTDOWN) {
                         System.out.println("Drone " + droneID + " received RESET. Returning to base.");
                         returnToBaseAndReset();
-                    } else if (message.startsWith("Assign") && isAvailable.get()) {
-                        isAvailable.set(false);
-                        String[] parts = message.split(",");
-                        // parts[0] is "Assign"
-                        int zone = Integer.parseInt(parts[1]);
-                        int targetX = Integer.parseInt(parts[2]);
-                        int targetY = Integer.parseInt(parts[3]);
-                        Incident incident = new Incident(parts[7], zone, parts[4], parts[5]);
-                        incident.setWaterAmountNeeded(Integer.parseInt(parts[6]));
-                        handleAssignment(incident, targetX, targetY);
-                        isAvailable.set(true);
-                    } else if (message.startsWith("Reassign")) {
-                        String[] parts = message.split(",");
-                        int zone = Integer.parseInt(parts[1]);
-                        int targetX = Integer.parseInt(parts[2]);
-                        int targetY = Integer.parseInt(parts[3]);
-                        Incident incident = new Incident(parts[7], zone, parts[4], parts[5]);
-                        incident.setWaterAmountNeeded(Integer.parseInt(parts[6]));
+                    } else if (message.type == MessageCodec.ASSIGN) {
+                        // deliver already took the drone's availability, it is given back when the drone is IDLE
+                        Incident incident = message.toIncident();
+                        handleAssignment(incident, message.x, message.y);
+                    } else if (message.type == MessageCodec.REASSIGN) {
+                        Incident incident = message.toIncident();
                         System.out.println("Drone " + droneID + " received REASSIGNMENT to new incident.");
-                        handleAssignment(incident, targetX, targetY);
+                        handleAssignment(incident, message.x, message.y);
+                    }
+                    // A reroute taken just as the drone reached its incident is flown once the mission is over
+                    MessageCodec.Message rerouted;
+                    while ((rerouted = takeReroute()) != null) {
+                        handleAssignment(rerouted.toIncident(), rerouted.x, rerouted.y);
                     }
-                } catch (IOException e) {
-                    if (shouldRun && !(e instanceof SocketTimeoutException)) e.printStackTrace();
+                } finally {
+                    clock.exit();
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             if (shouldRun) e.printStackTrace();
         }
@@ -125,6 +248,7 @@ public class DroneSubsystem implements Runnable {
             System.out.printf("Drone %d has insufficient water. Needs %dL, has %dL.\n",
                     droneID, incident.getWaterAmountNeeded(), waterCapacity);
             sendReassignRequest(incident);
+            isAvailable.set(true);
         }
     }
 
@@ -153,37 +277,39 @@ public class DroneSubsystem implements Runnable {
             int travelTime = (random.nextInt(7) + 3) * 1000;
             int steps = 10;
             setState(DroneState.EN_ROUTE);
-            sendStatusUpdate();
             for (int i = 1; i <= steps; i++) {
                 if (faultInjected) {
                     System.out.println("Fault injected mid-travel.");
                     abortMissionDueToFault();
                     return;
                 }
+                MessageCodec.Message rerouted = takeReroute();
+                if (rerouted != null) {
+                    followReroute(rerouted.toIncident(), rerouted.x, rerouted.y);
+                    return;
+                }
                 // Move toward the target coordinates provided by the scheduler
                 xPosition += (targetX - xPosition) / (steps - i + 1);
                 yPosition += (targetY - yPosition) / (steps - i + 1);
                 sendStatusUpdate();
-                Thread.sleep(travelTimeMs/steps);
+                clock.sleep(travelTimeMs/steps);
                 if (!waitOrPause(travelTime / steps)) return;
             }
 
             setState(DroneState.DROPPING_AGENT);
-            sendStatusUpdate();
             for (int i = 0; i <= steps; i++) {
                 if (faultInjected) {
                     System.out.println("Fault injected after agent drop.");
                     abortMissionDueToFault();
                     return;
                 }
-                Thread.sleep(300);
+                clock.sleep(300);
             }
             waterCapacity -=incident.getWaterAmountNeeded();
             sendCompletionMessage(incident);
             if (!waitOrPause(travelTime)) return;
 
             setState(DroneState.RETURNING);
-            sendStatusUpdate();
             for (int i = 1; i <= steps; i++) {
                 if (faultInjected) {
                     System.out.println("Fault injected during return.");
@@ -193,19 +319,39 @@ public class DroneSubsystem implements Runnable {
                 xPosition -= xPosition / (steps - i + 1);
                 yPosition -= yPosition / (steps - i + 1);
                 sendStatusUpdate();
-                Thread.sleep(travelTimeMs/steps);
+                clock.sleep(travelTimeMs/steps);
                 if (!waitOrPause(travelTime / steps)) return;
             }
 
             waterCapacity = 40;
             setState(DroneState.IDLE);
-            sendStatusUpdate();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.out.println("Interrupted. Returning to base.");
         }
     }
 
+    /**
+     * Switches an en route drone to the incident it was rerouted to. The scheduler has already put the
+     * incident it leaves back in the queue.
+     * @param incident incident to fly to instead
+     * @param targetX target x coordinate
+     * @param targetY target y coordinate
+     */
+    private void followReroute(Incident incident, int targetX, int targetY) {
+        System.out.println("Drone " + droneID + " rerouted to incident " + incident.getIncidentID());
+        if (waterCapacity >= incident.getWaterAmountNeeded()) {
+            this.currentIncident = incident;
+            simulateTravel(incident, targetX, targetY);
+        } else {
+            System.out.printf("Drone %d has insufficient water. Needs %dL, has %dL.\n",
+                    droneID, incident.getWaterAmountNeeded(), waterCapacity);
+            sendReassignRequest(incident);
+            // Already in the air, so it only becomes available again back at base
+            returnToBaseAndReset();
+        }
+    }
+
     /**
      * This function is called when a fault is injected into a drone. It aborts
      * the current assignment if its called.
@@ -216,6 +362,8 @@ public class DroneSubsystem implements Runnable {
         // Drop the current incident immediately.
         Incident incidentToReassign = currentIncident;
         currentIncident = null;
+        // The scheduler takes back whatever the drone holds, a reroute included
+        takeReroute();
 
         // If an incident was in progress, send a reassign request to ensure it is handled by another drone.
         if (incidentToReassign != null) {
@@ -226,9 +374,8 @@ public class DroneSubsystem implements Runnable {
         // Then return to base (0,0).
         returnToBaseAndReset();
 
-        // Reset the fault flag and send a final status update.
+        // Reset the fault flag, the drone already reported IDLE on reaching base
         faultInjected = false;
-        sendStatusUpdate();
     }
 
     /**
@@ -237,24 +384,11 @@ public class DroneSubsystem implements Runnable {
      * @param incident
      */
     private void sendReassignRequest(Incident incident) {
-        try {
-            String message = String.format("Reassign,%d,%d,%s,%s,%d,%s",
-                    droneID,
-                    incident.getZone(),
-                    incident.getEventType(),
-                    incident.getSeverity(),
-                    incident.getWaterAmountNeeded(),
-                    incident.getTime());
-
-            byte[] buffer = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, schedulerAddress, DRONE_PORT);
-            sendSocket.send(packet);
-
-            System.out.println("Drone " + droneID + " sent REASSIGN request for zone " + incident.getZone());
-        } catch (IOException e) {
-            System.err.println("Failed to send reassign request: " + e.getMessage());
-            e.printStackTrace();
-        }
+        ByteBuffer message = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        int seq = link.nextSequence(SCHEDULER);
+        MessageCodec.encodeReassign(message, droneID, seq, incident);
+        sendReliably(seq, message, "reassign request for incident " + incident.getIncidentID());
+        System.out.println("Drone " + droneID + " sent REASSIGN request for zone " + incident.getZone());
     }
 
     /**
@@ -271,7 +405,7 @@ public class DroneSubsystem implements Runnable {
                 xPosition -= xPosition / (steps - i + 1);
                 yPosition -= yPosition / (steps - i + 1);
                 sendStatusUpdate();
-                Thread.sleep(travelTime / steps);
+                clock.sleep(travelTime / steps);
             }
             // Ensure drone is exactly at the base.
             xPosition = 0;
@@ -279,7 +413,6 @@ public class DroneSubsystem implements Runnable {
             waterCapacity = 40;
             // Now set state to IDLE so the drone becomes available for assignments.
             setState(DroneState.IDLE);
-            sendStatusUpdate();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.err.println("Interrupted while resetting to base.");
@@ -294,12 +427,12 @@ public class DroneSubsystem implements Runnable {
      * @throws InterruptedException
      */
     private boolean waitOrPause(int duration) throws InterruptedException {
-        long end = System.currentTimeMillis() + duration;
-        while (System.currentTimeMillis() < end) {
-            if (!isCountdownActive) Thread.sleep(100);
+        long end = clock.millis() + duration;
+        while (clock.millis() < end) {
+            if (!isCountdownActive) clock.sleep(100);
             else {
-                long remaining = end - System.currentTimeMillis();
-                if (remaining > 0) Thread.sleep(remaining);
+                long remaining = end - clock.millis();
+                if (remaining > 0) clock.sleep(remaining);
                 return true;
             }
         }
@@ -320,17 +453,17 @@ public class DroneSubsystem implements Runnable {
      * Helper function used to inject the fault
      */
     public void injectFault() {
-        String faultMessage = null;
+        FaultType fault = null;
         switch (currentState) {
-            case DROPPING_AGENT -> faultMessage = "ERROR: Drone Nozzle Malfunction";
-            case RETURNING, EN_ROUTE -> faultMessage = "ERROR: Drone is stuck in flight.";
-            case IDLE -> faultMessage = "ERROR: Drone Connection Lost Via Packet Loss";
+            case DROPPING_AGENT -> fault = FaultType.NOZZLE;
+            case RETURNING, EN_ROUTE -> fault = FaultType.STUCK;
+            case IDLE -> fault = FaultType.PACKET_LOSS;
         }
 
-        if (faultMessage != null) {
+        if (fault != null) {
             faultInjected = true;
             setState(DroneState.FAULT);
-            sendFaultMessageToScheduler(faultMessage);
+            sendFaultMessageToScheduler(fault);
         }
     }
 
@@ -339,27 +472,35 @@ public class DroneSubsystem implements Runnable {
      */
     private void sendStatusUpdate() {
         try {
-            String message = String.format("Drone,%d,%d,%d,%s", droneID, xPosition, yPosition, currentState);
-            byte[] buffer = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, schedulerAddress, DRONE_PORT);
-            sendSocket.send(packet);
+            sendLock.lock();
+            try {
+                sendBuffer.clear();
+                MessageCodec.encodeStatus(sendBuffer, droneID, xPosition, yPosition, currentState);
+                sendToScheduler();
+            } finally {
+                sendLock.unlock();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            if (shouldRun) e.printStackTrace();
         }
     }
 
     /**
      * Helper function used to send a message update via UDP to the scheduler
-     * @param faultMessage
+     * @param fault fault to report
      */
-    private void sendFaultMessageToScheduler(String faultMessage) {
+    private void sendFaultMessageToScheduler(FaultType fault) {
         try {
-            String message = String.format("Drone %d Fault: %s", droneID, faultMessage);
-            byte[] buffer = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, schedulerAddress, DRONE_PORT);
-            sendSocket.send(packet);
+            sendLock.lock();
+            try {
+                sendBuffer.clear();
+                MessageCodec.encodeFault(sendBuffer, droneID, fault);
+                sendToScheduler();
+            } finally {
+                sendLock.unlock();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            if (shouldRun) e.printStackTrace();
         }
     }
 
@@ -368,23 +509,87 @@ public class DroneSubsystem implements Runnable {
      * @param incident
      */
     private void sendCompletionMessage(Incident incident) {
+        ByteBuffer message = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        int seq = link.nextSequence(SCHEDULER);
+        MessageCodec.encodeComplete(message, droneID, seq, incident);
+        sendReliably(seq, message, "completion of incident " + incident.getIncidentID());
+    }
+
+    /**
+     * Sends a control message to the scheduler and resends it until the scheduler ACKs it
+     * @param seq sequence number in the message
+     * @param message encoded message, not yet flipped
+     * @param description what the message is, for the log if it is never acked
+     */
+    private void sendReliably(int seq, ByteBuffer message, String description) {
+        link.send(SCHEDULER, seq, Arrays.copyOf(message.array(), message.position()), outcome -> {
+            if (outcome == ReliableLink.Outcome.TIMED_OUT) {
+                System.err.println("Drone " + droneID + ": scheduler never acked " + description);
+            }
+        });
+    }
+
+    /**
+     * Helper function used to answer a control message from the scheduler
+     * @param seq sequence number of the message
+     * @param status ack status
+     */
+    private void sendAck(int seq, byte status) {
         try {
-            String message = String.format("Complete,%d,%d,%s,%s,%s", droneID, incident.getZone(),
-                    incident.getEventType(), incident.getSeverity(), incident.getTime());
-            byte[] buffer = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, schedulerAddress, DRONE_PORT);
-            sendSocket.send(packet);
+            sendLock.lock();
+            try {
+                sendBuffer.clear();
+                MessageCodec.encodeAck(sendBuffer, droneID, seq, status);
+                sendToScheduler();
+            } finally {
+                sendLock.unlock();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            if (shouldRun) e.printStackTrace();
         }
     }
 
+    /**
+     * Sends an encoded control message to the scheduler, used by the link for sends and resends
+     */
+    private void transmit(byte[] message) throws IOException {
+        if (!shouldRun) return;
+        sendLock.lock();
+        try {
+            sendBuffer.clear();
+            sendBuffer.put(message);
+            sendToScheduler();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Sends the message encoded in sendBuffer to the scheduler, callers hold sendLock. Messages
+     * go out on the socket the drone receives on, so the scheduler can reply to the address they came from.
+     */
+    private void sendToScheduler() throws IOException {
+        if (host != null) {
+            host.send(sendBuffer);
+            return;
+        }
+        sendPacket.setData(sendBuffer.array(), 0, sendBuffer.position());
+        sendPacket.setAddress(schedulerAddress);
+        sendPacket.setPort(DRONE_PORT);
+        socket.send(sendPacket);
+    }
+
     /**
      * Helper function to set the state of the drone
      * @param newState
      */
     public void setState(DroneState newState) {
-        this.currentState = newState;
+        synchronized (rerouteLock) {
+            this.currentState = newState;
+            // Available before the scheduler hears IDLE, or its next assignment would be answered BUSY. A
+            // drone with a reroute still to fly is not.
+            if (newState == DroneState.IDLE && reroute == null) isAvailable.set(true);
+        }
         sendStatusUpdate();
     }
 
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,7 +41,8 @@ class DroneSubsystemTest {
     @Test
     public void testDroneToSchedulerUDPMessage() throws Exception {
         int schedulerPort = 4000;
-        String testMessage = "Drone,99,10,20,IDLE";
+        ByteBuffer testMessage = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeStatus(testMessage, 99, 10, 20, DroneSubsystem.DroneState.IDLE);
 
         Thread receiverThread = new Thread(() -> {
             try (DatagramSocket socket = new DatagramSocket(schedulerPort)) {
@@ -49,9 +51,14 @@ class DroneSubsystemTest {
                 socket.setSoTimeout(3000);
                 socket.receive(packet);
 
-                String received = new String(packet.getData(), 0, packet.getLength());
-                System.out.println("Scheduler received: " + received);
-                assertEquals(testMessage, received, "Received message should match sent message");
+                MessageCodec.Message received = new MessageCodec.Message();
+                assertTrue(MessageCodec.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), received));
+                System.out.println("Scheduler received status from drone " + received.droneId);
+                assertEquals(MessageCodec.STATUS, received.type, "Received message should be a status update");
+                assertEquals(99, received.droneId);
+                assertEquals(10, received.x);
+                assertEquals(20, received.y);
+                assertEquals("IDLE", received.stateName());
             } catch (Exception e) {
                 fail("Receiver failed: " + e.getMessage());
             }
@@ -61,9 +68,8 @@ class DroneSubsystemTest {
         Thread.sleep(500);
 
         try (DatagramSocket sendSocket = new DatagramSocket()) {
-            byte[] buffer = testMessage.getBytes();
             InetAddress address = InetAddress.getLocalHost();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, address, schedulerPort);
+            DatagramPacket packet = new DatagramPacket(testMessage.array(), testMessage.position(), address, schedulerPort);
             sendSocket.send(packet);
         }
 
@@ -112,4 +118,41 @@ class DroneSubsystemTest {
 
         assertEquals(DroneSubsystem.DroneState.FAULT, droneSubsystem.getCurrentState(), "State should be FAULT after injectFault()");
     }
+
+    @Test
+    void testEnRouteDroneTakesAssignmentAsReroute() throws Exception {
+        try (DatagramSocket scheduler = new DatagramSocket(6000)) {
+            scheduler.setSoTimeout(3000);
+            assertEquals(MessageCodec.ACK_OK, assign(scheduler, 1));
+            droneSubsystem.setState(DroneSubsystem.DroneState.EN_ROUTE);
+            assertEquals(MessageCodec.ACK_OK, assign(scheduler, 2), "An en route drone takes a reroute");
+            assertEquals(MessageCodec.ACK_BUSY, assign(scheduler, 3), "Only one reroute at a time");
+            droneSubsystem.setState(DroneSubsystem.DroneState.IDLE);
+            assertEquals(MessageCodec.ACK_BUSY, assign(scheduler, 4), "Not available until the reroute is flown");
+        }
+    }
+
+    /**
+     * Delivers an assignment to the drone and returns the status of the ACK it sends the scheduler
+     */
+    private byte assign(DatagramSocket scheduler, int seq) throws Exception {
+        Incident incident = new Incident("12:00:00", 1, "FIRE_DETECTED", "Low");
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeAssign(buffer, droneSubsystem.getDroneID(), seq, incident, 10, 10);
+        MessageCodec.Message message = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(buffer.flip(), message));
+        droneSubsystem.deliver(message);
+
+        byte[] data = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        MessageCodec.Message reply = new MessageCodec.Message();
+        while (true) {
+            scheduler.receive(packet);
+            // Status updates from setState come in on the same port
+            if (MessageCodec.decode(ByteBuffer.wrap(data, 0, packet.getLength()), reply)
+                    && reply.type == MessageCodec.ACK && reply.seq == seq) {
+                return reply.ackStatus;
+            }
+        }
+    }
 }
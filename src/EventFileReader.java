@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads incident event files (Time,Zone ID,Event type,Severity) by memory mapping them, so archived sensor
+ * logs of millions of lines are not copied through a reader and no String is created per line. The file is
+ * mapped a window at a time, fields are parsed straight from the mapped bytes and event types and
+ * severities are matched against the known names. Lines without four fields or with a bad zone id are
+ * skipped and counted, unknown event types and severities are read as UNKNOWN.
+ */
+public class EventFileReader implements AutoCloseable {
+    private static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+    private static final String[] EVENT_TYPES = {"FIRE_DETECTED", "DRONE_REQUEST"};
+    private static final String[] SEVERITIES = {"Low", "Moderate", "Medium", "High"};
+    private static final byte[][] EVENT_TYPE_BYTES = bytes(EVENT_TYPES);
+    private static final byte[][] SEVERITY_BYTES = bytes(SEVERITIES);
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private int lineStart;
+    private int lineEnd;
+    private long lineCount = 0;
+    private long skippedCount = 0;
+
+    /**
+     * One event read from the file. Reuse one instance while reading.
+     */
+    public static final class Event {
+        public int time;
+        public int zone;
+        public byte eventType;
+        public byte severity;
+
+        /**
+         * Builds the incident for this event. Times, event types and severities are shared Strings.
+         */
+        public Incident toIncident() {
+            return new Incident(MessageCodec.formatTime(time), zone, MessageCodec.eventTypeName(eventType),
+                    MessageCodec.severityName(severity));
+        }
+    }
+
+    public EventFileReader(String file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file event file
+     * @param windowSize how much of the file is mapped at once
+     */
+    EventFileReader(String file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(Path.of(file), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        // The header is the only line that does not start with a time
+        if (nextLine() && isDigit(lineStart)) position = 0;
+    }
+
+    /**
+     * Reads the next event
+     * @param out event to fill in
+     * @return false at the end of the file
+     */
+    public boolean next(Event out) throws IOException {
+        while (nextLine()) {
+            lineCount++;
+            if (parse(out)) return true;
+            skippedCount++;
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the first event at or after a time of day, or to the end of the file if there is none.
+     * Only the time field of the lines skipped over is looked at.
+     * @param startTime seconds since midnight
+     */
+    public void seek(int startTime) throws IOException {
+        while (true) {
+            long start = position;
+            if (!nextLine()) return;
+            int timeEnd = indexOf((byte) ',', lineStart, lineEnd);
+            if (parseTime(lineStart, timeEnd < 0 ? lineEnd : timeEnd) >= startTime) {
+                position = start;
+                return;
+            }
+            lineCount++;
+        }
+    }
+
+    /**
+     * Returns how many lines after the header have been read or skipped over
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns how many lines could not be parsed
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Finds the line at the current position and moves past it, remapping when the line runs past the end
+     * of the window. A line longer than a whole window is cut at the end of the window.
+     * @return false at the end of the file
+     */
+    private boolean nextLine() throws IOException {
+        if (position >= size) return false;
+        if (window == null || position < windowStart || position >= windowStart + window.limit()) map(position);
+        int start = (int) (position - windowStart);
+        int end = indexOf((byte) '\n', start, window.limit());
+        if (end < 0 && windowStart + window.limit() < size && start > 0) {
+            map(position);
+            start = 0;
+            end = indexOf((byte) '\n', 0, window.limit());
+        }
+        if (end < 0) end = window.limit();
+        position = windowStart + end + 1;
+        lineStart = start;
+        lineEnd = end > start && window.get(end - 1) == '\r' ? end - 1 : end;
+        return true;
+    }
+
+    private void map(long from) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(windowSize, size - from));
+        windowStart = from;
+    }
+
+    private boolean parse(Event out) {
+        int timeEnd = indexOf((byte) ',', lineStart, lineEnd);
+        if (timeEnd < 0) return false;
+        int zoneEnd = indexOf((byte) ',', timeEnd + 1, lineEnd);
+        if (zoneEnd < 0) return false;
+        int typeEnd = indexOf((byte) ',', zoneEnd + 1, lineEnd);
+        if (typeEnd < 0) return false;
+        int severityEnd = indexOf((byte) ',', typeEnd + 1, lineEnd);
+        if (severityEnd < 0) severityEnd = lineEnd;
+
+        int zone = parseInt(timeEnd + 1, zoneEnd);
+        if (zone < 0) return false;
+        out.time = parseTime(lineStart, timeEnd);
+        out.zone = zone;
+        int type = match(EVENT_TYPE_BYTES, zoneEnd + 1, typeEnd, false);
+        out.eventType = type < 0 ? 0 : MessageCodec.eventTypeCode(EVENT_TYPES[type]);
+        int severity = match(SEVERITY_BYTES, typeEnd + 1, severityEnd, true);
+        out.severity = severity < 0 ? 0 : MessageCodec.severityCode(SEVERITIES[severity]);
+        return true;
+    }
+
+    /**
+     * Parses a HH:mm:ss time of day, same as {@link MessageCodec#parseTime(String)}
+     * @return seconds since midnight or -1 if the field is not a time
+     */
+    private int parseTime(int from, int to) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+        if (to - from != 8 || window.get(from + 2) != ':' || window.get(from + 5) != ':') return -1;
+        int h = twoDigits(from), m = twoDigits(from + 3), s = twoDigits(from + 6);
+        if (h < 0 || h > 23 || m < 0 || m > 59 || s < 0 || s > 59) return -1;
+        return h * 3600 + m * 60 + s;
+    }
+
+    private int twoDigits(int i) {
+        int a = window.get(i) - '0', b = window.get(i + 1) - '0';
+        return a < 0 || a > 9 || b < 0 || b > 9 ? -1 : a * 10 + b;
+    }
+
+    /**
+     * @return the non negative number in the field, or -1 if it is not a number
+     */
+    private int parseInt(int from, int to) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+        if (from == to || to - from > 9) return -1;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            if (!isDigit(i)) return -1;
+            value = value * 10 + window.get(i) - '0';
+        }
+        return value;
+    }
+
+    /**
+     * @return index of the name equal to the field, or -1
+     */
+    private int match(byte[][] names, int from, int to, boolean ignoreCase) {
+        from = skipSpaces(from, to);
+        to = trimSpaces(from, to);
+        for (int n = 0; n < names.length; n++) {
+            byte[] name = names[n];
+            if (name.length != to - from) continue;
+            int i = 0;
+            while (i < name.length && sameByte(name[i], window.get(from + i), ignoreCase)) i++;
+            if (i == name.length) return n;
+        }
+        return -1;
+    }
+
+    private static boolean sameByte(byte a, byte b, boolean ignoreCase) {
+        return a == b || ignoreCase && (a | 0x20) == (b | 0x20) && (a | 0x20) >= 'a' && (a | 0x20) <= 'z';
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (window.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int from, int to) {
+        while (from < to && window.get(from) == ' ') from++;
+        return from;
+    }
+
+    private int trimSpaces(int from, int to) {
+        while (to > from && window.get(to - 1) == ' ') to--;
+        return to;
+    }
+
+    private boolean isDigit(int i) {
+        return i < window.limit() && window.get(i) >= '0' && window.get(i) <= '9';
+    }
+
+    private static byte[][] bytes(String[] names) {
+        byte[][] out = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) out[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        return out;
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class EventFileReaderTest {
+
+    private static File write(String content) throws IOException {
+        File file = File.createTempFile("events", ".csv");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void testParsesFieldsAndSkipsBadLines() throws Exception {
+        File file = write("Time,Zone ID,Event type,Severity\r\n"
+                + "14:03:15,1,FIRE_DETECTED,High\r\n"
+                + "\r\n"
+                + "14:04:00,x,FIRE_DETECTED,High\r\n"
+                + " 14:10:00 , 12 , DRONE_REQUEST , medium \r\n"
+                + "14:11:00,3,SMOKE,Extreme");
+        EventFileReader.Event event = new EventFileReader.Event();
+        try (EventFileReader reader = new EventFileReader(file.getPath())) {
+            assertTrue(reader.next(event));
+            Incident incident = event.toIncident();
+            assertEquals("14:03:15", incident.getTime());
+            assertEquals(1, incident.getZone());
+            assertEquals("FIRE_DETECTED", incident.getEventType());
+            assertEquals("High", incident.getSeverity());
+
+            assertTrue(reader.next(event));
+            incident = event.toIncident();
+            assertEquals("14:10:00", incident.getTime());
+            assertEquals(12, incident.getZone());
+            assertEquals("DRONE_REQUEST", incident.getEventType());
+            assertEquals("Moderate", incident.getSeverity());
+
+            assertTrue(reader.next(event));
+            assertEquals("UNKNOWN", event.toIncident().getEventType());
+            assertEquals("UNKNOWN", event.toIncident().getSeverity());
+
+            assertFalse(reader.next(event));
+            assertEquals(5, reader.getLineCount());
+            assertEquals(2, reader.getSkippedCount());
+        }
+    }
+
+    @Test
+    public void testLinesAcrossWindowsAndSeek() throws Exception {
+        StringBuilder content = new StringBuilder("Time,Zone ID,Event type,Severity\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append(MessageCodec.formatTime(i * 10)).append(',').append(i).append(",FIRE_DETECTED,Low\n");
+        }
+        File file = write(content.toString());
+        EventFileReader.Event event = new EventFileReader.Event();
+        // A window that is not a multiple of the line length makes most windows end inside a line
+        try (EventFileReader reader = new EventFileReader(file.getPath(), 1000)) {
+            int count = 0;
+            while (reader.next(event)) {
+                assertEquals(count, event.zone);
+                assertEquals(count * 10, event.time);
+                count++;
+            }
+            assertEquals(5000, count);
+            assertEquals(0, reader.getSkippedCount());
+        }
+        try (EventFileReader reader = new EventFileReader(file.getPath(), 1000)) {
+            reader.seek(MessageCodec.parseTime("10:00:05"));
+            assertTrue(reader.next(event));
+            assertEquals(3601, event.zone);
+            reader.seek(MessageCodec.parseTime("23:59:59"));
+            assertFalse(reader.next(event));
+        }
+    }
+
+    @Test
+    public void testFileWithoutHeader() throws Exception {
+        File file = write("00:00:01,4,DRONE_REQUEST,Low\n");
+        EventFileReader.Event event = new EventFileReader.Event();
+        try (EventFileReader reader = new EventFileReader(file.getPath())) {
+            assertTrue(reader.next(event));
+            assertEquals(4, event.zone);
+            assertFalse(reader.next(event));
+        }
+    }
+}
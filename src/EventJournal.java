@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the scheduler's state changes, so the incidents can be rebuilt after a crash.
+ * Appending only queues the event and hands back its sequence number. A writer thread writes whatever
+ * has queued up since its last write and syncs it to disk once for the whole batch (group commit), so the
+ * dispatch path never waits for the disk. Events appended in the moment before a crash can be lost; callers
+ * that need an event on disk can wait with {@link #awaitDurable(long, long)}.
+ *
+ * <pre>
+ * record    crc32, sequence, type, droneId, incident block, fault code
+ * </pre>
+ * Records have a fixed size and the CRC covers everything after it. Opening a journal replays every
+ * record and cuts off a torn or corrupt tail left by a crash in the middle of a write. Once a snapshot
+ * covers the start of the journal, {@link #compact(long)} drops those records so the journal stays short.
+ */
+public class EventJournal implements AutoCloseable {
+    public static final byte RECEIVED = 1;
+    public static final byte ASSIGNED = 2;
+    public static final byte REROUTED = 3;
+    public static final byte REASSIGNED = 4;
+    public static final byte COMPLETED = 5;
+    public static final byte FAULT = 6;
+
+    static final int RECORD_SIZE = 4 + 8 + 1 + 4 + MessageCodec.INCIDENT_BLOCK_SIZE + 1;
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final byte[] NO_INCIDENT = new byte[MessageCodec.INCIDENT_BLOCK_SIZE];
+    private static final byte COMPACT = -1;
+    private static final Entry CLOSE = new Entry(-1, (byte) 0, 0, null, (byte) 0);
+
+    private final Path path;
+    private FileChannel channel;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Object durableLock = new Object();
+    private final Thread writer;
+    private long nextSequence;
+    private boolean closed = false;
+    private volatile long durableSequence;
+    private volatile long batchCount = 0;
+    private volatile long recordCount = 0;
+    private volatile long compactionCount = 0;
+    private volatile IOException failure;
+
+    /**
+     * One replayed record. The incident block is decoded into {@link #incident}, reused between records.
+     */
+    public static final class Record {
+        public long sequence;
+        public byte type;
+        public int droneId;
+        public byte fault;
+        public final MessageCodec.Message incident = new MessageCodec.Message();
+
+        public FaultType faultType() {
+            FaultType[] types = FaultType.values();
+            return fault >= 0 && fault < types.length ? types[fault] : null;
+        }
+    }
+
+    private record Entry(long sequence, byte type, int droneId, Incident incident, byte fault) {
+    }
+
+    /**
+     * Opens a journal, replaying the records already in it before anything new is appended
+     * @param file journal file, created if it does not exist
+     * @param replay called with every record in the file in order, may be null
+     */
+    public EventJournal(String file, Consumer<Record> replay) throws IOException {
+        path = Path.of(file);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long validEnd = replay(replay);
+        if (validEnd < channel.size()) {
+            System.out.printf("Journal %s: dropping %d bytes of a torn write%n", file, channel.size() - validEnd);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        durableSequence = nextSequence;
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an event for the journal
+     * @param type event type, one of the constants above
+     * @param droneId drone involved, 0 if none
+     * @param incident incident involved, null if none
+     * @return sequence number of the event
+     */
+    public long append(byte type, int droneId, Incident incident) {
+        return append(type, droneId, incident, (byte) 0);
+    }
+
+    public long appendFault(int droneId, FaultType faultType) {
+        return append(FAULT, droneId, null, (byte) faultType.ordinal());
+    }
+
+    private synchronized long append(byte type, int droneId, Incident incident, byte fault) {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        long sequence = ++nextSequence;
+        queue.add(new Entry(sequence, type, droneId, incident, fault));
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last event appended
+     */
+    public synchronized long getSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Returns the sequence number of the last event synced to disk
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Waits until an event is synced to disk
+     * @param sequence sequence number returned by append
+     * @param timeoutMillis how long to wait at most
+     * @return true if the event is on disk
+     */
+    public boolean awaitDurable(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        synchronized (durableLock) {
+            while (durableSequence < sequence && failure == null) {
+                long left = (deadline - System.nanoTime()) / 1_000_000;
+                if (left <= 0) return false;
+                durableLock.wait(left);
+            }
+        }
+        return durableSequence >= sequence;
+    }
+
+    /**
+     * Returns how many disk syncs have been done, each covers a batch of records
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Drops the records up to a sequence number from the journal, once they are covered by a snapshot.
+     * The journal is rewritten by the writer thread after the records queued before this call are written.
+     * @param upToSequence last sequence number the snapshot covers
+     */
+    public synchronized void compact(long upToSequence) {
+        if (closed) return;
+        queue.add(new Entry(upToSequence, COMPACT, 0, null, (byte) 0));
+    }
+
+    public long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Writes out everything appended so far and closes the journal
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads every valid record from the start of the file
+     * @return position right after the last valid record
+     */
+    private long replay(Consumer<Record> replay) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 256);
+        Record record = new Record();
+        CRC32 crc = new CRC32();
+        long position = 0;
+        long validEnd = 0;
+        channel.position(0);
+        while (channel.read(buffer) > 0 || buffer.position() > 0) {
+            buffer.flip();
+            if (buffer.remaining() < RECORD_SIZE) break;
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int start = buffer.position();
+                int expected = buffer.getInt();
+                crc.reset();
+                crc.update(buffer.array(), start + 4, RECORD_SIZE - 4);
+                if ((int) crc.getValue() != expected) return validEnd;
+                record.sequence = buffer.getLong();
+                record.type = buffer.get();
+                record.droneId = buffer.getInt();
+                MessageCodec.readIncidentBlock(buffer, record.incident);
+                record.fault = buffer.get();
+                position += RECORD_SIZE;
+                validEnd = position;
+                nextSequence = record.sequence;
+                if (replay != null) replay.accept(record);
+            }
+            buffer.compact();
+        }
+        return validEnd;
+    }
+
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * MAX_BATCH_SIZE);
+        byte[] body = new byte[RECORD_SIZE - 4];
+        CRC32 crc = new CRC32();
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            buffer.clear();
+            long last = -1;
+            for (Entry entry : batch) {
+                if (entry == CLOSE) {
+                    closing = true;
+                } else if (entry.type() == COMPACT) {
+                    last = flush(buffer, last);
+                    rewriteFrom(entry.sequence());
+                } else {
+                    encode(buffer, entry, body, crc);
+                    last = entry.sequence();
+                }
+            }
+            batch.clear();
+            flush(buffer, last);
+        }
+    }
+
+    /**
+     * Writes and syncs the encoded records in the buffer, then publishes the last one as durable
+     * @return -1 so the caller can start a new batch
+     */
+    private long flush(ByteBuffer buffer, long last) {
+        if (last < 0 || failure != null) {
+            buffer.clear();
+            return -1;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Journal write failed, no further events will be journaled: " + e.getMessage());
+            failure = e;
+        }
+        if (failure == null) {
+            recordCount += buffer.limit() / RECORD_SIZE;
+            batchCount++;
+        }
+        synchronized (durableLock) {
+            if (failure == null) durableSequence = last;
+            durableLock.notifyAll();
+        }
+        buffer.clear();
+        return -1;
+    }
+
+    /**
+     * Rewrites the journal without the records up to a sequence number. Records are in sequence order, so
+     * the first record to keep is found with a binary search and the rest is copied to a new file that
+     * then replaces the journal.
+     */
+    private void rewriteFrom(long upToSequence) {
+        if (failure != null) return;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            long count = channel.size() / RECORD_SIZE;
+            long lo = 0, hi = count;
+            ByteBuffer sequence = ByteBuffer.allocate(8);
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                sequence.clear();
+                channel.read(sequence, mid * RECORD_SIZE + 4);
+                if (sequence.getLong(0) <= upToSequence) lo = mid + 1;
+                else hi = mid;
+            }
+            // The last record is always kept, so numbering carries on from it when the journal is reopened
+            lo = Math.min(lo, count - 1);
+            if (lo <= 0) return;
+            long keepFrom = lo * RECORD_SIZE;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long copied = 0;
+                while (copied < channel.size() - keepFrom) {
+                    copied += channel.transferTo(keepFrom + copied, channel.size() - keepFrom - copied, out);
+                }
+                out.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            compactionCount++;
+        } catch (IOException e) {
+            System.err.println("Journal compaction failed, keeping the full journal: " + e.getMessage());
+        }
+    }
+
+    private static void encode(ByteBuffer buffer, Entry entry, byte[] body, CRC32 crc) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.putLong(entry.sequence());
+        buffer.put(entry.type());
+        buffer.putInt(entry.droneId());
+        if (entry.incident() != null) {
+            MessageCodec.incidentBlock(buffer, entry.incident(), entry.incident().getX(), entry.incident().getY());
+        } else {
+            buffer.put(NO_INCIDENT);
+        }
+        buffer.put(entry.fault());
+        buffer.get(start + 4, body);
+        crc.reset();
+        crc.update(body);
+        buffer.putInt(start, (int) crc.getValue());
+    }
+}
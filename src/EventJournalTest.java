@@ -0,0 +1,116 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventJournalTest {
+
+    private static File tempJournal() throws Exception {
+        File file = File.createTempFile("scheduler", ".journal");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testReplayAfterReopen() throws Exception {
+        File file = tempJournal();
+        Incident incident = new Incident(99, "14:03:15", 4, "FIRE_DETECTED", "High");
+        incident.setLocation(120, 340);
+        try (EventJournal journal = new EventJournal(file.getPath(), null)) {
+            assertEquals(1, journal.append(EventJournal.RECEIVED, 0, incident));
+            assertEquals(2, journal.append(EventJournal.ASSIGNED, 3, incident));
+            assertEquals(3, journal.appendFault(3, FaultType.NOZZLE));
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(file.getPath(), record -> {
+            replayed.add(record.sequence + ":" + record.type + ":" + record.droneId);
+            if (record.type == EventJournal.RECEIVED) {
+                Incident read = record.incident.toIncident();
+                assertEquals(99, read.getIncidentNumber());
+                assertEquals("14:03:15", read.getTime());
+                assertEquals(340, read.getY());
+            }
+            if (record.type == EventJournal.FAULT) assertEquals(FaultType.NOZZLE, record.faultType());
+        })) {
+            assertEquals(List.of("1:1:0", "2:2:3", "3:6:3"), replayed);
+            // Numbering carries on after the replayed records
+            assertEquals(4, journal.append(EventJournal.COMPLETED, 3, incident));
+        }
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws Exception {
+        File file = tempJournal();
+        Incident incident = new Incident(1, "00:00:01", 1, "DRONE_REQUEST", "Low");
+        try (EventJournal journal = new EventJournal(file.getPath(), null)) {
+            journal.append(EventJournal.RECEIVED, 0, incident);
+            journal.append(EventJournal.ASSIGNED, 2, incident);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        List<Long> replayed = new ArrayList<>();
+        try (EventJournal journal = new EventJournal(file.getPath(), record -> replayed.add(record.sequence))) {
+            assertEquals(List.of(1L), replayed);
+            assertEquals(EventJournal.RECORD_SIZE, file.length());
+            journal.append(EventJournal.ASSIGNED, 2, incident);
+        }
+        replayed.clear();
+        new EventJournal(file.getPath(), record -> replayed.add(record.sequence)).close();
+        assertEquals(List.of(1L, 2L), replayed);
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        File file = tempJournal();
+        Incident incident = new Incident(1, "00:00:01", 1, "DRONE_REQUEST", "Low");
+        try (EventJournal journal = new EventJournal(file.getPath(), null)) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) journal.append(EventJournal.RECEIVED, 0, incident);
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) thread.join();
+            assertTrue(journal.awaitDurable(20000, 10000));
+            assertEquals(20000, journal.getRecordCount());
+            // Appends queue up while the writer syncs, so far fewer syncs than records
+            assertTrue("Expected batching, got " + journal.getBatchCount() + " syncs",
+                    journal.getBatchCount() < 20000 / 4);
+        }
+        assertEquals(20000L * EventJournal.RECORD_SIZE, file.length());
+    }
+
+    @Test
+    public void testSchedulerRecoversIncidents() throws Exception {
+        File file = tempJournal();
+        Incident done = new Incident(1, "10:00:00", 1, "FIRE_DETECTED", "High");
+        Incident flying = new Incident(2, "10:01:00", 2, "FIRE_DETECTED", "Low");
+        Incident waiting = new Incident(3, "10:02:00", 3, "DRONE_REQUEST", "Moderate");
+        try (EventJournal journal = new EventJournal(file.getPath(), null)) {
+            journal.append(EventJournal.RECEIVED, 0, done);
+            journal.append(EventJournal.RECEIVED, 0, flying);
+            journal.append(EventJournal.RECEIVED, 0, waiting);
+            journal.append(EventJournal.ASSIGNED, 1, done);
+            journal.append(EventJournal.ASSIGNED, 2, flying);
+            journal.append(EventJournal.COMPLETED, 1, done);
+        }
+        Scheduler scheduler = new Scheduler();
+        scheduler.openJournal(file.getPath());
+        try {
+            assertEquals(1, scheduler.getCompletedIncidents().size());
+            assertEquals(done.getIncidentID(), scheduler.getCompletedIncidents().get(0).getIncidentID());
+            assertEquals(2, scheduler.getPendingIncidents().size());
+            assertTrue(scheduler.getPendingIncidents().stream().anyMatch(i -> i.getIncidentNumber() == 2));
+            assertEquals(7, scheduler.getJournal().append(EventJournal.RECEIVED, 0, flying));
+        } finally {
+            scheduler.getJournal().close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Phi accrual failure detector for drones. Every message from a drone counts as a heartbeat, and the gaps
+ * between a drone's heartbeats give its own update cadence. From that, phi is how unlikely it is that the
+ * drone is still alive given how long it has been quiet. Gaps are taken as exponentially distributed around
+ * their mean, as in Cassandra's detector, so phi = (quiet time - acceptable pause) / (mean gap * ln 10). A
+ * drone is SUSPECT once phi passes {@link #SUSPECT_PHI} and OFFLINE once it passes {@link #OFFLINE_PHI}.
+ * <p>
+ * Only watched drones, the ones holding an incident, are checked. Nothing scans the fleet: each watched
+ * drone has one timer on the wheel set for when its phi will cross the next threshold, and a heartbeat
+ * moves that timer.
+ */
+public class FailureDetector {
+    public static final double SUSPECT_PHI = 3;
+    public static final double OFFLINE_PHI = 8;
+    private static final int WINDOW_SIZE = 32;
+    private static final double LN10 = Math.log(10);
+
+    public enum Health {
+        ALIVE, SUSPECT, OFFLINE
+    }
+
+    /**
+     * Told when a drone's health changes, on the thread that noticed it
+     */
+    public interface Listener {
+        void healthChanged(int droneId, Health health);
+    }
+
+    /**
+     * Heartbeat history of one drone, the last gaps in a ring
+     */
+    private static final class Peer {
+        final long[] gaps = new long[WINDOW_SIZE];
+        int count, next;
+        long sum;
+        long last;
+        boolean watched;
+        Health health = Health.ALIVE;
+        TimerWheel.Timeout timeout;
+    }
+
+    private final TimerWheel timers;
+    private final SimClock clock;
+    private final long initialGapMillis;
+    private final long acceptablePauseMillis;
+    private final Listener listener;
+    private final Map<Integer, Peer> peers = new ConcurrentHashMap<>();
+
+    /**
+     * @param timers wheel the checks run on
+     * @param clock clock heartbeats are timed on
+     * @param initialGapMillis gap assumed for a drone before its own gaps are known, it stays in the window
+     *                         until pushed out by real ones
+     * @param acceptablePauseMillis quiet time that never counts against a drone
+     * @param listener told about health changes
+     */
+    public FailureDetector(TimerWheel timers, SimClock clock, long initialGapMillis, long acceptablePauseMillis,
+                           Listener listener) {
+        this.timers = timers;
+        this.clock = clock;
+        this.initialGapMillis = initialGapMillis;
+        this.acceptablePauseMillis = acceptablePauseMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Records a message from a drone. A drone that was suspected or offline is alive again.
+     */
+    public void heartbeat(int droneId) {
+        Peer peer = peer(droneId);
+        boolean recovered;
+        synchronized (peer) {
+            long now = clock.millis();
+            // Gaps only count while watched, time spent idle says nothing about the update cadence
+            if (peer.watched) record(peer, now - peer.last);
+            peer.last = now;
+            recovered = peer.health != Health.ALIVE;
+            peer.health = Health.ALIVE;
+            if (peer.watched) schedule(droneId, peer);
+        }
+        if (recovered) listener.healthChanged(droneId, Health.ALIVE);
+    }
+
+    /**
+     * Starts checking a drone, its quiet time counts from now
+     */
+    public void watch(int droneId) {
+        Peer peer = peer(droneId);
+        synchronized (peer) {
+            if (peer.watched) return;
+            peer.watched = true;
+            peer.last = clock.millis();
+            schedule(droneId, peer);
+        }
+    }
+
+    /**
+     * Stops checking a drone
+     */
+    public void unwatch(int droneId) {
+        Peer peer = peers.get(droneId);
+        if (peer == null) return;
+        synchronized (peer) {
+            peer.watched = false;
+            if (peer.timeout != null) peer.timeout.cancel();
+            peer.timeout = null;
+        }
+    }
+
+    public Health getHealth(int droneId) {
+        Peer peer = peers.get(droneId);
+        if (peer == null) return Health.ALIVE;
+        synchronized (peer) {
+            return peer.health;
+        }
+    }
+
+    /**
+     * Returns the current phi of a drone, 0 if it is not watched
+     */
+    public double phi(int droneId) {
+        Peer peer = peers.get(droneId);
+        if (peer == null) return 0;
+        synchronized (peer) {
+            return peer.watched ? phi(peer, clock.millis()) : 0;
+        }
+    }
+
+    private Peer peer(int droneId) {
+        return peers.computeIfAbsent(droneId, id -> {
+            Peer peer = new Peer();
+            record(peer, initialGapMillis);
+            return peer;
+        });
+    }
+
+    private static void record(Peer peer, long gap) {
+        if (peer.count == WINDOW_SIZE) {
+            peer.sum -= peer.gaps[peer.next];
+        } else {
+            peer.count++;
+        }
+        peer.gaps[peer.next] = gap;
+        peer.sum += gap;
+        peer.next = (peer.next + 1) % WINDOW_SIZE;
+    }
+
+    private double meanGap(Peer peer) {
+        return Math.max(1, (double) peer.sum / peer.count);
+    }
+
+    private double phi(Peer peer, long now) {
+        long quiet = now - peer.last - acceptablePauseMillis;
+        return quiet <= 0 ? 0 : quiet / (meanGap(peer) * LN10);
+    }
+
+    /**
+     * Sets the drone's timer for when its phi reaches the next threshold
+     */
+    private void schedule(int droneId, Peer peer) {
+        if (peer.timeout != null) peer.timeout.cancel();
+        double threshold = peer.health == Health.ALIVE ? SUSPECT_PHI : OFFLINE_PHI;
+        long due = peer.last + acceptablePauseMillis + (long) Math.ceil(threshold * meanGap(peer) * LN10);
+        peer.timeout = timers.schedule(Math.max(0, due - clock.millis()), () -> check(droneId, peer));
+    }
+
+    private void check(int droneId, Peer peer) {
+        Health changed = null;
+        synchronized (peer) {
+            if (!peer.watched) return;
+            peer.timeout = null;
+            double phi = phi(peer, clock.millis());
+            if (phi >= OFFLINE_PHI) {
+                changed = Health.OFFLINE;
+            } else if (phi >= SUSPECT_PHI && peer.health == Health.ALIVE) {
+                changed = Health.SUSPECT;
+            }
+            if (changed != null) peer.health = changed;
+            if (peer.health != Health.OFFLINE) schedule(droneId, peer);
+        }
+        if (changed != null) listener.healthChanged(droneId, changed);
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class FailureDetectorTest {
+
+    @Test
+    public void testSilentDroneIsSuspectedThenOffline() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 64);
+        List<String> changes = new CopyOnWriteArrayList<>();
+        FailureDetector detector = new FailureDetector(timers, clock, 1000, 0,
+                (id, health) -> changes.add(id + " " + health + "@" + clock.millis()));
+        clock.enter();
+        detector.watch(1);
+        detector.heartbeat(2);
+        for (int i = 0; i < 5; i++) {
+            clock.sleep(1000);
+            detector.heartbeat(1);
+        }
+        // Mean gap 1000ms: suspect after 3 * ln 10 s, offline after 8 * ln 10 s, rounded up to a tick
+        clock.sleep(30_000);
+        assertEquals(List.of("1 SUSPECT@12000", "1 OFFLINE@23500"), changes);
+        assertEquals(FailureDetector.Health.OFFLINE, detector.getHealth(1));
+        assertEquals(FailureDetector.Health.ALIVE, detector.getHealth(2));
+
+        detector.heartbeat(1);
+        assertEquals("1 ALIVE@35000", changes.get(2));
+        detector.unwatch(1);
+        clock.sleep(60_000);
+        assertEquals(3, changes.size());
+        clock.exit();
+        timers.close();
+        clock.close();
+    }
+
+    @Test
+    public void testTimeoutAdaptsToDroneCadence() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 64);
+        List<String> changes = new CopyOnWriteArrayList<>();
+        FailureDetector detector = new FailureDetector(timers, clock, 10_000, 0,
+                (id, health) -> changes.add(id + " " + health));
+        clock.enter();
+        detector.watch(1);
+        // A slow drone, the 10s first guess already covers its 20s gaps and then they become its normal
+        for (int i = 0; i < 40; i++) {
+            clock.sleep(20_000);
+            detector.heartbeat(1);
+        }
+        assertTrue(changes.isEmpty());
+        clock.sleep(30_000);
+        assertTrue(detector.phi(1) < FailureDetector.SUSPECT_PHI);
+        assertTrue(changes.isEmpty());
+        clock.exit();
+        timers.close();
+        clock.close();
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Faults a drone can report to the scheduler, with the description shown to operators and the recovery
+ * the scheduler runs for it
+ */
+public enum FaultType {
+    PACKET_LOSS("ERROR: Drone Connection Lost Via Packet Loss", "Re-establish communication."),
+    STUCK("ERROR: Drone is stuck in flight.", "Initiate return-to-base maneuver."),
+    NOZZLE("ERROR: Drone Nozzle Malfunction", "Force nozzle reset and return to base.");
+
+    private final String description;
+    private final String recovery;
+
+    FaultType(String description, String recovery) {
+        this.description = description;
+        this.recovery = recovery;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns what is done to recover a drone from the fault
+     */
+    public String getRecovery() {
+        return recovery;
+    }
+}
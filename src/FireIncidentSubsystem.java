@@ -4,9 +4,13 @@ import java.util.Scanner;
 
 public class FireIncidentSubsystem implements Runnable {
     private static final int SCHEDULER_PORT = 4000;
+    private static final int OUTBOUND_QUEUE_CAPACITY = 1024;
     private final String csvFile;
     private final InetAddress schedulerAddress;
     private volatile boolean shouldRun = true;
+    private volatile Pacing pacing = Pacing.fixedRate(1 / 3.0);
+    private volatile long sentCount = 0;
+    private volatile int startTime = -1;
 
     /**
      * Constructor for the subsystem
@@ -26,74 +30,83 @@ public class FireIncidentSubsystem implements Runnable {
         return shouldRun;
     }
 
+    /**
+     * Returns how many incidents the last run sent to the scheduler
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Sets how incidents are spaced out, the default is one incident every 3 seconds
+     * @param pacing pacing to use for the next run
+     */
+    public void setPacing(Pacing pacing) {
+        this.pacing = pacing;
+    }
+
+    /**
+     * Sets the time of day to start reading the event file from, earlier incidents are skipped
+     * @param startTime seconds since midnight, -1 to start at the beginning of the file
+     */
+    public void setStartTime(int startTime) {
+        this.startTime = startTime;
+    }
+
     /**
      * Function which is invoked when the thread starts
      */
     @Override
     public void run() {
         if (shouldRun) {
-            readIncidentsFromCSV();
+            IncidentSender sender;
+            try {
+                sender = new IncidentSender(schedulerAddress, SCHEDULER_PORT, OUTBOUND_QUEUE_CAPACITY);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            try {
+                readIncidentsFromCSV(sender);
+            } finally {
+                sender.close();
+            }
+            sentCount = sender.getSentCount();
+            System.out.printf("Sent %d incidents in %d datagrams%n", sentCount, sender.getDatagramCount());
         }
     }
 
     /**
      * Helper function used to read incidents from the csv logs
      */
-    private void readIncidentsFromCSV() {
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
-            String line;
-            br.readLine();
-            while ((line = br.readLine()) != null && shouldRun) {
-                String[] data = line.split(",");
-                if (data.length < 4) continue;
-
-                String time = data[0];
-                int zoneID = Integer.parseInt(data[1]);
-                String eventType = data[2];
-                String severity = data[3];
-
-                Incident incident = new Incident(time, zoneID, eventType, severity);
-
-                System.out.println("Reading report logs from csv");
-                System.out.println("##### Incident Added to scheduler ######");
-                incident.print();
-
-                sendIncidentToScheduler(incident);
-                Thread.sleep(3000);
+    private void readIncidentsFromCSV(IncidentSender sender) {
+        Pacing pacing = this.pacing;
+        boolean verbose = pacing.getMode() != Pacing.Mode.UNTHROTTLED;
+        SimClock clock = SimClock.current();
+        EventFileReader.Event event = new EventFileReader.Event();
+        clock.enter();
+        try (EventFileReader reader = new EventFileReader(csvFile)) {
+            if (startTime >= 0) reader.seek(startTime);
+            while (shouldRun && reader.next(event)) {
+                Incident incident = event.toIncident();
+                pacing.await(event.time);
+
+                if (verbose) {
+                    System.out.println("Reading report logs from csv");
+                    System.out.println("##### Incident Added to scheduler ######");
+                    incident.print();
+                }
+
+                sender.send(incident);
+            }
+            if (reader.getSkippedCount() > 0) {
+                System.out.printf("Skipped %d malformed lines in %s%n", reader.getSkippedCount(), csvFile);
             }
 
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
-        }
-    }
-
-    /**
-     * Helper function to send the incidents to the scheduler via UDP
-     * @param incident
-     */
-    private void sendIncidentToScheduler(Incident incident) {
-        try {
-            DatagramSocket socket = new DatagramSocket();
-
-            String message = String.format("Incident,%d,%d,%d,%s,%s,%d,%s",
-                    incident.getZone(),
-                    incident.getZone() * 10,
-                    incident.getZone() * 5,
-                    incident.getEventType(),
-                    incident.getSeverity(),
-                    incident.getWaterAmountNeeded(),
-                    incident.getTime());
-
-            byte[] buffer = message.getBytes();
-
-            DatagramPacket packet = new DatagramPacket(
-                    buffer, buffer.length, schedulerAddress, SCHEDULER_PORT);
-
-            socket.send(packet);
-            socket.close();
-
-        } catch (IOException e) {
-            e.printStackTrace();
+        } finally {
+            clock.exit();
         }
     }
 
@@ -122,10 +135,20 @@ public class FireIncidentSubsystem implements Runnable {
                 csvPath = "src/resources/Final_event_file.csv";
             }
 
+            System.out.print("Enter pacing, 'rate N' per second, 'replay N' times faster than recorded or 'max' (press Enter for one every 3 s): ");
+            Pacing pacing = Pacing.parse(scanner.nextLine());
+
+            System.out.print("Enter start time as HH:mm:ss (press Enter to start at the beginning of the file): ");
+            String start = scanner.nextLine().trim();
+            int startTime = start.isEmpty() ? -1 : MessageCodec.parseTime(start);
+            if (!start.isEmpty() && startTime < 0) throw new IllegalArgumentException("Start time must be HH:mm:ss: " + start);
+
             System.out.println("Using CSV file: " + csvPath);
             System.out.println("Connecting to scheduler at " + schedulerAddress.getHostAddress());
 
             FireIncidentSubsystem fireSystem = new FireIncidentSubsystem(csvPath, schedulerAddress);
+            fireSystem.setPacing(pacing);
+            fireSystem.setStartTime(startTime);
             Thread fireThread = new Thread(fireSystem);
             fireThread.start();
 
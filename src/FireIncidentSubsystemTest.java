@@ -1,5 +1,6 @@
 import org.junit.Test;
 import java.net.*;
+import java.nio.ByteBuffer;
 import static org.junit.Assert.*;
 
 public class FireIncidentSubsystemTest {
@@ -14,8 +15,9 @@ public class FireIncidentSubsystemTest {
         byte[] buffer = new byte[1024];
         DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
         receiver.receive(packet);
-        String msg = new String(packet.getData(), 0, packet.getLength());
-        assertTrue("First message should start with 'Incident'", msg.startsWith("Incident"));
+        MessageCodec.Message msg = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), msg));
+        assertEquals("First message should be an incident", MessageCodec.INCIDENT, msg.type);
         fireSystem.stop();
         receiver.close();
     }
@@ -1,4 +1,4 @@
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.time.LocalDateTime;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
@@ -9,19 +9,36 @@ public class Incident {
     private String eventType;
     private String severity;
     private int waterAmountNeeded;
-    private String incidentID;
+    private final long incidentNumber;
+    private final String incidentID;
     private LocalDateTime creationTime;
     private LocalDateTime completionTime;
+    private volatile long queuedTime = 0;
+    private int x = -1;
+    private int y = -1;
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public Incident(String time, int zone, String eventType, String severity) {
+        this(ThreadLocalRandom.current().nextLong(), time, zone, eventType, severity);
+    }
+
+    /**
+     * Creates an incident with a known id, used when an incident is rebuilt from a message
+     * @param incidentNumber id of the incident
+     * @param time time of day the incident was reported
+     * @param zone zone id
+     * @param eventType event type
+     * @param severity severity
+     */
+    public Incident(long incidentNumber, String time, int zone, String eventType, String severity) {
         this.time = time;
         this.zone = zone;
         this.eventType = eventType;
         this.severity = severity;
         this.waterAmountNeeded = calculateWaterNeeded(severity);
-        this.incidentID = UUID.randomUUID().toString().substring(0,8);
-        this.creationTime = LocalDateTime.now();
+        this.incidentNumber = incidentNumber;
+        this.incidentID = formatId(incidentNumber);
+        this.creationTime = SimClock.current().now();
     }
 
     private int calculateWaterNeeded(String severity) {
@@ -37,6 +54,17 @@ public class Incident {
         return incidentID;
     }
 
+    /**
+     * Returns the id string of an incident number, as {@link #getIncidentID()} gives it
+     */
+    static String formatId(long incidentNumber) {
+        return String.format("%016x", incidentNumber);
+    }
+
+    public long getIncidentNumber() {
+        return incidentNumber;
+    }
+
     public void print() {
         System.out.println("Time: " + time);
         System.out.println("Zone Id: " + zone);
@@ -69,8 +97,42 @@ public class Incident {
         this.waterAmountNeeded = waterAmount;
     }
 
+    /**
+     * Sets the coordinates the incident was reported at
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public void setLocation(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public boolean hasLocation() {
+        return x >= 0 && y >= 0;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Records when the incident first entered the dispatch queue, later calls are ignored
+     * @param millis time in epoch milliseconds
+     */
+    public void markQueued(long millis) {
+        if (queuedTime == 0) queuedTime = millis;
+    }
+
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
     public void markAsCompleted() {
-        this.completionTime = LocalDateTime.now();
+        this.completionTime = SimClock.current().now();
     }
 
     public LocalDateTime getCreationTime() {
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends incident reports to the scheduler over one persistent channel. Incidents are put on an outbound
+ * queue and a background thread packs as many as fit into one datagram before sending it.
+ */
+public class IncidentSender implements AutoCloseable {
+    /** Keeps datagrams under a typical Ethernet MTU after IP and UDP headers. */
+    static final int MAX_DATAGRAM_SIZE = 1400;
+
+    private final BlockingQueue<Incident> outbound;
+    private final DatagramChannel channel;
+    private final InetSocketAddress target;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final Thread senderThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong datagrams = new AtomicLong();
+
+    public IncidentSender(InetAddress schedulerAddress, int port, int queueCapacity) throws IOException {
+        this.outbound = new ArrayBlockingQueue<>(queueCapacity);
+        this.channel = DatagramChannel.open();
+        this.target = new InetSocketAddress(schedulerAddress, port);
+        this.senderThread = new Thread(this::drain, "incident-sender");
+        this.senderThread.start();
+    }
+
+    /**
+     * Queues an incident, waiting for space if the queue is full
+     * @param incident incident to send
+     */
+    public void send(Incident incident) throws InterruptedException {
+        outbound.put(incident);
+    }
+
+    /**
+     * Queues an incident if there is space, otherwise counts it as dropped
+     * @param incident incident to send
+     * @return false if the incident was dropped
+     */
+    public boolean trySend(Incident incident) {
+        if (outbound.offer(incident)) return true;
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getDatagramCount() {
+        return datagrams.get();
+    }
+
+    /**
+     * Function run by the sender thread, packs queued incidents into datagrams until closed and drained
+     */
+    private void drain() {
+        int incidentSize = MessageCodec.messageSize(MessageCodec.INCIDENT);
+        try {
+            while (running || !outbound.isEmpty()) {
+                Incident next = outbound.poll(100, TimeUnit.MILLISECONDS);
+                if (next == null) continue;
+                buffer.clear();
+                int count = 0;
+                while (next != null) {
+                    MessageCodec.encodeIncident(buffer, next);
+                    count++;
+                    next = buffer.remaining() >= incidentSize ? outbound.poll() : null;
+                }
+                buffer.flip();
+                channel.send(buffer, target);
+                sent.addAndGet(count);
+                datagrams.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        }
+    }
+
+    /**
+     * Sends everything still queued, then closes the channel
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            senderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+}
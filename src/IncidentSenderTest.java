@@ -0,0 +1,81 @@
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IncidentSenderTest {
+
+    @Test
+    public void testPacksDropsAndFlushesOnClose() throws Exception {
+        InetAddress localhost = InetAddress.getLocalHost();
+        int capacity = 200;
+        int perDatagram = IncidentSender.MAX_DATAGRAM_SIZE / MessageCodec.messageSize(MessageCodec.INCIDENT);
+        CountDownLatch encoding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the sender thread inside its first datagram so the queue can be filled behind it
+        Incident blocker = new Incident("12:00:00", 1, "FIRE_DETECTED", "High") {
+            @Override
+            public int getX() {
+                encoding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getX();
+            }
+        };
+
+        try (DatagramSocket scheduler = new DatagramSocket(0, localhost)) {
+            scheduler.setSoTimeout(3000);
+            IncidentSender sender = new IncidentSender(localhost, scheduler.getLocalPort(), capacity);
+            Set<String> expected = new HashSet<>();
+            assertTrue(sender.trySend(blocker));
+            expected.add(blocker.getIncidentID());
+            assertTrue(encoding.await(3, TimeUnit.SECONDS));
+
+            for (int i = 0; i < capacity; i++) {
+                Incident incident = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+                assertTrue(sender.trySend(incident));
+                expected.add(incident.getIncidentID());
+            }
+            for (int i = 0; i < 5; i++) {
+                assertFalse(sender.trySend(new Incident("12:00:00", 1, "FIRE_DETECTED", "High")));
+            }
+            assertEquals(5, sender.getDroppedCount());
+
+            release.countDown();
+            sender.close();
+            assertEquals(capacity + 1, sender.getSentCount());
+            int datagrams = (capacity + 1 + perDatagram - 1) / perDatagram;
+            assertEquals(datagrams, sender.getDatagramCount());
+
+            byte[] buffer = new byte[2048];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            MessageCodec.Message message = new MessageCodec.Message();
+            for (int d = 0; d < datagrams; d++) {
+                packet.setLength(buffer.length);
+                scheduler.receive(packet);
+                assertTrue(packet.getLength() <= IncidentSender.MAX_DATAGRAM_SIZE);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, packet.getLength());
+                int count = 0;
+                while (MessageCodec.decode(data, message)) {
+                    assertEquals(MessageCodec.INCIDENT, message.type);
+                    assertTrue(expected.remove(message.toIncident().getIncidentID()));
+                    count++;
+                }
+                // Every datagram is full except the one carrying what was left
+                if (d < datagrams - 1) assertEquals(perDatagram, count);
+            }
+            assertTrue(expected.isEmpty());
+        }
+    }
+}
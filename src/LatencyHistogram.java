@@ -0,0 +1,82 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with log-linear buckets in the style of HdrHistogram. Values below 128 have
+ * their own bucket, above that every power of two is split into 64 buckets, so a recorded value is off by
+ * less than 1.6% anywhere in the range of a long. Recording is a few atomic adds and never allocates, so it
+ * can be called from the network and dispatch threads.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (62 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns the value at a percentile, the top of the bucket it falls in capped at the largest value recorded
+     * @param percentile between 0 and 100
+     * @return value at the percentile, 0 if nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) total += counts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValueIn(i), getMax());
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_BUCKETS) return bucket;
+        int k = bucket - LINEAR_BUCKETS;
+        int shift = k / SUB_BUCKETS + 1;
+        long subBucket = k % SUB_BUCKETS + SUB_BUCKETS;
+        long top = ((subBucket + 1) << shift) - 1;
+        return top < 0 ? Long.MAX_VALUE : top;
+    }
+}
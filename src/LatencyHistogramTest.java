@@ -0,0 +1,39 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) histogram.record(v * 1000);
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertEquals(50_000_000, histogram.valueAtPercentile(50), 50_000_000 * 0.016);
+        assertEquals(99_000_000, histogram.valueAtPercentile(99), 99_000_000 * 0.016);
+        assertEquals(100_000_000L, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        assertEquals(0, histogram.valueAtPercentile(1));
+        assertEquals(3, histogram.valueAtPercentile(50));
+        assertEquals(7, histogram.valueAtPercentile(99));
+        assertEquals(10, histogram.getSum());
+    }
+
+    @Test
+    public void testBucketsCoverLongRange() {
+        for (long v : new long[]{127, 128, 129, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) >= v);
+            if (bucket > 0) assertTrue(LatencyHistogram.highestValueIn(bucket - 1) < v);
+        }
+        assertEquals(0, new LatencyHistogram().valueAtPercentile(99));
+    }
+}
@@ -0,0 +1,298 @@
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Generates synthetic incidents and sends them to the scheduler's incident port through an
+ * {@link IncidentSender}, the same path the fire incident subsystem uses. Arrival times come from an
+ * {@link ArrivalProcess}, zones are drawn uniformly or with a Zipf skew towards the first zones of the zone
+ * file, and severities and event types follow configurable mixes. Incidents that do not fit in the
+ * sender's queue are dropped and counted instead of slowing the generator down, so the achieved rate and
+ * the drops show where the system stops keeping up.
+ */
+public class LoadGenerator implements Runnable {
+    private static final int SCHEDULER_PORT = 4000;
+    private static final int OUTBOUND_QUEUE_CAPACITY = 8192;
+    private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+    private static final String[] SEVERITIES = {"Low", "Moderate", "High"};
+
+    private final InetAddress schedulerAddress;
+    private final List<Zone> zones;
+    private final ArrivalProcess arrivals;
+    private int port = SCHEDULER_PORT;
+    private double[] zoneCdf;
+    private double[] severityCdf = cumulative(new double[]{1, 1, 1});
+    private double fireFraction = 0.5;
+    private long durationMillis = 60_000;
+    private long maxIncidents = Long.MAX_VALUE;
+    private long seed = System.nanoTime();
+    private volatile boolean shouldRun = true;
+
+    private volatile long generated = 0;
+    private volatile long sent = 0;
+    private volatile long dropped = 0;
+    private volatile long datagrams = 0;
+    private volatile double achievedRate = 0;
+
+    /**
+     * @param schedulerAddress address of the scheduler
+     * @param zones zones incidents are placed in
+     * @param arrivals arrival process deciding when incidents are sent
+     */
+    public LoadGenerator(InetAddress schedulerAddress, List<Zone> zones, ArrivalProcess arrivals) {
+        if (zones.isEmpty()) throw new IllegalArgumentException("Need at least one zone");
+        this.schedulerAddress = schedulerAddress;
+        this.zones = List.copyOf(zones);
+        this.arrivals = arrivals;
+        this.zoneCdf = zoneCdf(zones.size(), 0);
+    }
+
+    void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Sets how zones are chosen, zone i of the zone file gets weight 1 / (i + 1)^skew
+     * @param skew 0 for uniform, around 1 for a few busy zones
+     */
+    public void setZoneSkew(double skew) {
+        zoneCdf = zoneCdf(zones.size(), skew);
+    }
+
+    /**
+     * Sets the relative weights of Low, Moderate and High incidents
+     */
+    public void setSeverityMix(double low, double moderate, double high) {
+        severityCdf = cumulative(new double[]{low, moderate, high});
+    }
+
+    /**
+     * Sets the fraction of incidents that are FIRE_DETECTED, the rest are DRONE_REQUEST
+     */
+    public void setFireFraction(double fireFraction) {
+        if (fireFraction < 0 || fireFraction > 1) throw new IllegalArgumentException("Fraction must be between 0 and 1");
+        this.fireFraction = fireFraction;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public void setMaxIncidents(long maxIncidents) {
+        this.maxIncidents = maxIncidents;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Starts generating on a new thread
+     * @return the generator thread, which ends when the run is over
+     */
+    public Thread start() {
+        Thread thread = new Thread(this, "load-generator");
+        thread.start();
+        return thread;
+    }
+
+    public void stop() {
+        shouldRun = false;
+    }
+
+    public long getGeneratedCount() {
+        return generated;
+    }
+
+    public long getSentCount() {
+        return sent;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public long getDatagramCount() {
+        return datagrams;
+    }
+
+    /**
+     * Returns the incidents per second sent over the whole run, or over the last second while running
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    /**
+     * Function which is invoked when the thread starts. Generates incidents until the duration or the
+     * incident limit is reached, printing the achieved rate and drops every second.
+     */
+    @Override
+    public void run() {
+        SimClock clock = SimClock.current();
+        Random random = new Random(seed);
+        IncidentSender sender;
+        try {
+            sender = new IncidentSender(schedulerAddress, port, OUTBOUND_QUEUE_CAPACITY);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        long start = clock.nanos();
+        long end = durationMillis * 1_000_000;
+        long lastReport = 0;
+        long reportedSent = 0;
+        long next = 0;
+        clock.enter();
+        try {
+            while (shouldRun && generated < maxIncidents) {
+                next = arrivals.next(next, random);
+                if (next > end) break;
+                long delay = start + next - clock.nanos();
+                if (delay > 0) clock.sleepNanos(delay);
+
+                sender.trySend(nextIncident(random, clock));
+                generated++;
+
+                long elapsed = clock.nanos() - start;
+                if (elapsed - lastReport >= REPORT_INTERVAL_NANOS) {
+                    sent = sender.getSentCount();
+                    dropped = sender.getDroppedCount();
+                    achievedRate = (sent - reportedSent) * 1e9 / (elapsed - lastReport);
+                    System.out.printf("[load] t=%4ds generated=%d sent=%d dropped=%d rate=%.1f/s%n",
+                            elapsed / 1_000_000_000L, generated, sent, dropped, achievedRate);
+                    reportedSent = sent;
+                    lastReport = elapsed;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clock.exit();
+            sender.close();
+        }
+        sent = sender.getSentCount();
+        dropped = sender.getDroppedCount();
+        datagrams = sender.getDatagramCount();
+        long elapsed = Math.max(1, clock.nanos() - start);
+        achievedRate = sent * 1e9 / elapsed;
+        System.out.println("\n================== LOAD GENERATOR SUMMARY ==================");
+        System.out.printf("Target rate:      %.1f incidents/s (%s)\n", arrivals.getRatePerSecond(), arrivals.getModel());
+        System.out.printf("Achieved rate:    %.1f incidents/s over %.1f s\n", achievedRate, elapsed / 1e9);
+        System.out.printf("Generated:        %d\n", generated);
+        System.out.printf("Sent:             %d in %d datagrams\n", sent, datagrams);
+        System.out.printf("Dropped:          %d\n", dropped);
+        System.out.println("============================================================\n");
+    }
+
+    /**
+     * Builds the next incident, placed at a random point in a zone drawn from the zone distribution
+     */
+    Incident nextIncident(Random random, SimClock clock) {
+        Zone zone = zones.get(pick(zoneCdf, random));
+        String severity = SEVERITIES[pick(severityCdf, random)];
+        String eventType = random.nextDouble() < fireFraction ? "FIRE_DETECTED" : "DRONE_REQUEST";
+        String time = MessageCodec.formatTime(clock.now().toLocalTime().toSecondOfDay());
+        Incident incident = new Incident(time, zone.getId(), eventType, severity);
+        incident.setLocation(randomBetween(zone.getStartX(), zone.getEndX(), random),
+                randomBetween(zone.getStartY(), zone.getEndY(), random));
+        return incident;
+    }
+
+    private static int randomBetween(int a, int b, Random random) {
+        int lo = Math.min(a, b), hi = Math.max(a, b);
+        return hi > lo ? lo + random.nextInt(hi - lo) : lo;
+    }
+
+    private static int pick(double[] cdf, Random random) {
+        double u = random.nextDouble() * cdf[cdf.length - 1];
+        int lo = 0, hi = cdf.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cdf[mid] > u) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private static double[] zoneCdf(int zoneCount, double skew) {
+        double[] weights = new double[zoneCount];
+        for (int i = 0; i < weights.length; i++) weights[i] = 1 / Math.pow(i + 1, skew);
+        return cumulative(weights);
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cdf = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) throw new IllegalArgumentException("Weights must not be negative");
+            total += weights[i];
+            cdf[i] = total;
+        }
+        if (total <= 0) throw new IllegalArgumentException("At least one weight must be positive");
+        return cdf;
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== LOAD GENERATOR STARTING ===");
+        Scanner scanner = new Scanner(System.in);
+        try {
+            System.out.print("Enter Scheduler IP address (press Enter for localhost): ");
+            String ipAddress = scanner.nextLine().trim();
+            InetAddress schedulerAddress = ipAddress.isEmpty() ? InetAddress.getLocalHost() : InetAddress.getByName(ipAddress);
+
+            System.out.print("Enter zones file path (press Enter for default 'src/resources/Final_zone_file.csv'): ");
+            String zonesPath = scanner.nextLine().trim();
+            if (zonesPath.isEmpty()) zonesPath = "src/resources/Final_zone_file.csv";
+
+            System.out.print("Enter arrival model, poisson, bursty or diurnal (press Enter for poisson): ");
+            String model = scanner.nextLine().trim();
+            ArrivalProcess.Model arrivalModel = model.isEmpty() ? ArrivalProcess.Model.POISSON
+                    : ArrivalProcess.Model.valueOf(model.toUpperCase());
+
+            System.out.print("Enter target rate in incidents per second (press Enter for 10): ");
+            double rate = parseOr(scanner.nextLine(), 10);
+
+            System.out.print("Enter duration in seconds (press Enter for 60): ");
+            long durationMillis = (long) (parseOr(scanner.nextLine(), 60) * 1000);
+
+            System.out.print("Enter zone skew, 0 for uniform (press Enter for 0): ");
+            double skew = parseOr(scanner.nextLine(), 0);
+
+            System.out.print("Enter severity mix as low,moderate,high weights (press Enter for 1,1,1): ");
+            String mix = scanner.nextLine().trim();
+
+            System.out.print("Enter fraction of FIRE_DETECTED incidents (press Enter for 0.5): ");
+            double fireFraction = parseOr(scanner.nextLine(), 0.5);
+
+            ArrivalProcess arrivals = switch (arrivalModel) {
+                case POISSON -> ArrivalProcess.poisson(rate);
+                case BURSTY -> ArrivalProcess.bursty(rate, 5, 2000);
+                // One day compressed into the run, peaking half way through
+                case DIURNAL -> ArrivalProcess.diurnal(rate, 0.8, durationMillis, durationMillis / 2);
+            };
+            LoadGenerator generator = new LoadGenerator(schedulerAddress, ZoneTable.readZoneFile(zonesPath), arrivals);
+            generator.setDurationMillis(durationMillis);
+            generator.setZoneSkew(skew);
+            generator.setFireFraction(fireFraction);
+            if (!mix.isEmpty()) {
+                String[] weights = mix.split(",");
+                generator.setSeverityMix(Double.parseDouble(weights[0].trim()), Double.parseDouble(weights[1].trim()),
+                        Double.parseDouble(weights[2].trim()));
+            }
+
+            generator.start().join();
+        } catch (Exception e) {
+            System.err.println("Error running load generator: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            scanner.close();
+        }
+    }
+
+    private static double parseOr(String text, double fallback) {
+        text = text.trim();
+        return text.isEmpty() ? fallback : Double.parseDouble(text);
+    }
+}
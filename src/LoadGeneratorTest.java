@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void testIncidentsArriveOnSchedulerPort() throws Exception {
+        InetAddress localhost = InetAddress.getLocalHost();
+        List<Zone> zones = List.of(new Zone(1, 0, 0, 100, 100), new Zone(2, 100, 0, 200, 100));
+        try (DatagramSocket scheduler = new DatagramSocket(0, localhost)) {
+            scheduler.setSoTimeout(3000);
+            LoadGenerator generator = new LoadGenerator(localhost, zones, ArrivalProcess.poisson(1000));
+            generator.setPort(scheduler.getLocalPort());
+            generator.setMaxIncidents(200);
+            generator.setSeverityMix(0, 0, 1);
+            generator.setFireFraction(1);
+            generator.setSeed(7);
+            Thread thread = generator.start();
+
+            byte[] buffer = new byte[2048];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            MessageCodec.Message message = new MessageCodec.Message();
+            int received = 0;
+            while (received < 200) {
+                packet.setLength(buffer.length);
+                scheduler.receive(packet);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, packet.getLength());
+                while (MessageCodec.decode(data, message)) {
+                    assertEquals(MessageCodec.INCIDENT, message.type);
+                    assertEquals("High", message.severityName());
+                    assertEquals("FIRE_DETECTED", message.eventTypeName());
+                    Zone zone = zones.get(message.zone - 1);
+                    assertTrue(zone.contains(message.x, message.y));
+                    received++;
+                }
+            }
+            thread.join(3000);
+            assertEquals(200, generator.getGeneratedCount());
+            assertEquals(200, generator.getSentCount() + generator.getDroppedCount());
+        }
+    }
+}
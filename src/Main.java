@@ -1,12 +1,108 @@
+import java.net.InetAddress;
+import java.util.Scanner;
+
 /**
  * This is the main class simulating the beginning of the Drone system simulation. The user is prompted
- * how many drones they need.
+ * how many drones they need. The scheduler, the drones and the fire incident subsystem all run in this
+ * process, either in real time or as a discrete-event simulation on a {@link VirtualClock}. The drones
+ * run on a {@link DroneHost}, so large fleets only use one socket.
  */
 public class Main {
+    private static final String ZONE_FILE = "src/resources/Final_zone_file.csv";
+    private static final String EVENT_FILE = "src/resources/Final_event_file.csv";
+    /** Real time with nothing happening after which a virtual run with no incidents left is finished. */
+    private static final long QUIESCENT_NANOS = 1_000_000_000L;
+    /** Real time with nothing happening after which a virtual run with incidents left is stuck. */
+    private static final long STALLED_NANOS = 10_000_000_000L;
+
     /**
      *Start of all of the treads
      * @param args
      */
     public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        try {
+            System.out.print("Enter number of drones: ");
+            int numDrones = Integer.parseInt(scanner.nextLine().trim());
+
+            System.out.print("Enter CSV file path (press Enter for default '" + EVENT_FILE + "'): ");
+            String csvPath = scanner.nextLine().trim();
+            if (csvPath.isEmpty()) csvPath = EVENT_FILE;
+
+            System.out.print("Enter pacing, 'rate N' per second, 'replay N' times faster than recorded or 'max' (press Enter for one every 3 s): ");
+            Pacing pacing = Pacing.parse(scanner.nextLine());
+
+            System.out.print("Run as a discrete-event simulation on a virtual clock? (y/N): ");
+            boolean simulate = scanner.nextLine().trim().equalsIgnoreCase("y");
+
+            VirtualClock virtualClock = null;
+            if (simulate) {
+                virtualClock = new VirtualClock();
+                SimClock.install(virtualClock);
+            }
+            long wallStart = System.nanoTime();
+
+            InetAddress localhost = InetAddress.getLocalHost();
+            Scheduler scheduler = new Scheduler();
+            scheduler.loadZones(ZONE_FILE);
+            scheduler.start();
+            MetricsServer metricsServer = Scheduler.startMetrics(scheduler);
+
+            DroneHost droneHost = new DroneHost(localhost, 0);
+            for (int i = 0; i < numDrones; i++) {
+                droneHost.addDrone(i + 1, 0, 0);
+            }
+
+            FireIncidentSubsystem fireSystem = new FireIncidentSubsystem(csvPath, localhost);
+            fireSystem.setPacing(pacing);
+            Thread fireThread = new Thread(fireSystem);
+            fireThread.start();
+
+            if (simulate) {
+                fireThread.join();
+                while (scheduler.getCompletedCount() < fireSystem.getSentCount()) {
+                    // A quiet clock only means the run is over once the scheduler has nothing left either
+                    boolean outstanding = !scheduler.getPendingIncidents().isEmpty()
+                            || !scheduler.getActiveIncidentsByZone().isEmpty();
+                    if (virtualClock.isQuiescent(outstanding ? STALLED_NANOS : QUIESCENT_NANOS)) break;
+                    Thread.sleep(100);
+                }
+            } else {
+                System.out.println("Simulation is now running. Press Enter to stop.");
+                scanner.nextLine();
+                fireSystem.stop();
+                fireThread.join();
+            }
+
+            droneHost.close();
+            scheduler.stop();
+            if (metricsServer != null) metricsServer.close();
+            if (virtualClock != null) virtualClock.close();
+
+            System.out.println("\n================== SIMULATION SUMMARY ==================");
+            System.out.printf("Incidents completed: %d of %d\n",
+                    scheduler.getCompletedCount(), fireSystem.getSentCount());
+            System.out.println(scheduler.getElapsedTimeFormatted());
+            SchedulerMetrics metrics = scheduler.getMetrics();
+            System.out.printf("Dispatch latency:    p50 %.1f ms, p99 %.1f ms\n",
+                    metrics.getDispatchLatencyP50Millis(), metrics.getDispatchLatencyP99Millis());
+            System.out.printf("Response latency:    p50 %.1f s, p99 %.1f s\n",
+                    metrics.getResponseLatencyP50Millis() / 1000, metrics.getResponseLatencyP99Millis() / 1000);
+            System.out.printf("Reassignments: %d, reroutes: %d, faults: %d\n",
+                    metrics.getReassignments(), metrics.getReroutes(), metrics.getFaults());
+            System.out.printf("Wall clock time:     %.1f s\n", (System.nanoTime() - wallStart) / 1e9);
+            System.out.println("========================================================\n");
+            long shortfall = fireSystem.getSentCount() - scheduler.getCompletedCount();
+            if (shortfall > 0) {
+                System.out.printf("RUN INCOMPLETE: %d incidents not completed, %d still pending, active by zone %s\n",
+                        shortfall, scheduler.getPendingIncidents().size(), scheduler.getActiveIncidentsByZone());
+            }
+            // Drones still flying home are blocked on the stopped clock
+            if (simulate) System.exit(shortfall > 0 ? 1 : 0);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            scanner.close();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,341 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary wire format shared by the scheduler, the drones and the fire incident subsystem. Every message
+ * starts with a version byte and a type byte followed by a fixed layout body, so a datagram can be encoded
+ * into and decoded from a reused {@link ByteBuffer} without creating any objects.
+ *
+ * <pre>
+ * INCIDENT          incident block
+ * ASSIGN            droneId, seq, incident block
+ * STATUS            droneId, x, y, state
+ * COMPLETE          droneId, seq, incident block
+ * REASSIGN          droneId, seq, incident block
+ * FAULT             droneId, fault type
+ * RESET_COUNTDOWN   droneId
+ * ACK               droneId, seq, ack status
+ *
+ * incident block    incidentId, zone, x, y, eventType, severity, water, time of day in seconds
+ * </pre>
+ * The incidentId is 8 bytes and ints are 4 bytes, big endian. eventType, severity, state, fault type and ack
+ * status are 1 byte codes.
+ * ASSIGN, COMPLETE and REASSIGN carry the sender's sequence number and are answered with an ACK for it,
+ * see {@link ReliableLink}. The droneId of an ACK is the drone's in both directions.
+ */
+public final class MessageCodec {
+    public static final byte VERSION = 3;
+
+    public static final byte INCIDENT = 1;
+    public static final byte ASSIGN = 2;
+    public static final byte STATUS = 3;
+    public static final byte COMPLETE = 4;
+    public static final byte REASSIGN = 5;
+    public static final byte FAULT = 6;
+    public static final byte RESET_COUNTDOWN = 7;
+    public static final byte ACK = 8;
+
+    /** Ack status: the message was taken */
+    public static final byte ACK_OK = 0;
+    /** Ack status: the drone is busy and did not take the assignment */
+    public static final byte ACK_BUSY = 1;
+
+    /** Largest encoded message, buffers of this size can hold any message. */
+    public static final int MAX_MESSAGE_SIZE = 64;
+
+    private static final int HEADER_SIZE = 2;
+    static final int INCIDENT_BLOCK_SIZE = 8 + 3 * 4 + 1 + 1 + 4 + 4;
+
+    private static final String UNKNOWN = "UNKNOWN";
+    private static final String[] EVENT_TYPES = {UNKNOWN, "FIRE_DETECTED", "DRONE_REQUEST"};
+    private static final String[] SEVERITIES = {UNKNOWN, "Low", "Moderate", "High"};
+    private static final DroneSubsystem.DroneState[] STATES = DroneSubsystem.DroneState.values();
+    private static final FaultType[] FAULTS = FaultType.values();
+    private static final String[] TIMES = new String[24 * 60 * 60];
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Holder for a decoded message. Reuse one instance per receive loop.
+     */
+    public static final class Message {
+        public byte type;
+        public int droneId;
+        public long incidentId;
+        public int zone;
+        public int x;
+        public int y;
+        public byte eventType;
+        public byte severity;
+        public int water;
+        public int time;
+        public byte state;
+        public byte fault;
+        public int seq;
+        public byte ackStatus;
+
+        public String eventTypeName() {
+            return MessageCodec.eventTypeName(eventType);
+        }
+
+        public String severityName() {
+            return MessageCodec.severityName(severity);
+        }
+
+        public String timeString() {
+            return formatTime(time);
+        }
+
+        public String stateName() {
+            return state >= 0 && state < STATES.length ? STATES[state].name() : UNKNOWN;
+        }
+
+        public FaultType faultType() {
+            return fault >= 0 && fault < FAULTS.length ? FAULTS[fault] : null;
+        }
+
+        /**
+         * Builds the incident carried by an INCIDENT, ASSIGN, COMPLETE or REASSIGN message
+         * @return new incident with the id, location and water amount from the message
+         */
+        public Incident toIncident() {
+            Incident incident = new Incident(incidentId, timeString(), zone, eventTypeName(), severityName());
+            incident.setWaterAmountNeeded(water);
+            incident.setLocation(x, y);
+            return incident;
+        }
+    }
+
+    public static void encodeIncident(ByteBuffer buf, Incident incident) {
+        header(buf, INCIDENT);
+        incidentBlock(buf, incident, incident.getX(), incident.getY());
+    }
+
+    public static void encodeAssign(ByteBuffer buf, int droneId, int seq, Incident incident, int targetX, int targetY) {
+        header(buf, ASSIGN);
+        buf.putInt(droneId);
+        buf.putInt(seq);
+        incidentBlock(buf, incident, targetX, targetY);
+    }
+
+    public static void encodeStatus(ByteBuffer buf, int droneId, int x, int y, DroneSubsystem.DroneState state) {
+        header(buf, STATUS);
+        buf.putInt(droneId);
+        buf.putInt(x);
+        buf.putInt(y);
+        buf.put((byte) state.ordinal());
+    }
+
+    public static void encodeComplete(ByteBuffer buf, int droneId, int seq, Incident incident) {
+        header(buf, COMPLETE);
+        buf.putInt(droneId);
+        buf.putInt(seq);
+        incidentBlock(buf, incident, incident.getX(), incident.getY());
+    }
+
+    public static void encodeReassign(ByteBuffer buf, int droneId, int seq, Incident incident) {
+        header(buf, REASSIGN);
+        buf.putInt(droneId);
+        buf.putInt(seq);
+        incidentBlock(buf, incident, incident.getX(), incident.getY());
+    }
+
+    public static void encodeFault(ByteBuffer buf, int droneId, FaultType fault) {
+        header(buf, FAULT);
+        buf.putInt(droneId);
+        buf.put((byte) fault.ordinal());
+    }
+
+    public static void encodeResetCountdown(ByteBuffer buf, int droneId) {
+        header(buf, RESET_COUNTDOWN);
+        buf.putInt(droneId);
+    }
+
+    public static void encodeAck(ByteBuffer buf, int droneId, int seq, byte status) {
+        header(buf, ACK);
+        buf.putInt(droneId);
+        buf.putInt(seq);
+        buf.put(status);
+    }
+
+    /**
+     * Decodes the next message in a buffer and advances its position past it
+     * @param buf buffer positioned at the start of a message
+     * @param out holder that receives the fields
+     * @return false if the buffer holds no complete message of a known type and version
+     */
+    public static boolean decode(ByteBuffer buf, Message out) {
+        if (buf.remaining() < HEADER_SIZE) return false;
+        int start = buf.position();
+        if (buf.get() != VERSION) {
+            buf.position(start);
+            return false;
+        }
+        byte type = buf.get();
+        int bodySize = bodySize(type);
+        if (bodySize < 0 || buf.remaining() < bodySize) {
+            buf.position(start);
+            return false;
+        }
+        out.type = type;
+        switch (type) {
+            case INCIDENT:
+                out.droneId = 0;
+                readIncidentBlock(buf, out);
+                break;
+            case ASSIGN:
+            case COMPLETE:
+            case REASSIGN:
+                out.droneId = buf.getInt();
+                out.seq = buf.getInt();
+                readIncidentBlock(buf, out);
+                break;
+            case STATUS:
+                out.droneId = buf.getInt();
+                out.x = buf.getInt();
+                out.y = buf.getInt();
+                out.state = buf.get();
+                break;
+            case FAULT:
+                out.droneId = buf.getInt();
+                out.fault = buf.get();
+                break;
+            case RESET_COUNTDOWN:
+                out.droneId = buf.getInt();
+                break;
+            case ACK:
+                out.droneId = buf.getInt();
+                out.seq = buf.getInt();
+                out.ackStatus = buf.get();
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the encoded size of a message type including its header, or -1 for an unknown type
+     */
+    public static int messageSize(byte type) {
+        int body = bodySize(type);
+        return body < 0 ? -1 : HEADER_SIZE + body;
+    }
+
+    /**
+     * Returns the body size of a message type, or -1 for an unknown type
+     */
+    static int bodySize(byte type) {
+        switch (type) {
+            case INCIDENT: return INCIDENT_BLOCK_SIZE;
+            case ASSIGN:
+            case COMPLETE:
+            case REASSIGN: return 4 + 4 + INCIDENT_BLOCK_SIZE;
+            case STATUS: return 4 + 4 + 4 + 1;
+            case FAULT: return 4 + 1;
+            case RESET_COUNTDOWN: return 4;
+            case ACK: return 4 + 4 + 1;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Returns the event type with the given code, or UNKNOWN
+     */
+    static String eventTypeName(byte code) {
+        return code >= 0 && code < EVENT_TYPES.length ? EVENT_TYPES[code] : UNKNOWN;
+    }
+
+    /**
+     * Returns the severity with the given code, or UNKNOWN
+     */
+    static String severityName(byte code) {
+        return code >= 0 && code < SEVERITIES.length ? SEVERITIES[code] : UNKNOWN;
+    }
+
+    /**
+     * Returns the code of an event type, unknown event types map to 0
+     */
+    static byte eventTypeCode(String eventType) {
+        if (eventType == null) return 0;
+        switch (eventType) {
+            case "FIRE_DETECTED": return 1;
+            case "DRONE_REQUEST": return 2;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Returns the code of a severity, Medium is treated as Moderate and unknown severities map to 0
+     */
+    static byte severityCode(String severity) {
+        switch (DispatchQueue.severityRank(severity)) {
+            case 1: return 1;
+            case 2: return 2;
+            case 3: return 3;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Parses a HH:mm:ss time of day into seconds without creating any objects
+     * @return seconds since midnight or -1 if the time is not in that format
+     */
+    static int parseTime(String time) {
+        if (time == null || time.length() != 8 || time.charAt(2) != ':' || time.charAt(5) != ':') return -1;
+        int h = twoDigits(time, 0), m = twoDigits(time, 3), s = twoDigits(time, 6);
+        if (h < 0 || h > 23 || m < 0 || m > 59 || s < 0 || s > 59) return -1;
+        return h * 3600 + m * 60 + s;
+    }
+
+    /**
+     * Formats seconds since midnight as HH:mm:ss, each time is formatted once and then cached
+     */
+    static String formatTime(int seconds) {
+        if (seconds < 0 || seconds >= TIMES.length) return "";
+        String cached = TIMES[seconds];
+        if (cached == null) {
+            cached = String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+            TIMES[seconds] = cached;
+        }
+        return cached;
+    }
+
+    private static int twoDigits(String s, int i) {
+        int a = s.charAt(i) - '0', b = s.charAt(i + 1) - '0';
+        return a < 0 || a > 9 || b < 0 || b > 9 ? -1 : a * 10 + b;
+    }
+
+    private static void header(ByteBuffer buf, byte type) {
+        buf.put(VERSION);
+        buf.put(type);
+    }
+
+    /**
+     * Writes an incident block, also used by {@link EventJournal} records
+     */
+    static void incidentBlock(ByteBuffer buf, Incident incident, int x, int y) {
+        buf.putLong(incident.getIncidentNumber());
+        buf.putInt(incident.getZone());
+        buf.putInt(x);
+        buf.putInt(y);
+        buf.put(eventTypeCode(incident.getEventType()));
+        buf.put(severityCode(incident.getSeverity()));
+        buf.putInt(incident.getWaterAmountNeeded());
+        buf.putInt(parseTime(incident.getTime()));
+    }
+
+    /**
+     * Reads an incident block into a message
+     */
+    static void readIncidentBlock(ByteBuffer buf, Message out) {
+        out.incidentId = buf.getLong();
+        out.zone = buf.getInt();
+        out.x = buf.getInt();
+        out.y = buf.getInt();
+        out.eventType = buf.get();
+        out.severity = buf.get();
+        out.water = buf.getInt();
+        out.time = buf.getInt();
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MessageCodecTest {
+
+    @Test
+    public void testIncidentRoundTrip() {
+        Incident incident = new Incident("14:03:15", 3, "FIRE_DETECTED", "High");
+        incident.setWaterAmountNeeded(30);
+        incident.setLocation(120, 450);
+        ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeIncident(buf, incident);
+        buf.flip();
+
+        MessageCodec.Message message = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(buf, message));
+        Incident decoded = message.toIncident();
+        assertEquals(incident.getIncidentID(), decoded.getIncidentID());
+        assertEquals("14:03:15", decoded.getTime());
+        assertEquals(3, decoded.getZone());
+        assertEquals("FIRE_DETECTED", decoded.getEventType());
+        assertEquals("High", decoded.getSeverity());
+        assertEquals(30, decoded.getWaterAmountNeeded());
+        assertEquals(120, decoded.getX());
+        assertEquals(450, decoded.getY());
+    }
+
+    @Test
+    public void testSeveralMessagesInOneBuffer() {
+        ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE * 2);
+        MessageCodec.encodeStatus(buf, 4, 10, 20, DroneSubsystem.DroneState.EN_ROUTE);
+        MessageCodec.encodeFault(buf, 4, FaultType.NOZZLE);
+        buf.flip();
+
+        MessageCodec.Message message = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(buf, message));
+        assertEquals(MessageCodec.STATUS, message.type);
+        assertEquals("EN_ROUTE", message.stateName());
+        assertTrue(MessageCodec.decode(buf, message));
+        assertEquals(MessageCodec.FAULT, message.type);
+        assertEquals(FaultType.NOZZLE, message.faultType());
+        assertFalse(MessageCodec.decode(buf, message));
+    }
+
+    @Test
+    public void testControlMessagesCarrySequenceNumbers() {
+        Incident incident = new Incident("09:30:00", 2, "DRONE_REQUEST", "Low");
+        ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE * 2);
+        MessageCodec.encodeComplete(buf, 4, 1234, incident);
+        MessageCodec.encodeAck(buf, 4, 1234, MessageCodec.ACK_BUSY);
+        buf.flip();
+
+        MessageCodec.Message message = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(buf, message));
+        assertEquals(MessageCodec.COMPLETE, message.type);
+        assertEquals(1234, message.seq);
+        assertEquals(incident.getIncidentID(), message.toIncident().getIncidentID());
+        assertTrue(MessageCodec.decode(buf, message));
+        assertEquals(MessageCodec.ACK, message.type);
+        assertEquals(4, message.droneId);
+        assertEquals(1234, message.seq);
+        assertEquals(MessageCodec.ACK_BUSY, message.ackStatus);
+    }
+
+    @Test
+    public void testTruncatedMessageIsRejected() {
+        ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeResetCountdown(buf, 7);
+        buf.flip();
+        buf.limit(buf.limit() - 1);
+
+        assertFalse(MessageCodec.decode(buf, new MessageCodec.Message()));
+        assertEquals(0, buf.position());
+    }
+}
@@ -0,0 +1,108 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves {@link SchedulerMetrics} on http://localhost:port/metrics in the Prometheus text format. Stage
+ * latencies are summaries in seconds with p50, p90, p99 and p999 quantiles, labelled by stage, severity
+ * and zone. The server binds to the loopback address only.
+ */
+public class MetricsServer implements AutoCloseable {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final SchedulerMetrics metrics;
+    private final HttpServer server;
+
+    /**
+     * Binds the server, it serves nothing until {@link #start()}
+     * @param metrics metrics to serve
+     * @param port port to listen on, 0 for any free port
+     */
+    public MetricsServer(SchedulerMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    }
+
+    /**
+     * Starts serving the metrics
+     */
+    public void start() {
+        server.createContext("/metrics", exchange -> {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Returns the current metrics in the Prometheus text format
+     */
+    String render() {
+        StringBuilder out = new StringBuilder(4096);
+        counter(out, "drone_incidents_received_total", "Incidents received from the fire incident subsystem",
+                metrics.getIncidentsReceived());
+        counter(out, "drone_incidents_completed_total", "Incidents completed by a drone", metrics.getIncidentsCompleted());
+        counter(out, "drone_incident_reassignments_total", "Incidents handed back by a drone or taken from a faulted drone",
+                metrics.getReassignments());
+        counter(out, "drone_incident_reroutes_total", "Drones pulled off their incident for a closer one",
+                metrics.getReroutes());
+
+        out.append("# HELP drone_faults_total Faults reported by drones\n");
+        out.append("# TYPE drone_faults_total counter\n");
+        Map<FaultType, Long> faults = metrics.getFaultCounts();
+        for (FaultType type : FaultType.values()) {
+            out.append("drone_faults_total{type=\"").append(type).append("\"} ")
+                    .append(faults.getOrDefault(type, 0L)).append('\n');
+        }
+
+        out.append("# HELP drone_incidents_in_flight Incidents received and not completed yet\n");
+        out.append("# TYPE drone_incidents_in_flight gauge\n");
+        out.append("drone_incidents_in_flight ").append(metrics.getIncidentsInFlight()).append('\n');
+
+        out.append("# HELP drone_incident_latency_seconds Time an incident spent in each stage, and the whole response\n");
+        out.append("# TYPE drone_incident_latency_seconds summary\n");
+        for (Map.Entry<SchedulerMetrics.Key, LatencyHistogram> entry : metrics.getHistograms().entrySet()) {
+            SchedulerMetrics.Key key = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            String labels = "stage=\"" + key.stage() + "\",severity=\"" + key.severity() + "\",zone=\"" + key.zone() + "\"";
+            for (double q : QUANTILES) {
+                out.append("drone_incident_latency_seconds{").append(labels).append(",quantile=\"").append(q).append("\"} ")
+                        .append(seconds(histogram.valueAtPercentile(q * 100))).append('\n');
+            }
+            out.append("drone_incident_latency_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(histogram.getSum())).append('\n');
+            out.append("drone_incident_latency_seconds_count{").append(labels).append("} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,88 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table rows of already formatted cells, looked up by a key. Updating a row with the same cells does
+ * nothing, otherwise only that row is repainted. Used on the event dispatch thread only.
+ * @param <K> row key, e.g. a drone id or incident id
+ */
+public class MonitorTableModel<K> extends AbstractTableModel {
+    private final String[] columns;
+    private final List<K> keys = new ArrayList<>();
+    private final List<String[]> rows = new ArrayList<>();
+    private final Map<K, Integer> index = new HashMap<>();
+
+    public MonitorTableModel(String... columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Adds a row at the end, or replaces the cells of an existing row
+     * @return true if the table changed
+     */
+    public boolean put(K key, String... cells) {
+        Integer row = index.get(key);
+        if (row == null) {
+            index.put(key, rows.size());
+            keys.add(key);
+            rows.add(cells);
+            fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+            return true;
+        }
+        if (Arrays.equals(rows.get(row), cells)) return false;
+        rows.set(row, cells);
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+
+    public boolean remove(K key) {
+        Integer row = index.remove(key);
+        if (row == null) return false;
+        keys.remove((int) row);
+        rows.remove((int) row);
+        for (int i = row; i < keys.size(); i++) index.put(keys.get(i), i);
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    /**
+     * Removes the oldest rows until at most a number of rows are left
+     */
+    public void trimTo(int maxRows) {
+        int excess = rows.size() - maxRows;
+        if (excess <= 0) return;
+        for (K key : keys.subList(0, excess)) index.remove(key);
+        keys.subList(0, excess).clear();
+        rows.subList(0, excess).clear();
+        for (int i = 0; i < keys.size(); i++) index.put(keys.get(i), i);
+        fireTableRowsDeleted(0, excess - 1);
+    }
+
+    public boolean contains(K key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return rows.get(row)[column];
+    }
+}
@@ -0,0 +1,42 @@
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MonitorTableModelTest {
+
+    @Test
+    public void testOnlyChangedRowsAreRepainted() {
+        MonitorTableModel<Integer> model = new MonitorTableModel<>("Drone", "State");
+        List<String> events = new ArrayList<>();
+        model.addTableModelListener(e -> events.add(e.getType() + ":" + e.getFirstRow()));
+
+        assertTrue(model.put(1, "1", "IDLE"));
+        assertTrue(model.put(2, "2", "IDLE"));
+        assertFalse(model.put(1, "1", "IDLE"));
+        assertTrue(model.put(2, "2", "EN_ROUTE"));
+
+        assertEquals(List.of(TableModelEvent.INSERT + ":0", TableModelEvent.INSERT + ":1",
+                TableModelEvent.UPDATE + ":1"), events);
+        assertEquals("EN_ROUTE", model.getValueAt(1, 1));
+    }
+
+    @Test
+    public void testRemoveAndTrimKeepKeysInStep() {
+        MonitorTableModel<String> model = new MonitorTableModel<>("Zone");
+        for (int i = 0; i < 6; i++) model.put("incident" + i, "zone" + i);
+        assertTrue(model.remove("incident2"));
+        assertFalse(model.remove("incident2"));
+        model.trimTo(3);
+
+        assertEquals(3, model.getRowCount());
+        assertFalse(model.contains("incident1"));
+        assertEquals("zone3", model.getValueAt(0, 0));
+        // Rows after the removed ones are still found by key
+        model.put("incident5", "moved");
+        assertEquals("moved", model.getValueAt(2, 0));
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Decides when the next incident should be sent. Incidents can be sent at a fixed rate, as fast as
+ * possible, or at the spacing of their recorded times of day divided by a speed-up factor. Deadlines are
+ * kept on an absolute schedule so sleeping late for one incident does not delay all of the following ones.
+ */
+public class Pacing {
+    /**
+     * How incidents are spaced out
+     */
+    public enum Mode { FIXED_RATE, UNTHROTTLED, REPLAY }
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Mode mode;
+    private final double value;
+    private long startNanos = -1;
+    private long sent = 0;
+    private int firstEventTime = -1;
+    private int lastEventTime = -1;
+    private long dayOffset = 0;
+
+    private Pacing(Mode mode, double value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    /**
+     * @param perSecond incidents per second
+     */
+    public static Pacing fixedRate(double perSecond) {
+        if (perSecond <= 0) throw new IllegalArgumentException("Rate must be positive");
+        return new Pacing(Mode.FIXED_RATE, perSecond);
+    }
+
+    public static Pacing unthrottled() {
+        return new Pacing(Mode.UNTHROTTLED, 0);
+    }
+
+    /**
+     * @param speedUp how many times faster than recorded the incidents are replayed, 60 replays an hour in a minute
+     */
+    public static Pacing replay(double speedUp) {
+        if (speedUp <= 0) throw new IllegalArgumentException("Speed-up must be positive");
+        return new Pacing(Mode.REPLAY, speedUp);
+    }
+
+    /**
+     * Parses "rate N", "replay N" or "max". An empty string gives the original one incident every 3 seconds.
+     * @param text pacing entered by the user
+     * @return pacing described by the text
+     */
+    public static Pacing parse(String text) {
+        String[] parts = text.trim().toLowerCase().split("\\s+");
+        switch (parts[0]) {
+            case "": return fixedRate(1 / 3.0);
+            case "max": return unthrottled();
+            case "rate": return fixedRate(Double.parseDouble(parts[1]));
+            case "replay": return replay(Double.parseDouble(parts[1]));
+            default: throw new IllegalArgumentException("Unknown pacing: " + text);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns how long to wait before sending the next incident and advances the schedule
+     * @param eventTime recorded time of day of the incident in seconds, -1 if unknown
+     * @param nowNanos current {@link SimClock#nanos()} value
+     * @return nanoseconds to wait, 0 if the incident is due
+     */
+    public long delayNanos(int eventTime, long nowNanos) {
+        if (startNanos < 0) startNanos = nowNanos;
+        long due;
+        switch (mode) {
+            case FIXED_RATE:
+                due = startNanos + (long) (sent * 1_000_000_000L / value);
+                break;
+            case REPLAY:
+                due = startNanos + (long) (elapsedEventSeconds(eventTime) * 1_000_000_000L / value);
+                break;
+            default:
+                due = nowNanos;
+                break;
+        }
+        sent++;
+        return Math.max(0, due - nowNanos);
+    }
+
+    /**
+     * Blocks until the next incident is due
+     * @param eventTime recorded time of day of the incident in seconds, -1 if unknown
+     */
+    public void await(int eventTime) throws InterruptedException {
+        SimClock clock = SimClock.current();
+        clock.sleepNanos(delayNanos(eventTime, clock.nanos()));
+    }
+
+    /**
+     * Seconds since the first incident. A time more than half a day earlier than the previous one is taken
+     * to be on the next day, a slightly earlier time is an out of order record and is sent right away.
+     */
+    private long elapsedEventSeconds(int eventTime) {
+        if (eventTime >= 0) {
+            if (firstEventTime < 0) firstEventTime = eventTime;
+            if (lastEventTime >= 0 && eventTime < lastEventTime) {
+                if (lastEventTime - eventTime > SECONDS_PER_DAY / 2) {
+                    dayOffset += SECONDS_PER_DAY;
+                    lastEventTime = eventTime;
+                }
+            } else {
+                lastEventTime = eventTime;
+            }
+        }
+        return lastEventTime < 0 ? 0 : lastEventTime - firstEventTime + dayOffset;
+    }
+}
@@ -0,0 +1,40 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PacingTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testFixedRateKeepsAbsoluteSchedule() {
+        Pacing pacing = Pacing.fixedRate(2);
+        assertEquals(0, pacing.delayNanos(-1, 0));
+        assertEquals(SECOND / 2, pacing.delayNanos(-1, 0));
+        // Woke up late for the second incident, the third is still due one second after the start
+        assertEquals(SECOND / 4, pacing.delayNanos(-1, 3 * SECOND / 4));
+    }
+
+    @Test
+    public void testReplayScalesRecordedSpacing() {
+        Pacing pacing = Pacing.replay(60);
+        assertEquals(0, pacing.delayNanos(MessageCodec.parseTime("14:00:00"), 0));
+        assertEquals(SECOND, pacing.delayNanos(MessageCodec.parseTime("14:01:00"), 0));
+        // Slightly out of order records are sent right away
+        assertEquals(SECOND, pacing.delayNanos(MessageCodec.parseTime("14:00:30"), 0));
+    }
+
+    @Test
+    public void testReplayRollsOverMidnight() {
+        Pacing pacing = Pacing.replay(60);
+        pacing.delayNanos(MessageCodec.parseTime("23:59:00"), 0);
+        assertEquals(2 * SECOND, pacing.delayNanos(MessageCodec.parseTime("00:01:00"), 0));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(Pacing.Mode.FIXED_RATE, Pacing.parse("").getMode());
+        assertEquals(Pacing.Mode.UNTHROTTLED, Pacing.parse("max").getMode());
+        assertEquals(Pacing.Mode.REPLAY, Pacing.parse("replay 60").getMode());
+        assertEquals(0, Pacing.parse("max").delayNanos(-1, 0));
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reliable delivery of control messages over UDP, used for ASSIGN, COMPLETE and REASSIGN. Status updates
+ * stay best effort and do not go through here.
+ * <p>
+ * Every message to a peer carries the next sequence number for that peer and is resent on the timer wheel
+ * until the peer ACKs it, waiting twice as long each time, up to {@link #MAX_RETRY} resends. The receiving
+ * side remembers the reply it gave to the last {@link #WINDOW_SIZE} sequence numbers from each peer, so a
+ * resent message is answered again with the same reply instead of being handled twice. Sequence numbers
+ * start at a random value so a restarted peer is not taken for a duplicate.
+ */
+public class ReliableLink {
+    public static final int MAX_RETRY = 5;
+    private static final int WINDOW_SIZE = 64;
+
+    /**
+     * How a message ended up
+     */
+    public enum Outcome {
+        /** Acked by the peer */
+        DELIVERED,
+        /** The peer was busy and did not take it */
+        BUSY,
+        /** Never acked, even after every resend */
+        TIMED_OUT
+    }
+
+    /**
+     * Sends an encoded message to a peer, called again for every resend
+     */
+    public interface Transport {
+        void send(int peer, byte[] message) throws IOException;
+    }
+
+    /**
+     * A message waiting for its ACK
+     */
+    private final class Pending {
+        final int peer;
+        final byte[] message;
+        final Consumer<Outcome> onOutcome;
+        int attempts;
+        TimerWheel.Timeout timeout;
+
+        Pending(int peer, byte[] message, Consumer<Outcome> onOutcome) {
+            this.peer = peer;
+            this.message = message;
+            this.onOutcome = onOutcome;
+        }
+    }
+
+    /**
+     * Replies given to the last sequence numbers received from a peer, by sequence number modulo the window
+     */
+    private static final class Received {
+        final int[] seqs = new int[WINDOW_SIZE];
+        final byte[] replies = new byte[WINDOW_SIZE];
+        final boolean[] used = new boolean[WINDOW_SIZE];
+    }
+
+    private final TimerWheel timers;
+    private final Transport transport;
+    private final long initialTimeoutMillis;
+    private final Map<Integer, AtomicInteger> nextSeqs = new ConcurrentHashMap<>();
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Received> received = new ConcurrentHashMap<>();
+    private final AtomicLong retransmits = new AtomicLong();
+
+    /**
+     * @param timers wheel the resends run on
+     * @param transport sends messages to peers
+     * @param initialTimeoutMillis wait for an ACK before the first resend, doubled for every resend after
+     */
+    public ReliableLink(TimerWheel timers, Transport transport, long initialTimeoutMillis) {
+        this.timers = timers;
+        this.transport = transport;
+        this.initialTimeoutMillis = initialTimeoutMillis;
+    }
+
+    /**
+     * Returns the sequence number for the next message to a peer
+     */
+    public int nextSequence(int peer) {
+        return nextSeqs.computeIfAbsent(peer,
+                p -> new AtomicInteger(ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE / 2))).getAndIncrement();
+    }
+
+    /**
+     * Sends a message and keeps resending it until it is acked
+     * @param peer peer to send to
+     * @param seq sequence number encoded in the message, from {@link #nextSequence}
+     * @param message encoded message, kept for resends so it must not be reused
+     * @param onOutcome told once how the message ended up, on the thread that found out, can be null
+     */
+    public void send(int peer, int seq, byte[] message, Consumer<Outcome> onOutcome) {
+        Pending entry = new Pending(peer, message, onOutcome);
+        long key = key(peer, seq);
+        pending.put(key, entry);
+        synchronized (entry) {
+            transmit(entry);
+            entry.timeout = timers.schedule(initialTimeoutMillis, () -> retry(key, entry));
+        }
+    }
+
+    /**
+     * Handles an ACK from a peer
+     * @return false if nothing was waiting for it, a late or repeated ACK
+     */
+    public boolean acknowledged(int peer, int seq, byte status) {
+        Pending entry = pending.remove(key(peer, seq));
+        if (entry == null) return false;
+        synchronized (entry) {
+            if (entry.timeout != null) entry.timeout.cancel();
+        }
+        finish(entry, status == MessageCodec.ACK_BUSY ? Outcome.BUSY : Outcome.DELIVERED);
+        return true;
+    }
+
+    /**
+     * Checks if a message from a peer was seen before
+     * @return the reply given to it the first time, or -1 if it is new
+     */
+    public byte previousReply(int peer, int seq) {
+        Received window = received.get(peer);
+        if (window == null) return -1;
+        synchronized (window) {
+            int slot = Math.floorMod(seq, WINDOW_SIZE);
+            return window.used[slot] && window.seqs[slot] == seq ? window.replies[slot] : -1;
+        }
+    }
+
+    /**
+     * Remembers the reply given to a message from a peer, so a resend of it gets the same reply
+     */
+    public void replied(int peer, int seq, byte reply) {
+        Received window = received.computeIfAbsent(peer, p -> new Received());
+        synchronized (window) {
+            int slot = Math.floorMod(seq, WINDOW_SIZE);
+            window.used[slot] = true;
+            window.seqs[slot] = seq;
+            window.replies[slot] = reply;
+        }
+    }
+
+    /**
+     * Returns how many messages are waiting for an ACK
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns how many resends were made
+     */
+    public long getRetransmitCount() {
+        return retransmits.get();
+    }
+
+    private void retry(long key, Pending entry) {
+        synchronized (entry) {
+            if (pending.get(key) != entry) return;
+            if (entry.attempts < MAX_RETRY) {
+                entry.attempts++;
+                retransmits.incrementAndGet();
+                transmit(entry);
+                entry.timeout = timers.schedule(initialTimeoutMillis << entry.attempts, () -> retry(key, entry));
+                return;
+            }
+        }
+        if (pending.remove(key, entry)) finish(entry, Outcome.TIMED_OUT);
+    }
+
+    private void transmit(Pending entry) {
+        try {
+            transport.send(entry.peer, entry.message);
+        } catch (IOException e) {
+            // Left to the resend, a failed send is the same as a lost one
+            System.err.println("Could not send to " + entry.peer + ": " + e.getMessage());
+        }
+    }
+
+    private void finish(Pending entry, Outcome outcome) {
+        if (entry.onOutcome != null) entry.onOutcome.accept(outcome);
+    }
+
+    private static long key(int peer, int seq) {
+        return ((long) peer << 32) | (seq & 0xffffffffL);
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class ReliableLinkTest {
+
+    @Test
+    public void testResendsWithBackoffUntilTimedOut() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 64);
+        List<Long> sends = new CopyOnWriteArrayList<>();
+        List<ReliableLink.Outcome> outcomes = new CopyOnWriteArrayList<>();
+        ReliableLink link = new ReliableLink(timers, (peer, message) -> sends.add(clock.millis()), 200);
+        clock.enter();
+        link.send(3, link.nextSequence(3), new byte[]{1}, outcomes::add);
+        clock.sleep(20_000);
+        clock.exit();
+
+        assertEquals(List.of(0L, 200L, 600L, 1400L, 3000L, 6200L), sends);
+        assertEquals(List.of(ReliableLink.Outcome.TIMED_OUT), outcomes);
+        assertEquals(ReliableLink.MAX_RETRY, link.getRetransmitCount());
+        assertEquals(0, link.getPendingCount());
+        timers.close();
+        clock.close();
+    }
+
+    @Test
+    public void testAckStopsResends() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 64);
+        List<Long> sends = new CopyOnWriteArrayList<>();
+        List<ReliableLink.Outcome> outcomes = new CopyOnWriteArrayList<>();
+        ReliableLink link = new ReliableLink(timers, (peer, message) -> sends.add(clock.millis()), 200);
+        clock.enter();
+        int first = link.nextSequence(1);
+        int second = link.nextSequence(1);
+        assertEquals(first + 1, second);
+        link.send(1, first, new byte[]{1}, outcomes::add);
+        link.send(1, second, new byte[]{2}, outcomes::add);
+        clock.sleep(300);
+        assertTrue(link.acknowledged(1, first, MessageCodec.ACK_OK));
+        assertTrue(link.acknowledged(1, second, MessageCodec.ACK_BUSY));
+        assertFalse("A repeated ACK finds nothing waiting", link.acknowledged(1, first, MessageCodec.ACK_OK));
+        clock.sleep(20_000);
+        clock.exit();
+
+        assertEquals(List.of(0L, 0L, 200L, 200L), sends);
+        assertEquals(List.of(ReliableLink.Outcome.DELIVERED, ReliableLink.Outcome.BUSY), outcomes);
+        timers.close();
+        clock.close();
+    }
+
+    @Test
+    public void testResentMessageGetsTheSameReply() {
+        TimerWheel timers = new TimerWheel(SimClock.SYSTEM, 100, 64);
+        ReliableLink link = new ReliableLink(timers, (peer, message) -> { }, 200);
+        assertEquals(-1, link.previousReply(5, 42));
+        link.replied(5, 42, MessageCodec.ACK_BUSY);
+        assertEquals(MessageCodec.ACK_BUSY, link.previousReply(5, 42));
+        assertEquals("Sequence numbers are per peer", -1, link.previousReply(6, 42));
+        // 64 messages later the slot is reused
+        link.replied(5, 42 + 64, MessageCodec.ACK_OK);
+        assertEquals(-1, link.previousReply(5, 42));
+        timers.close();
+    }
+}
@@ -1,29 +1,94 @@
 import javax.swing.*;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.Timer;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class Scheduler {
     private static final int FIRE_PORT = 5000;
     private static final int DRONE_PORT = 6000;
     private static final int SCHEDULER_PORT = 4000;
+    private static final int RECEIVE_BUFFER_SIZE = 2048;
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long BATCH_SOLVE_BUDGET_NANOS = 5_000_000;
+    private static final long REROUTE_COOLDOWN_MS = 60000;
+    /** How long a faulted drone is kept out of dispatch before it is reset */
+    private static final long FAULT_RESET_MS = 1000;
+    /** How long the dispatcher waits for an incident before letting a waiting snapshot in. */
+    private static final long DISPATCH_POLL_MS = 50;
+    /** Large enough for the burst of status updates when a host starts thousands of drones together. */
+    private static final int SOCKET_BUFFER_SIZE = 1 << 22;
 
-    private final Queue<Incident> pendingIncidents = new LinkedList<>();
-    private final List<Incident> completedIncidents = new ArrayList<>();
-    private final List<Zone> zones = new ArrayList<>();
-    private final Map<Integer, DroneStatus> allDrones = new ConcurrentHashMap<>();
-    Set<String> completedIncidentIDs = new HashSet<>();
+    /**
+     * How pending incidents are matched to drones. GREEDY assigns each incident to its nearest drone in
+     * queue order, BATCH collects the ready incidents and idle drones of a dispatch round and solves a
+     * min-cost assignment weighted by distance and severity.
+     */
+    public enum DispatchMode {
+        GREEDY, BATCH
+    }
 
-    private boolean shouldRun = true;
-    private Thread receiveIncidents;
-    private Thread receiveDrones;
+    private final DispatchQueue pendingIncidents = new DispatchQueue();
+    private final CompletedIncidentStore completedIncidents = new CompletedIncidentStore(
+            Integer.getInteger("scheduler.completedWindow", 500), 1000);
+    private final ZoneTable zones = new ZoneTable();
+    private final Map<Integer, DroneStatus> allDrones = new ConcurrentHashMap<>();
+    private final DroneIndex droneIndex = new DroneIndex(250);
+    private final SimClock clock = SimClock.current();
+    /** Every delayed task of the scheduler runs on this one wheel, so timers never add threads */
+    private final TimerWheel timers = new TimerWheel(clock, 100, 512);
+    /**
+     * Drone changes made off the network thread, such as fault handling and health changes, waiting for
+     * the drone control thread. It runs them under the dispatch lock so they never race an assignment.
+     */
+    private final BlockingQueue<Runnable> droneTasks = new LinkedBlockingQueue<>();
+    /** Watches the drones holding an incident, see {@link #droneHealthChanged} */
+    private final FailureDetector failureDetector = new FailureDetector(timers, clock,
+            Long.getLong("scheduler.heartbeatMillis", 10000),
+            Long.getLong("scheduler.acceptablePauseMillis", 30000),
+            (droneId, health) -> droneTasks.add(() -> droneHealthChanged(droneId, health)));
+    /** Sends assignments until the drone ACKs them, and ACKs the drones' COMPLETE and REASSIGN messages */
+    private final ReliableLink controlLink = new ReliableLink(timers, this::transmitToDrone,
+            Long.getLong("scheduler.ackTimeoutMillis", 250));
+    private final SchedulerMetrics metrics = new SchedulerMetrics();
+    private EventJournal journal;
+    /** Held by the dispatcher for a whole round, so a snapshot never sees an incident in its hands. */
+    private final ReentrantLock dispatchLock = new ReentrantLock(true);
+    private final Object completionLock = new Object();
+    private Path snapshotDirectory;
+    private final List<SchedulerListener> listeners = new CopyOnWriteArrayList<>();
+    /** Incidents received and not yet completed, pending or with a drone, by zone id */
+    private final Map<Integer, Integer> activeIncidentsByZone = new ConcurrentHashMap<>();
+    private Thread snapshotter;
+
+    private volatile boolean shouldRun = true;
+    private final Queue<ByteBuffer> sendBuffers = new ConcurrentLinkedQueue<>();
+    private volatile DispatchMode dispatchMode = DispatchMode.GREEDY;
+    private Selector selector;
+    private DatagramChannel incidentChannel;
+    private DatagramChannel droneChannel;
+    private DatagramChannel sendChannel;
+    private Thread network;
     private Thread processIncidents;
-    Set<String> pendingIncidentIDs = new HashSet<>();
+    private Thread droneControl;
+    Set<String> pendingIncidentIDs = ConcurrentHashMap.newKeySet();
     private LocalDateTime firstIncidentReceived = null;
     private LocalDateTime lastIncidentCompleted = null;
 
@@ -37,24 +102,35 @@ public class Scheduler {
 
         try {
             Scheduler scheduler = new Scheduler();
+            scheduler.setDispatchMode(DispatchMode.valueOf(
+                    System.getProperty("scheduler.dispatchMode", "GREEDY").toUpperCase()));
 
 //            System.out.print("Enter zones file path (press Enter for default 'src/resources/Sample_zone_file.csv'): ");
             String zonesPath = "";
             if (zonesPath.isEmpty()) zonesPath = "src/resources/Final_zone_file.csv";
 
             scheduler.loadZones(zonesPath);
+            String archivePath = System.getProperty("scheduler.archiveDir", "archive");
+            if (!archivePath.isEmpty()) scheduler.getCompletedStore().setArchiveDirectory(Path.of(archivePath));
+            String journalPath = System.getProperty("scheduler.journal", "scheduler.journal");
+            String snapshotPath = System.getProperty("scheduler.snapshotDir", "snapshots");
+            boolean snapshots = !journalPath.isEmpty() && !snapshotPath.isEmpty();
+            if (!journalPath.isEmpty()) scheduler.recover(snapshots ? snapshotPath : null, journalPath);
             scheduler.start();
+            if (snapshots) scheduler.startSnapshots(snapshotPath, Long.getLong("scheduler.snapshotIntervalMs", 60000));
+            MetricsServer metricsServer = startMetrics(scheduler);
 
             SwingUtilities.invokeLater(() -> new SchedulerMonitorGUI(
                     scheduler.getAllDrones(),
                     scheduler.getPendingIncidents(),
-                    scheduler.getCompletedIncidents(),
+                    scheduler.getCompletedStore(),
                     scheduler
             ));
 
             System.out.println("Scheduler is now running. Press Enter to stop.");
             scanner.nextLine();
             scheduler.stop();
+            if (metricsServer != null) metricsServer.close();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -64,168 +140,483 @@ public class Scheduler {
     }
 
     /**
-     * Start function that starts all threads for listening and processing incidents and drone updates
+     * Rebuilds the incidents recorded in a journal and journals every state change from now on, same as
+     * {@link #recover(String, String)} without a snapshot
+     * @param file journal file, created if it does not exist
+     */
+    public void openJournal(String file) throws IOException {
+        recover(null, file);
+    }
+
+    /**
+     * Rebuilds the scheduler's state from the newest snapshot and the journal records after it, then journals
+     * every state change from now on. Zones come from the snapshot only if none were loaded. Completed
+     * incidents are counted as completed, every other incident goes back to the pending queue, including ones
+     * that were assigned, since the scheduler cannot know what the drones did while it was down. A record
+     * the snapshot already covers is harmless, so replaying one twice does not matter. Call before {@link #start()}.
+     * @param snapshotDirectory directory with snapshots, null to rebuild from the journal alone
+     * @param journalFile journal file, created if it does not exist
+     */
+    public void recover(String snapshotDirectory, String journalFile) throws IOException {
+        SchedulerSnapshot snapshot = snapshotDirectory == null ? null
+                : SchedulerSnapshot.loadNewest(Path.of(snapshotDirectory));
+        Map<Long, Incident> inFlight = new LinkedHashMap<>();
+        List<Incident> completed = new ArrayList<>();
+        long covered = 0;
+        if (snapshot != null) {
+            covered = snapshot.sequence;
+            if (zones.size() == 0) {
+                for (Zone zone : snapshot.zones) zones.add(zone);
+            }
+            for (SchedulerSnapshot.Drone drone : snapshot.drones) {
+                DroneStatus status = new DroneStatus(new DroneInfo(drone.id(), drone.x(), drone.y(), drone.address()));
+                status.droneInfo.port = drone.port();
+                status.state = drone.state();
+                status.isAvailable = drone.available();
+                allDrones.put(drone.id(), status);
+            }
+            for (Incident incident : snapshot.pending) inFlight.putIfAbsent(incident.getIncidentNumber(), incident);
+            for (Incident incident : snapshot.inFlight.values()) inFlight.putIfAbsent(incident.getIncidentNumber(), incident);
+            synchronized (completionLock) {
+                completedIncidents.restore(snapshot.completed);
+            }
+        }
+
+        long snapshotSequence = covered;
+        long[] replayed = {0};
+        journal = new EventJournal(journalFile, record -> {
+            if (record.sequence <= snapshotSequence) return;
+            replayed[0]++;
+            long id = record.incident.incidentId;
+            switch (record.type) {
+                case EventJournal.RECEIVED:
+                case EventJournal.ASSIGNED:
+                case EventJournal.REROUTED:
+                case EventJournal.REASSIGNED:
+                    inFlight.putIfAbsent(id, record.incident.toIncident());
+                    break;
+                case EventJournal.COMPLETED:
+                    Incident incident = inFlight.remove(id);
+                    completed.add(incident != null ? incident : record.incident.toIncident());
+                    break;
+                default:
+                    break;
+            }
+        });
+
+        for (Incident incident : completed) {
+            incident.markAsCompleted();
+            synchronized (completionLock) {
+                completedIncidents.add(incident);
+            }
+        }
+        for (Incident incident : inFlight.values()) {
+            pendingIncidents.add(incident);
+            countActive(incident, 1);
+            notifyListeners(listener -> listener.incidentQueued(incident));
+        }
+        if (snapshot != null || replayed[0] > 0) {
+            firstIncidentReceived = clock.now();
+            System.out.printf("Recovered %d pending incidents and %d completed from %s%d journal records%n",
+                    inFlight.size(), getCompletedCount(),
+                    snapshot == null ? "" : "snapshot " + snapshot.sequence + " and ", replayed[0]);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the scheduler's state while it keeps running. The journal sequence number is read
+     * first, so every change up to it is in the snapshot, and a change made while copying is replayed from the
+     * journal on restart. The dispatcher only waits while the references are copied, the snapshot is
+     * serialized and written afterwards.
+     */
+    public SchedulerSnapshot captureSnapshot() {
+        dispatchLock.lock();
+        try {
+            SchedulerSnapshot snapshot;
+            synchronized (completionLock) {
+                long sequence = journal == null ? 0 : journal.getSequence();
+                snapshot = new SchedulerSnapshot(sequence, clock.millis(), completedIncidents.getAggregates());
+            }
+            snapshot.zones.addAll(zones.list());
+            for (Incident incident : pendingIncidents) snapshot.pending.add(incident);
+            for (DroneStatus status : allDrones.values()) {
+                DroneInfo info = status.droneInfo;
+                snapshot.drones.add(new SchedulerSnapshot.Drone(info.id, info.x, info.y, info.address, info.port,
+                        status.state, status.isAvailable));
+                Incident current = status.currentIncident;
+                if (current != null) snapshot.inFlight.put(info.id, current);
+            }
+            return snapshot;
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot, writes it to a directory and drops the journal records it covers
+     * @return the snapshot file
+     */
+    public Path writeSnapshot(Path directory) throws IOException {
+        SchedulerSnapshot snapshot = captureSnapshot();
+        Path file = snapshot.save(directory);
+        if (journal != null) journal.compact(snapshot.sequence);
+        return file;
+    }
+
+    /**
+     * Writes a snapshot every interval on a background thread, and a last one when the scheduler stops
+     * @param directory directory the snapshots are written to
+     * @param intervalMillis time between snapshots
+     */
+    public void startSnapshots(String directory, long intervalMillis) {
+        snapshotDirectory = Path.of(directory);
+        snapshotter = new Thread(() -> {
+            while (shouldRun) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    writeSnapshot(snapshotDirectory);
+                } catch (IOException e) {
+                    System.err.println("Could not write snapshot: " + e.getMessage());
+                }
+            }
+        }, "scheduler-snapshot");
+        snapshotter.setDaemon(true);
+        snapshotter.start();
+    }
+
+    /**
+     * Returns how many incidents have been completed, including ones before a restart
+     */
+    public long getCompletedCount() {
+        return completedIncidents.getCount();
+    }
+
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Registers a listener for changes to drones and incidents, see {@link SchedulerListener}
+     */
+    public void addListener(SchedulerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SchedulerListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(Consumer<SchedulerListener> event) {
+        if (listeners.isEmpty()) return;
+        for (SchedulerListener listener : listeners) event.accept(listener);
+    }
+
+    /**
+     * Journals a state change. Called after the change is made, so a snapshot that includes the record's
+     * sequence number also includes the change.
+     */
+    private void journal(byte type, int droneId, Incident incident) {
+        if (journal != null) journal.append(type, droneId, incident);
+    }
+
+    /**
+     * Registers the scheduler's metrics with JMX and serves them over HTTP on the port in the
+     * scheduler.metricsPort property, 9400 by default and 0 to turn the HTTP endpoint off
+     * @return the running server, null if it is off or could not start
+     */
+    static MetricsServer startMetrics(Scheduler scheduler) {
+        scheduler.getMetrics().registerMBean();
+        int port = Integer.getInteger("scheduler.metricsPort", 9400);
+        if (port <= 0) return null;
+        try {
+            MetricsServer server = new MetricsServer(scheduler.getMetrics(), port);
+            server.start();
+            System.out.println("Serving metrics on http://localhost:" + server.getPort() + "/metrics");
+            return server;
+        } catch (IOException e) {
+            System.err.println("Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start function that opens the scheduler's UDP channels and starts the network and dispatch threads
      */
     public void start() {
-        receiveIncidents = new Thread(this::listenForIncidents);
-        receiveDrones = new Thread(this::listenForDroneUpdates);
+        try {
+            selector = Selector.open();
+            incidentChannel = openReceiveChannel(SCHEDULER_PORT);
+            droneChannel = openReceiveChannel(DRONE_PORT);
+            sendChannel = DatagramChannel.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open scheduler channels", e);
+        }
+        network = new Thread(this::runNetworkLoop);
         processIncidents = new Thread(this::processPendingIncidents);
+        droneControl = new Thread(this::runDroneTasks, "drone-control");
 
-        receiveIncidents.start();
-        receiveDrones.start();
+        network.start();
         processIncidents.start();
+        droneControl.start();
     }
 
     /**
-     * Stop function to stop all threads upon request
+     * Stop function to stop all threads upon request. The selector is woken up directly, so the threads
+     * stop right away.
      */
     public void stop() {
         shouldRun = false;
         try {
-            DatagramSocket tempSocket = new DatagramSocket();
-            byte[] stop = "STOP".getBytes();
-            tempSocket.send(new DatagramPacket(stop, stop.length, InetAddress.getLocalHost(), SCHEDULER_PORT));
-            tempSocket.send(new DatagramPacket(stop, stop.length, InetAddress.getLocalHost(), DRONE_PORT));
-            tempSocket.close();
-
-            if (receiveIncidents != null) receiveIncidents.join();
-            if (receiveDrones != null) receiveDrones.join();
+            if (selector != null) selector.wakeup();
+            if (processIncidents != null) processIncidents.interrupt();
+            if (droneControl != null) droneControl.interrupt();
+            if (snapshotter != null) snapshotter.interrupt();
+
+            if (network != null) network.join();
             if (processIncidents != null) processIncidents.join();
+            if (droneControl != null) droneControl.join();
+            if (snapshotter != null) snapshotter.join();
+            if (snapshotDirectory != null) writeSnapshot(snapshotDirectory);
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            closeQuietly(incidentChannel);
+            closeQuietly(droneChannel);
+            closeQuietly(sendChannel);
+            closeQuietly(selector);
+            if (journal != null) journal.close();
+            completedIncidents.close();
+            timers.close();
         }
     }
 
+    private DatagramChannel openReceiveChannel(int port) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        return channel;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) closeable.close();
+        } catch (IOException ignored) {}
+    }
+
     /**
-     * Function that opens UDP port to listen for incidents from the FireIncidentSubsystem
+     * Function that runs the single selector loop for incidents from the FireIncidentSubsystem on the
+     * scheduler port and for updates from drones on the drone port
      */
-    private void listenForIncidents() {
-        try (DatagramSocket socket = new DatagramSocket(SCHEDULER_PORT)) {
-            socket.setSoTimeout(1000);
+    private void runNetworkLoop() {
+        MessageCodec.Message message = new MessageCodec.Message();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        Consumer<SelectionKey> onReadable = key -> {
+            clock.enter();
+            try {
+                drainChannel((DatagramChannel) key.channel(), buffer, message);
+            } catch (Exception e) {
+                if (shouldRun) e.printStackTrace();
+            } finally {
+                clock.exit();
+            }
+        };
+        try {
             while (shouldRun) {
-                byte[] buffer = new byte[1024];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-
-                try {
-                    socket.receive(packet);
-                    String message = new String(packet.getData(), 0, packet.getLength());
-                    if (message.equals("STOP")) continue;
-
-                    String[] parts = message.split(",");
-                    if (parts.length >= 8 && parts[0].equals("Incident")) {
-                        if (firstIncidentReceived == null) {
-                            firstIncidentReceived = LocalDateTime.now();
-                        }
-                        Incident incident = new Incident(parts[7], Integer.parseInt(parts[1]), parts[4], parts[5]);
-                        incident.setWaterAmountNeeded(Integer.parseInt(parts[6]));
-                        pendingIncidents.add(incident);
-                    }
-                } catch (SocketTimeoutException ignored) {} catch (Exception e) {
-                    if (shouldRun) e.printStackTrace();
-                }
+                selector.select(onReadable);
             }
+        } catch (ClosedSelectorException ignored) {
         } catch (Exception e) {
             if (shouldRun) e.printStackTrace();
         }
     }
 
     /**
-     * Function that listens for DroneUpdates via UDP port, handles requests beginning with Reassign, Fault, and Complete
+     * Function that reads every datagram waiting on a channel and handles the messages in it
      */
-    private void listenForDroneUpdates() {
-        try (DatagramSocket socket = new DatagramSocket(DRONE_PORT)) {
-            socket.setSoTimeout(1000);
-            while (shouldRun) {
-                byte[] buffer = new byte[1024];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                try {
-                    socket.receive(packet);
-                    String message = new String(packet.getData(), 0, packet.getLength());
-                    System.out.println(message);
-                    if (message.startsWith("Reassign")) {
-                        String[] parts = message.split(",");
-                        if (parts.length >= 7) {
-                            int droneId = Integer.parseInt(parts[1]);
-                            int zone = Integer.parseInt(parts[2]);
-                            String type = parts[3];
-                            String severity = parts[4];
-                            int waterAmount = Integer.parseInt(parts[5]);
-                            String time = parts[6];
-
-                            Incident reassigned = new Incident(time, zone, type, severity);
-                            reassigned.setWaterAmountNeeded(waterAmount);
-
-                            String incidentID = reassigned.getIncidentID();
-                            if (!completedIncidentIDs.contains(incidentID) && !pendingIncidentIDs.contains(incidentID)) {
-                                pendingIncidents.add(reassigned);
-                                pendingIncidentIDs.add(incidentID);
-
-                                System.out.println("\n================== REASSIGNMENT ==================");
-                                System.out.printf("Reassigned incident from Drone %d\n", droneId);
-                                System.out.printf("Incident Zone:    %d\n", reassigned.getZone());
-                                System.out.printf("Event Type:       %s\n", reassigned.getEventType());
-                                System.out.printf("Severity:         %s\n", reassigned.getSeverity());
-                                System.out.println("================================================\n");
-                            }
-
-                            DroneStatus status = allDrones.get(droneId);
-                            if (status != null) {
-                                status.currentIncident = null;
-//                                status.state = "IDLE";
-                                status.isAvailable = true;
-                            }
-                        }
-                        continue;
-                    }
+    private void drainChannel(DatagramChannel channel, ByteBuffer buffer, MessageCodec.Message message) throws IOException {
+        SocketAddress source;
+        while ((source = channel.receive(buffer.clear())) != null) {
+            buffer.flip();
+            while (MessageCodec.decode(buffer, message)) {
+                if (channel == incidentChannel) {
+                    if (message.type == MessageCodec.INCIDENT) handleIncident(message);
+                } else {
+                    handleDroneMessage(message, (InetSocketAddress) source);
+                }
+            }
+        }
+    }
 
-                    if (message.contains("Complete")) {
-                        lastIncidentCompleted = LocalDateTime.now();
-                        checkIfAllIncidentsCompleted();
-                        String[] parts = message.split(",");
-                        if (parts.length >= 6) {
-                            int droneId = Integer.parseInt(parts[1]);
-                            DroneStatus status = allDrones.get(droneId);
-                            if (status != null && status.currentIncident != null) {
-                                String incidentID = status.currentIncident.getIncidentID();
-                                if (!completedIncidentIDs.contains(incidentID)) {
-                                    status.currentIncident.markAsCompleted();
-                                    completedIncidents.add(status.currentIncident);
-                                    completedIncidentIDs.add(incidentID);
-                                    pendingIncidentIDs.remove(incidentID);
-                                    System.out.println("Drone " + droneId + " completed incident in Zone " + status.currentIncident.getZone());
-                                }
-                                status.currentIncident = null;
-                            }
-                            if (status != null) {
-//                                status.state = "IDLE";
-                                status.isAvailable = true;
-                            }
-                        }
-                        continue;
-                    }
+    /**
+     * Function that queues an incident reported by the FireIncidentSubsystem
+     * @param message decoded INCIDENT message
+     */
+    private void handleIncident(MessageCodec.Message message) {
+        if (firstIncidentReceived == null) {
+            firstIncidentReceived = clock.now();
+        }
+        if (getZoneById(message.zone) == null) {
+            Zone located = getZoneAt(message.x, message.y);
+            if (located != null) message.zone = located.getId();
+        }
+        Incident incident = message.toIncident();
+        metrics.received(incident);
+        pendingIncidents.add(incident);
+        countActive(incident, 1);
+        metrics.reached(incident, SchedulerMetrics.Stage.QUEUED);
+        journal(EventJournal.RECEIVED, 0, incident);
+        notifyListeners(listener -> listener.incidentQueued(incident));
+    }
 
-                    if (message.equals("STOP")) continue;
-                    if (message.contains("Fault")) {
-                        processDroneFault(message);
-                        continue;
-                    }
+    /**
+     * Function that handles one decoded message from a drone
+     * @param message decoded message
+     * @param source address and port the message came from, replies to the drone go there
+     */
+    private void handleDroneMessage(MessageCodec.Message message, InetSocketAddress source) {
+        failureDetector.heartbeat(message.droneId);
+        switch (message.type) {
+            case MessageCodec.REASSIGN:
+                if (acknowledge(message, source)) {
+                    int droneId = message.droneId;
+                    Incident reassigned = message.toIncident();
+                    droneTasks.add(() -> handleReassign(droneId, reassigned));
+                }
+                break;
+            case MessageCodec.COMPLETE:
+                if (acknowledge(message, source)) {
+                    int droneId = message.droneId;
+                    String incidentID = Incident.formatId(message.incidentId);
+                    droneTasks.add(() -> handleComplete(droneId, incidentID));
+                }
+                break;
+            case MessageCodec.ACK:
+                controlLink.acknowledged(message.droneId, message.seq, message.ackStatus);
+                break;
+            case MessageCodec.FAULT:
+                raiseFault(message.droneId, message.faultType());
+                break;
+            case MessageCodec.STATUS:
+                String state = message.stateName();
+                updateDroneStatus(message.droneId, message.x, message.y, source, state, state.equals("IDLE"));
+                break;
+            default:
+                break;
+        }
+    }
 
-                    String[] parts = message.split(",");
-                    if (parts.length >= 5 && parts[0].equals("Drone")) {
-                        int id = Integer.parseInt(parts[1]);
-                        int x = Integer.parseInt(parts[2]);
-                        int y = Integer.parseInt(parts[3]);
-                        String state = parts[4];
+    /**
+     * Function that ACKs a control message from a drone. A resend of a message that was already handled
+     * gets its ACK again but is not handled a second time.
+     * @param message decoded COMPLETE or REASSIGN message
+     * @param source address and port the message came from
+     * @return true if the message is new and should be handled
+     */
+    private boolean acknowledge(MessageCodec.Message message, InetSocketAddress source) {
+        boolean duplicate = controlLink.previousReply(message.droneId, message.seq) >= 0;
+        if (!duplicate) controlLink.replied(message.droneId, message.seq, MessageCodec.ACK_OK);
+        ByteBuffer buffer = acquireSendBuffer();
+        try {
+            MessageCodec.encodeAck(buffer, message.droneId, message.seq, MessageCodec.ACK_OK);
+            buffer.flip();
+            sendChannel.send(buffer, source);
+        } catch (IOException e) {
+            System.err.println("Error sending ack to drone " + message.droneId + ": " + e.getMessage());
+        } finally {
+            sendBuffers.offer(buffer);
+        }
+        return !duplicate;
+    }
 
-                        updateDroneStatus(id, x, y, packet.getAddress(), state, state.equals("IDLE"));
-                    }
-                } catch (SocketTimeoutException ignored) {} catch (Exception e) {
-                    if (shouldRun) e.printStackTrace();
+    /**
+     * Function that puts an incident a drone could not handle back in the pending queue, run on the drone
+     * control thread
+     * @param droneId drone that handed the incident back
+     * @param decoded incident in the REASSIGN message
+     */
+    private void handleReassign(int droneId, Incident decoded) {
+        DroneStatus status = allDrones.get(droneId);
+        String incidentID = decoded.getIncidentID();
+        // The drone may hold another incident by now, only the one it handed back is taken from it
+        boolean held = status != null && status.currentIncident != null
+                && status.currentIncident.getIncidentID().equals(incidentID);
+        Incident reassigned = held ? status.currentIncident : decoded;
+        if (!completedIncidents.contains(incidentID) && !pendingIncidents.containsIncident(incidentID)) {
+            metrics.reassigned(reassigned);
+            pendingIncidents.add(reassigned);
+            pendingIncidentIDs.add(incidentID);
+            journal(EventJournal.REASSIGNED, droneId, reassigned);
+            notifyListeners(listener -> listener.incidentQueued(reassigned));
+
+            System.out.println("\n================== REASSIGNMENT ==================");
+            System.out.printf("Reassigned incident from Drone %d\n", droneId);
+            System.out.printf("Incident Zone:    %d\n", reassigned.getZone());
+            System.out.printf("Event Type:       %s\n", reassigned.getEventType());
+            System.out.printf("Severity:         %s\n", reassigned.getSeverity());
+            System.out.println("================================================\n");
+        }
+
+        if (status != null) {
+            if (held) {
+                status.currentIncident = null;
+                failureDetector.unwatch(droneId);
+            }
+//            status.state = "IDLE";
+            status.isAvailable = status.faultMessage == null && status.currentIncident == null;
+            droneIndex.update(status);
+            notifyListeners(listener -> listener.droneUpdated(droneId));
+        }
+        pendingIncidents.unparkAll();
+    }
+
+    /**
+     * Function that records a drone finishing an incident, run on the drone control thread. The incident is
+     * the one named in the COMPLETE message, which is not always the drone's current one: an incident taken
+     * back from a drone that went on to finish it is taken out of the pending queue instead.
+     * @param droneId drone that finished the incident
+     * @param incidentID incident in the COMPLETE message
+     */
+    private void handleComplete(int droneId, String incidentID) {
+        lastIncidentCompleted = clock.now();
+        checkIfAllIncidentsCompleted();
+        DroneStatus status = allDrones.get(droneId);
+        Incident completed;
+        if (status != null && status.currentIncident != null
+                && status.currentIncident.getIncidentID().equals(incidentID)) {
+            completed = status.currentIncident;
+            status.currentIncident = null;
+            failureDetector.unwatch(droneId);
+        } else {
+            completed = pendingIncidents.removeIncident(incidentID);
+        }
+        if (completed != null) {
+            if (!completedIncidents.contains(incidentID)) {
+                metrics.reached(completed, SchedulerMetrics.Stage.COMPLETED);
+                completed.markAsCompleted();
+                pendingIncidentIDs.remove(incidentID);
+                countActive(completed, -1);
+                System.out.println("Drone " + droneId + " completed incident in Zone " + completed.getZone());
+                // Stored and journaled together, so a snapshot's totals match its sequence number
+                synchronized (completionLock) {
+                    completedIncidents.add(completed);
+                    journal(EventJournal.COMPLETED, droneId, completed);
                 }
+                notifyListeners(listener -> listener.incidentCompleted(completed, droneId));
             }
-        } catch (Exception e) {
-            if (shouldRun) e.printStackTrace();
         }
+        if (status != null) {
+//            status.state = "IDLE";
+            status.isAvailable = status.faultMessage == null && status.currentIncident == null;
+            droneIndex.update(status);
+            notifyListeners(listener -> listener.droneUpdated(droneId));
+        }
+        pendingIncidents.unparkAll();
     }
 
     /**
@@ -233,46 +624,140 @@ public class Scheduler {
      * @param id drone id
      * @param x drone x coord
      * @param y drone y coord
-     * @param address drone ip address
+     * @param source drone ip address and port
      * @param state drone state
      * @param available if drone is available to be assigned an incident
      */
-    private void updateDroneStatus(int id, int x, int y, InetAddress address, String state, boolean available) {
-        allDrones.compute(id, (droneId, status) -> {
+    void updateDroneStatus(int id, int x, int y, InetSocketAddress source, String state, boolean available) {
+        DroneStatus previous = allDrones.get(id);
+        boolean wasAvailable = previous != null && previous.isAvailable && previous.state.equals("IDLE");
+        DroneStatus updated = allDrones.compute(id, (droneId, status) -> {
             if (status == null) {
-                DroneInfo info = new DroneInfo(id, x, y, address);
+                DroneInfo info = new DroneInfo(id, x, y, source.getAddress());
                 status = new DroneStatus(info);
             }
             status.droneInfo.x = x;
             status.droneInfo.y = y;
-            status.droneInfo.address = address;
-            status.droneInfo.lastUpdateTime = System.currentTimeMillis();
-            status.state = state;
-            status.isAvailable = available;
+            status.droneInfo.address = source.getAddress();
+            status.droneInfo.port = source.getPort();
+            status.droneInfo.lastUpdateTime = clock.millis();
+            // An IDLE sent before the drone took its assignment can arrive after it, a drone holding an
+            // incident is only freed by its COMPLETE or REASSIGN
+            boolean stale = available && status.currentIncident != null;
+            if (!stale) status.state = state;
+            // A faulted drone stays out of dispatch until its reset, whatever it reports
+            status.isAvailable = available && !stale && status.faultMessage == null;
             return status;
         });
+        droneIndex.update(updated);
+        notifyListeners(listener -> listener.droneUpdated(id));
+        if (state.equals("EN_ROUTE")) {
+            metrics.reached(updated.currentIncident, SchedulerMetrics.Stage.EN_ROUTE);
+        } else if (state.equals("DROPPING_AGENT")) {
+            metrics.reached(updated.currentIncident, SchedulerMetrics.Stage.DROPPING);
+        }
+        if (updated.isAvailable && !wasAvailable) {
+            pendingIncidents.unparkAll();
+        }
     }
 
     /**
-     * Function which processes pending incidents.
+     * Function which processes pending incidents. Blocks until an incident is ready, so it wakes as soon as
+     * a new incident arrives or a drone becomes available. Incidents that cannot be placed are parked until
+     * the next drone becomes available.
      */
     private void processPendingIncidents() {
         try {
             while (shouldRun) {
-                if (!pendingIncidents.isEmpty()) {
-                    Incident incident = pendingIncidents.poll();
-                    boolean assigned = assignDrone(incident);
-                    if (!assigned) {
-                        pendingIncidents.offer(incident);
+                dispatchLock.lockInterruptibly();
+                try {
+                    Incident incident = pendingIncidents.poll(DISPATCH_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (incident == null) continue;
+                    clock.enter();
+                    try {
+                        long epoch = pendingIncidents.availabilityEpoch();
+                        if (dispatchMode == DispatchMode.BATCH) {
+                            dispatchBatch(incident, epoch);
+                        } else if (!assignDrone(incident)) {
+                            pendingIncidents.park(incident, epoch);
+                        }
+                    } finally {
+                        clock.exit();
                     }
+                } finally {
+                    dispatchLock.unlock();
                 }
-                Thread.sleep(1000);
             }
         } catch (InterruptedException e) {
             if (shouldRun) e.printStackTrace();
         }
     }
 
+    /**
+     * Function which runs one batch dispatch round. The ready incidents, up to the number of idle drones, are
+     * matched to idle drones with {@link AssignmentSolver}. Incidents left over, or all of them if the solver
+     * runs out of time, go through the greedy path so they can still reroute a drone.
+     * @param first incident that woke the dispatcher
+     * @param epoch availability epoch read after taking the first incident
+     */
+    private void dispatchBatch(Incident first, long epoch) {
+        syncDroneIndex();
+        List<DroneStatus> idle = droneIndex.idleDrones();
+        List<Incident> batch = new ArrayList<>();
+        List<Zone> batchZones = new ArrayList<>();
+        int limit = Math.min(MAX_BATCH_SIZE, idle.size());
+        Incident next = first;
+        while (next != null) {
+            Zone zone = getZoneById(next.getZone());
+            if (zone == null) {
+                pendingIncidents.park(next, epoch);
+            } else {
+                batch.add(next);
+                batchZones.add(zone);
+            }
+            next = batch.size() < limit ? pendingIncidents.poll() : null;
+        }
+
+        int[] match = null;
+        if (batch.size() > 1 && idle.size() >= batch.size()) {
+            double[][] cost = new double[batch.size()][idle.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Incident incident = batch.get(i);
+                int x = targetX(incident, batchZones.get(i));
+                int y = targetY(incident, batchZones.get(i));
+                double weight = 1 + getSeverityPriority(incident.getSeverity());
+                for (int j = 0; j < idle.size(); j++) {
+                    DroneInfo drone = idle.get(j).droneInfo;
+                    cost[i][j] = Math.hypot(drone.x - x, drone.y - y) * weight;
+                }
+            }
+            match = AssignmentSolver.solve(cost, System.nanoTime() + BATCH_SOLVE_BUDGET_NANOS);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Incident incident = batch.get(i);
+            Zone zone = batchZones.get(i);
+            boolean assigned = false;
+            if (match != null) {
+                DroneStatus drone = idle.get(match[i]);
+                if (DroneIndex.categorize(drone) == DroneIndex.Category.IDLE) {
+                    assigned = commitAssignment(drone, incident, targetX(incident, zone), targetY(incident, zone), false);
+                }
+            }
+            if (!assigned && !assignDrone(incident)) {
+                pendingIncidents.park(incident, epoch);
+            }
+        }
+    }
+
+    public void setDispatchMode(DispatchMode mode) {
+        this.dispatchMode = mode;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
     /*
      * Function which assigns and incident to a drone, if not add to pending queue
      * @param incident
@@ -282,78 +767,99 @@ public class Scheduler {
         Zone zone = getZoneById(incident.getZone());
         if (zone == null) return false;
 
-        int x = zone.getCenterX();
-        int y = zone.getCenterY();
-        DroneStatus best = null;
-        double minDist = Double.MAX_VALUE;
+        int x = targetX(incident, zone);
+        int y = targetY(incident, zone);
+        syncDroneIndex();
+        DroneStatus best = droneIndex.nearestIdle(x, y);
+        double minDist = best == null ? Double.MAX_VALUE
+                : Math.hypot(best.droneInfo.x - x, best.droneInfo.y - y);
         boolean isReroute = false;
 
-        for (DroneStatus status : allDrones.values()) {
-            if (status.isAvailable && status.state.equals("IDLE")) {
+        double rerouteThreshold = 200.0;
+
+        if (minDist > rerouteThreshold || best == null) {
+            int newIncidentPriority = getSeverityPriority(incident.getSeverity());
+            for (DroneStatus status : droneIndex.enRouteWithin(x, y, minDist)) {
+                Incident current = status.currentIncident;
+                if (current == null || DroneIndex.categorize(status) != DroneIndex.Category.EN_ROUTE) continue;
+
                 DroneInfo drone = status.droneInfo;
                 double dist = Math.hypot(drone.x - x, drone.y - y);
-                if (dist < minDist) {
-                    minDist = dist;
+
+                Zone originalZone = getZoneById(current.getZone());
+                double distToOriginal = Double.MAX_VALUE;
+                if (originalZone != null) {
+                    distToOriginal = Math.hypot(drone.x - originalZone.getCenterX(),
+                            drone.y - originalZone.getCenterY());
+                }
+                int currentIncidentPriority = getSeverityPriority(current.getSeverity());
+
+                if (dist < distToOriginal * 0.5 && newIncidentPriority >= currentIncidentPriority) {
                     best = status;
-                    isReroute = false;
+                    isReroute = true;
+                    break;
                 }
             }
         }
 
-        double rerouteThreshold = 200.0;
-        double currentMinDist = minDist;
+        return best != null && commitAssignment(best, incident, x, y, isReroute);
+    }
 
-        if (minDist > rerouteThreshold || best == null) {
-            for (DroneStatus status : allDrones.values()) {
-                if (!status.isAvailable && status.state.equals("EN_ROUTE") &&
-                        status.currentIncident != null &&
-                        !status.hasBeenRerouted) {
-
-                    DroneInfo drone = status.droneInfo;
-                    double dist = Math.hypot(drone.x - x, drone.y - y);
-
-                    Zone originalZone = getZoneById(status.currentIncident.getZone());
-                    double distToOriginal = Double.MAX_VALUE;
-                    if (originalZone != null) {
-                        distToOriginal = Math.hypot(drone.x - originalZone.getCenterX(),
-                                drone.y - originalZone.getCenterY());
-                    }
-                    int newIncidentPriority = getSeverityPriority(incident.getSeverity());
-                    int currentIncidentPriority = getSeverityPriority(status.currentIncident.getSeverity());
-
-                    if (dist < distToOriginal * 0.5 &&
-                            newIncidentPriority >= currentIncidentPriority &&
-                            dist < currentMinDist) {
-                        best = status;
-                        isReroute = true;
-                    }
-                }
-            }
+    /**
+     * Function which hands an incident to a chosen drone. A rerouted drone's previous incident goes back to
+     * the pending queue, any other drone still holding an incident is left alone.
+     * @param best drone that takes the incident
+     * @param incident incident to assign
+     * @param x target x coordinate
+     * @param y target y coordinate
+     * @param isReroute true if the drone is being pulled off its current incident
+     * @return false if the drone still holds an incident and it is not a reroute
+     */
+    private boolean commitAssignment(DroneStatus best, Incident incident, int x, int y, boolean isReroute) {
+        int droneId = best.droneInfo.id;
+        if (!isReroute && best.currentIncident != null) return false;
+        Incident previous = null;
+        if (isReroute && best.currentIncident != null) {
+            previous = best.currentIncident;
+            metrics.rerouted(previous);
+            pendingIncidents.add(previous);
+            pendingIncidentIDs.add(previous.getIncidentID());
+            journal(EventJournal.REROUTED, droneId, previous);
+            Incident requeued = previous;
+            notifyListeners(listener -> listener.incidentQueued(requeued));
+            startRerouteCooldown(best);
         }
 
-        if (best != null) {
-            if (isReroute && best.currentIncident != null) {
-                pendingIncidents.add(best.currentIncident);
-                pendingIncidentIDs.add(best.currentIncident.getIncidentID());
-                best.hasBeenRerouted = true;
-                scheduleRerouteReset(best.droneInfo.id);
-            }
+        best.isAvailable = false;
+        best.currentIncident = incident;
+        droneIndex.update(best);
+        failureDetector.watch(droneId);
+        metrics.reached(incident, SchedulerMetrics.Stage.ASSIGNED);
+        journal(EventJournal.ASSIGNED, droneId, incident);
+        notifyListeners(listener -> listener.incidentAssigned(incident, droneId));
+        notifyListeners(listener -> listener.droneUpdated(droneId));
+        sendDroneAssignment(best.droneInfo, incident, previous, x, y);
+        System.out.println("\n================== ASSIGNMENT ==================");
+        System.out.printf("Drone ID:         %d\n", best.droneInfo.id);
+        System.out.printf("Current Position: (%d, %d)\n", best.droneInfo.x, best.droneInfo.y);
+        System.out.printf("Incident Zone:    %d\n", incident.getZone());
+        System.out.printf("Event Type:       %s\n", incident.getEventType());
+        System.out.printf("Severity:         %s\n", incident.getSeverity());
+        System.out.printf("Water Needed:     %d L\n", incident.getWaterAmountNeeded());
+        System.out.printf("Time:             %s\n", incident.getTime());
+        System.out.println("===============================================\n");
+        return true;
+    }
 
-            best.isAvailable = false;
-            best.currentIncident = incident;
-            sendDroneAssignment(best.droneInfo, incident, x, y);
-            System.out.println("\n================== ASSIGNMENT ==================");
-            System.out.printf("Drone ID:         %d\n", best.droneInfo.id);
-            System.out.printf("Current Position: (%d, %d)\n", best.droneInfo.x, best.droneInfo.y);
-            System.out.printf("Incident Zone:    %d\n", incident.getZone());
-            System.out.printf("Event Type:       %s\n", incident.getEventType());
-            System.out.printf("Severity:         %s\n", incident.getSeverity());
-            System.out.printf("Water Needed:     %d L\n", incident.getWaterAmountNeeded());
-            System.out.printf("Time:             %s\n", incident.getTime());
-            System.out.println("===============================================\n");
-            return true;
+    /**
+     * Adds drones that were registered directly through {@link #getAllDrones()} to the spatial index
+     */
+    private void syncDroneIndex() {
+        if (droneIndex.size() != allDrones.size()) {
+            for (DroneStatus status : allDrones.values()) {
+                droneIndex.update(status);
+            }
         }
-        return false;
     }
 
     /**
@@ -362,53 +868,124 @@ public class Scheduler {
      * @return
      */
     private int getSeverityPriority(String severity) {
-        switch(severity.toUpperCase()) {
-            case "HIGH": return 3;
-            case "MEDIUM": return 2;
-            case "LOW": return 1;
-            default: return 0;
-        }
+        return DispatchQueue.severityRank(severity);
     }
 
     /**
      * Function timesout reroute possiblity for a drone so it doesn't get in a loop of constantly being rerouted.
-     * @param droneId
+     * @param status drone that was rerouted
      */
-    private void scheduleRerouteReset(int droneId) {
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                DroneStatus status = allDrones.get(droneId);
-                if (status != null) {
-                    status.hasBeenRerouted = false;
-                }
-            }
-        }, 60000);
+    private void startRerouteCooldown(DroneStatus status) {
+        status.hasBeenRerouted = true;
+        if (status.rerouteCooldown != null) status.rerouteCooldown.cancel();
+        status.rerouteCooldown = timers.schedule(REROUTE_COOLDOWN_MS, () -> droneTasks.add(() -> {
+            status.hasBeenRerouted = false;
+            droneIndex.update(status);
+        }));
     }
 
     /**
      * Function to send UDP message for drone assignment to drone subsystem.
      * @param drone Drone object
      * @param inc incident object
+     * @param previous incident the drone is being rerouted from, null if it is not a reroute
      * @param x x coordinate
      * @param y y coordinate
      */
-    private void sendDroneAssignment(DroneInfo drone, Incident inc, int x, int y) {
-        try (DatagramSocket socket = new DatagramSocket()) {
-            String msg = String.format("Assign,%d,%d,%d,%s,%s,%d,%s",
-                    inc.getZone(), x, y, inc.getEventType(), inc.getSeverity(), inc.getWaterAmountNeeded(), inc.getTime());
+    private void sendDroneAssignment(DroneInfo drone, Incident inc, Incident previous, int x, int y) {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        int seq = controlLink.nextSequence(drone.id);
+        MessageCodec.encodeAssign(buffer, drone.id, seq, inc, x, y);
+        controlLink.send(drone.id, seq, Arrays.copyOf(buffer.array(), buffer.position()), outcome -> {
+            if (outcome != ReliableLink.Outcome.DELIVERED) {
+                droneTasks.add(() -> assignmentOutcome(drone.id, inc, previous, outcome));
+            }
+        });
+    }
 
-            byte[] buffer = msg.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, drone.address, DRONE_PORT + drone.id);
-            socket.send(packet);
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Function run on the drone control thread when a drone said it is busy with an assignment, or never
+     * answered. The incident is taken back, the drone stays unavailable until it reports in as IDLE. A
+     * drone that refused a reroute is still on the incident it was rerouted from, so it gets that one
+     * back, out of the pending queue if it is still there, unless it has finished it already.
+     * @param droneId drone the incident was assigned to
+     * @param incident incident that was assigned
+     * @param previous incident the drone was rerouted from, null if it was not a reroute
+     * @param outcome how the assignment ended up
+     */
+    private void assignmentOutcome(int droneId, Incident incident, Incident previous, ReliableLink.Outcome outcome) {
+        DroneStatus status = allDrones.get(droneId);
+        // The drone may have finished or lost the incident some other way in the meantime
+        if (status == null || status.currentIncident != incident) return;
+        if (outcome == ReliableLink.Outcome.BUSY && previous != null
+                && !completedIncidents.contains(previous.getIncidentID())) {
+            System.out.println("Drone " + droneId + " kept incident " + previous.getIncidentID()
+                    + ", reroute to " + incident.getIncidentID() + " refused");
+            pendingIncidents.remove(previous);
+            status.currentIncident = previous;
+            droneIndex.update(status);
+            journal(EventJournal.ASSIGNED, droneId, previous);
+            metrics.reassigned(incident);
+            pendingIncidents.add(incident);
+            journal(EventJournal.REASSIGNED, droneId, incident);
+            notifyListeners(listener -> listener.incidentAssigned(previous, droneId));
+            notifyListeners(listener -> listener.incidentQueued(incident));
+            return;
         }
+        System.out.println("Drone " + droneId + (outcome == ReliableLink.Outcome.BUSY ? " is busy" : " never acked")
+                + ", taking back incident " + incident.getIncidentID());
+        reassignIncident(droneId);
+    }
+
+    /**
+     * Sends an encoded control message to a drone, used by {@link ReliableLink} for sends and resends
+     * @param droneId drone to send to
+     * @param message encoded message
+     */
+    private void transmitToDrone(int droneId, byte[] message) throws IOException {
+        DroneStatus status = allDrones.get(droneId);
+        if (status == null || sendChannel == null) return;
+        ByteBuffer buffer = acquireSendBuffer();
+        try {
+            buffer.put(message);
+            sendToDrone(status.droneInfo, buffer);
+        } finally {
+            sendBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Takes a cleared direct buffer from the pool, or allocates one if the pool is empty
+     */
+    private ByteBuffer acquireSendBuffer() {
+        ByteBuffer buffer = sendBuffers.poll();
+        if (buffer == null) buffer = ByteBuffer.allocateDirect(MessageCodec.MAX_MESSAGE_SIZE);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Sends an encoded message to a drone over the scheduler's persistent send channel
+     * @param drone drone to send to
+     * @param buffer buffer holding the encoded message, not yet flipped
+     */
+    private void sendToDrone(DroneInfo drone, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        sendChannel.send(buffer, drone.replyAddress());
     }
 
     private Zone getZoneById(int id) {
-        return zones.stream().filter(z -> z.getId() == id).findFirst().orElse(null);
+        return zones.get(id);
+    }
+
+    /**
+     * Returns the zone containing a point
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return zone or null if the point is outside every zone
+     */
+    public Zone getZoneAt(int x, int y) {
+        return zones.zoneAt(x, y);
     }
 
     public Map<Integer, DroneStatus> getAllDrones() {
@@ -419,7 +996,25 @@ public class Scheduler {
         return pendingIncidents;
     }
 
+    /**
+     * Returns the most recently completed incidents, older ones are only in the archive and the totals
+     */
     public List<Incident> getCompletedIncidents() {
+        return completedIncidents.recent();
+    }
+
+    /**
+     * Returns how many incidents are active in each zone, zones without any are left out
+     */
+    public Map<Integer, Integer> getActiveIncidentsByZone() {
+        return Collections.unmodifiableMap(activeIncidentsByZone);
+    }
+
+    private void countActive(Incident incident, int delta) {
+        activeIncidentsByZone.merge(incident.getZone(), delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    public CompletedIncidentStore getCompletedStore() {
         return completedIncidents;
     }
 
@@ -428,16 +1023,9 @@ public class Scheduler {
      * @param file input file
      */
     public void loadZones(String file) {
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            br.readLine();
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                int id = Integer.parseInt(parts[0].trim());
-                String[] start = parts[1].replace("(", "").replace(")", "").split(";");
-                String[] end = parts[2].replace("(", "").replace(")", "").split(";");
-                zones.add(new Zone(id, Integer.parseInt(start[0]), Integer.parseInt(start[1]),
-                        Integer.parseInt(end[0]), Integer.parseInt(end[1])));
+        try {
+            for (Zone zone : ZoneTable.readZoneFile(file)) {
+                zones.add(zone);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -445,95 +1033,147 @@ public class Scheduler {
     }
 
     /**
-     * Function to process drone fault on scheduler side, responds to drone with correct response and marks it as unavailable for assingment in addition to printing
-     * the drone fault for debugging purposes
-     * @param message UDP message
+     * Function that takes a drone fault off the network thread. The fault message keeps the drone out of
+     * dispatch right away and the rest of the handling is left to the drone control thread, so a fault
+     * never holds up the updates from other drones.
+     * @param droneId drone that reported the fault
+     * @param faultType fault reported, null if the fault code was not recognized
      */
-    private void processDroneFault(String message) {
-        System.out.println("\n####################################");
-        System.out.println("#####        DRONE FAULT       #####");
-        System.out.println("####################################");
-
-        String[] parts = message.split("Fault:");
-        if (parts.length > 1) {
-            String faultDetails = parts[1].trim();
-            String[] faultParts = faultDetails.split("ERROR:");
-            String faultDescription = faultParts.length > 1 ? faultParts[1].trim() : faultParts[0].trim();
-
-            System.out.println("# Fault Description: " + faultDescription);
+    private void raiseFault(int droneId, FaultType faultType) {
+        if (faultType == null) {
+            System.out.println("Unknown fault type reported by drone " + droneId);
+            return;
+        }
+        metrics.fault(faultType);
+        if (journal != null) journal.appendFault(droneId, faultType);
+        DroneStatus status = allDrones.get(droneId);
+        int fault = 0;
+        if (status != null) {
+            // Bumped here, before the message is set, so a reset already queued for an older fault
+            // can no longer clear this one
+            fault = ++status.faultCount;
+            status.faultMessage = faultType.getDescription();
+            droneIndex.update(status);
+            notifyListeners(listener -> listener.faultRaised(droneId, faultType));
+        }
+        int generation = fault;
+        droneTasks.add(() -> processDroneFault(droneId, faultType, generation));
+    }
 
-            String[] droneParts = parts[0].trim().split(" ");
-            int droneId = -1;
-            if (droneParts.length >= 2) {
-                try {
-                    droneId = Integer.parseInt(droneParts[1]);
-                } catch (NumberFormatException e) {
-                    System.out.println("# Error: Invalid Drone ID format");
-                }
+    /**
+     * Function run by the drone control thread, runs the queued drone changes one at a time in the order
+     * they came in. The dispatcher holds the dispatch lock for a whole round, so a change never lands in
+     * the middle of an assignment.
+     */
+    private void runDroneTasks() {
+        while (shouldRun) {
+            Runnable task;
+            try {
+                task = droneTasks.take();
+                dispatchLock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                break;
             }
-
-            String faultType = "";
-            if (faultDescription.toLowerCase().contains("connection lost via packet loss")) {
-                faultType = "packet";
-            } else if (faultDescription.toLowerCase().contains("stuck")) {
-                faultType = "stuck";
-            } else if (faultDescription.toLowerCase().contains("nozzle")) {
-                faultType = "nozzle";
+            clock.enter();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                clock.exit();
+                dispatchLock.unlock();
             }
+        }
+    }
 
-            if (droneId != -1 && !faultType.isEmpty()) {
-                System.out.println("# Drone ID: " + droneId);
-                System.out.println("# Fault Type: " + faultType.toUpperCase());
-
-                DroneStatus status = allDrones.get(droneId);
-                if (status != null) {
-                    status.faultMessage = faultDescription;
-                }
+    /**
+     * Function to process drone fault on scheduler side. Reassigns the drone's incident, runs the recovery
+     * for the fault type and resets the drone on the timer wheel once the reset delay has passed.
+     * @param droneId drone that reported the fault
+     * @param faultType fault reported
+     * @param fault fault generation given to this fault by {@link #raiseFault}
+     */
+    private void processDroneFault(int droneId, FaultType faultType, int fault) {
+        System.out.println("\n####################################");
+        System.out.println("#####        DRONE FAULT       #####");
+        System.out.println("####################################");
+        System.out.println("# Fault Description: " + faultType.getDescription());
+        System.out.println("# Drone ID: " + droneId);
+        System.out.println("# Fault Type: " + faultType);
 
-                DroneInfo drone = status != null ? status.droneInfo : null;
-                if (drone != null) {
-                    System.out.println("# Action: Reassigning incident and resetting drone");
-                    reassignIncident(droneId);
-                    switch (faultType) {
-                        case "stuck":
-                            System.out.println("# Resetting stuck drone");
-                            break;
-                        case "nozzle":
-                            System.out.println("# Forcing nozzle reset");
-                            forceNozzle(droneId);
-                            break;
-                        case "packet":
-                            System.out.println("# Re-establishing packet connection");
-                            establishConnection(droneId);
-                            break;
-                    }
-                    resetDroneToWorking(droneId);
-                }
-            } else {
-                if (droneId == -1) {
-                    System.out.println("# Error: Could not identify drone");
-                }
-                if (faultType.isEmpty()) {
-                    System.out.println("# Error: Unknown fault type");
-                }
+        DroneStatus status = allDrones.get(droneId);
+        if (status != null) {
+            System.out.println("# Action: Reassigning incident and resetting drone");
+            status.isAvailable = false;
+            reassignIncident(droneId);
+            switch (faultType) {
+                case STUCK:
+                    System.out.println("# Resetting stuck drone");
+                    break;
+                case NOZZLE:
+                    System.out.println("# Forcing nozzle reset");
+                    forceNozzle(droneId);
+                    break;
+                case PACKET_LOSS:
+                    System.out.println("# Re-establishing packet connection");
+                    establishConnection(droneId);
+                    break;
             }
+            // A drone that faults again before its reset waits the full delay from the newest fault
+            if (status.faultReset != null) status.faultReset.cancel();
+            status.faultReset = timers.schedule(FAULT_RESET_MS, () -> droneTasks.add(() -> {
+                if (status.faultCount == fault) resetDroneToWorking(droneId);
+            }));
+        } else {
+            System.out.println("# Error: Could not identify drone");
         }
         System.out.println("####################################\n");
     }
 
     /**
-     * Function to reassign and incident from a faulty drone. Adds incident back to pending incidents.
+     * Function run on the drone control thread when the failure detector changes its mind about a drone,
+     * in the order the changes were noticed. A suspected drone can no longer be rerouted. An offline drone is marked OFFLINE, which keeps it out of dispatch until it is
+     * heard from again, and its incident goes back in the pending queue.
+     * @param droneId drone whose health changed
+     * @param health new health
+     */
+    private void droneHealthChanged(int droneId, FailureDetector.Health health) {
+        DroneStatus status = allDrones.get(droneId);
+        if (status == null) return;
+        status.health = health;
+        if (health == FailureDetector.Health.OFFLINE) {
+            System.out.println("Drone " + droneId + " has gone silent, marking it OFFLINE");
+            status.state = DroneSubsystem.DroneState.OFFLINE.name();
+            status.isAvailable = false;
+            reassignIncident(droneId);
+            pendingIncidents.unparkAll();
+        } else if (health == FailureDetector.Health.SUSPECT) {
+            System.out.println("Drone " + droneId + " is late with its updates, suspecting it");
+        }
+        droneIndex.update(status);
+        notifyListeners(listener -> listener.droneUpdated(droneId));
+    }
+
+    /**
+     * Function to reassign and incident from a faulty or offline drone. Adds incident back to pending incidents.
      * @param droneId
      */
     private void reassignIncident(int droneId) {
         DroneStatus status = allDrones.get(droneId);
         if (status != null) {
             if (status.currentIncident != null) {
-                System.out.println("Reassigning incident from faulted drone " + droneId);
-                pendingIncidents.add(status.currentIncident);
+                System.out.println("Reassigning incident from drone " + droneId);
+                Incident reassigned = status.currentIncident;
+                metrics.reassigned(reassigned);
+                pendingIncidents.add(reassigned);
+                journal(EventJournal.REASSIGNED, droneId, reassigned);
                 status.currentIncident = null;
+                failureDetector.unwatch(droneId);
+                droneIndex.update(status);
+                notifyListeners(listener -> listener.incidentQueued(reassigned));
+                notifyListeners(listener -> listener.droneUpdated(droneId));
             } else {
-                System.out.println("No current incident found for faulted drone " + droneId + ", nothing to reassign.");
+                System.out.println("No current incident found for drone " + droneId + ", nothing to reassign.");
             }
         }
     }
@@ -554,21 +1194,20 @@ public class Scheduler {
         System.out.println("Re-establishing Connection, drone returning to base");
     }
 
-    /** Function to reset drone after one second and resetting fault flags.
+    /** Function to reset drone and its fault flags, run on the drone control thread once the reset delay is over.
      *
      * @param droneId
      */
     private void resetDroneToWorking(int droneId) {
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
         DroneStatus status = allDrones.get(droneId);
         if (status != null) {
+            status.faultReset = null;
             status.faultMessage = null;
             status.isAvailable = true;
+            droneIndex.update(status);
+            notifyListeners(listener -> listener.droneUpdated(droneId));
             sendCountdownResetCommand(status.droneInfo);
+            pendingIncidents.unparkAll();
         }
     }
 
@@ -578,13 +1217,17 @@ public class Scheduler {
     private void checkIfAllIncidentsCompleted() {
         if (firstIncidentReceived != null &&
                 !pendingIncidentIDs.isEmpty() &&
-                completedIncidentIDs.size() == pendingIncidentIDs.size()) {
+                completedIncidents.getCount() == pendingIncidentIDs.size()) {
 
             Duration total = Duration.between(firstIncidentReceived, lastIncidentCompleted);
             long minutes = total.toMinutes();
             long seconds = total.getSeconds() % 60;
             System.out.println("\n================== TOTAL FIRE RESPONSE TIME ==================");
             System.out.printf("All incidents handled in %d min, %02d sec\n", minutes, seconds);
+            System.out.printf("Dispatch latency: p50 %.1f ms, p99 %.1f ms\n",
+                    metrics.getDispatchLatencyP50Millis(), metrics.getDispatchLatencyP99Millis());
+            System.out.printf("Response latency: p50 %.1f s, p99 %.1f s\n",
+                    metrics.getResponseLatencyP50Millis() / 1000, metrics.getResponseLatencyP99Millis() / 1000);
             System.out.println("=============================================================\n");
         }
     }
@@ -594,14 +1237,15 @@ public class Scheduler {
      * @param drone
      */
     private void sendCountdownResetCommand(DroneInfo drone) {
-        try (DatagramSocket socket = new DatagramSocket()) {
-            String message = "ResetCountdown";
-            byte[] buffer = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length, drone.address, DRONE_PORT + drone.id);
-            socket.send(packet);
+        ByteBuffer buffer = acquireSendBuffer();
+        try {
+            MessageCodec.encodeResetCountdown(buffer, drone.id);
+            sendToDrone(drone, buffer);
             System.out.println("Sent countdown reset command to Drone " + drone.id);
         } catch (Exception e) {
             System.err.println("Error sending countdown reset to drone: " + e.getMessage());
+        } finally {
+            sendBuffers.offer(buffer);
         }
     }
 
@@ -611,7 +1255,7 @@ public class Scheduler {
      */
     public String getElapsedTimeFormatted() {
         if (firstIncidentReceived == null) return "Waiting for first incident...";
-        LocalDateTime end = (lastIncidentCompleted != null) ? lastIncidentCompleted : LocalDateTime.now();
+        LocalDateTime end = (lastIncidentCompleted != null) ? lastIncidentCompleted : clock.now();
 
         Duration duration = Duration.between(firstIncidentReceived, end);
         long min = duration.toMinutes();
@@ -633,39 +1277,97 @@ public class Scheduler {
         Zone zone = getZoneById(status.currentIncident.getZone());
         if (zone == null) return 0.0;
 
-        int x2 = zone.getCenterX();
-        int y2 = zone.getCenterY();
+        int x2 = targetX(status.currentIncident, zone);
+        int y2 = targetY(status.currentIncident, zone);
         return Math.hypot(x2 - x1, y2 - y1);
     }
 
+    /**
+     * Drones are sent to the reported coordinates of an incident when they lie in its zone, otherwise to
+     * the zone center
+     */
+    private static int targetX(Incident incident, Zone zone) {
+        return incident.hasLocation() && zone.contains(incident.getX(), incident.getY())
+                ? incident.getX() : zone.getCenterX();
+    }
+
+    private static int targetY(Incident incident, Zone zone) {
+        return incident.hasLocation() && zone.contains(incident.getX(), incident.getY())
+                ? incident.getY() : zone.getCenterY();
+    }
+
+    /**
+     * Returns the timer wheel the scheduler runs its delayed tasks on
+     */
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    public FailureDetector getFailureDetector() {
+        return failureDetector;
+    }
+
+    public ReliableLink getControlLink() {
+        return controlLink;
+    }
+
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
     public List<Zone> getZones() {
-        return zones;
+        return zones.list();
     }
 
     /**
-     * Drone info class
+     * Drone info class. The port is where the drone's messages come from, 0 until the drone has sent one,
+     * in which case the drone is expected on port 6000 + id.
      */
     static class DroneInfo {
         int id, x, y;
         InetAddress address;
+        int port;
         long lastUpdateTime;
+        private InetSocketAddress replyAddress;
 
         DroneInfo(int id, int x, int y, InetAddress address) {
             this.id = id;
             this.x = x;
             this.y = y;
             this.address = address;
-            this.lastUpdateTime = System.currentTimeMillis();
+            this.lastUpdateTime = SimClock.current().millis();
+        }
+
+        /**
+         * Returns the socket address the drone listens on, cached until the drone's address changes
+         */
+        InetSocketAddress replyAddress() {
+            InetSocketAddress cached = replyAddress;
+            int replyPort = port > 0 ? port : DRONE_PORT + id;
+            if (cached == null || !cached.getAddress().equals(address) || cached.getPort() != replyPort) {
+                cached = new InetSocketAddress(address, replyPort);
+                replyAddress = cached;
+            }
+            return cached;
         }
     }
 
+    /**
+     * What the scheduler knows about a drone. The network, dispatcher and drone control threads all read
+     * it, so the fields they share are volatile.
+     */
     static class DroneStatus {
         DroneInfo droneInfo;
-        String state = "UNKNOWN";
-        boolean isAvailable = false;
-        String faultMessage = null;
-        Incident currentIncident = null;
-        boolean hasBeenRerouted = false;
+        volatile String state = "UNKNOWN";
+        volatile boolean isAvailable = false;
+        volatile String faultMessage = null;
+        volatile Incident currentIncident = null;
+        volatile boolean hasBeenRerouted = false;
+        TimerWheel.Timeout rerouteCooldown;
+        TimerWheel.Timeout faultReset;
+        /** Generation of the newest fault, only written by the network thread */
+        volatile int faultCount;
+        volatile FailureDetector.Health health = FailureDetector.Health.ALIVE;
 
         DroneStatus(DroneInfo info) {
             this.droneInfo = info;
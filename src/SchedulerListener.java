@@ -0,0 +1,30 @@
+/**
+ * Receives changes to the scheduler's state, used by displays so they only redraw what changed. Called on
+ * the scheduler's own threads, so implementations should just note the change and return.
+ */
+public interface SchedulerListener {
+
+    /**
+     * A drone's position, state, incident or fault changed
+     */
+    default void droneUpdated(int droneId) {
+    }
+
+    /**
+     * An incident was added to the pending queue, new or put back after a reroute, reassignment or fault
+     */
+    default void incidentQueued(Incident incident) {
+    }
+
+    /**
+     * A pending incident was handed to a drone
+     */
+    default void incidentAssigned(Incident incident, int droneId) {
+    }
+
+    default void incidentCompleted(Incident incident, int droneId) {
+    }
+
+    default void faultRaised(int droneId, FaultType faultType) {
+    }
+}
@@ -0,0 +1,242 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms and counters for the scheduler. Every incident is followed through its stages,
+ * received, queued, assigned, en route, dropping and completed, and the time between consecutive stages is
+ * recorded per severity and zone, along with the whole response from received to completed. An incident put
+ * back in the queue by a reroute, a reassignment or a fault starts again from queued. Times come from
+ * {@link SimClock}, so a simulated run reports simulated latencies.
+ */
+public class SchedulerMetrics implements SchedulerMetricsMXBean {
+    /**
+     * Stages an incident goes through, each records the time since the one before it
+     */
+    public enum Stage {
+        RECEIVED(null),
+        QUEUED("queue"),
+        ASSIGNED("dispatch"),
+        EN_ROUTE("launch"),
+        DROPPING("travel"),
+        COMPLETED("drop");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the name of the time spent getting to this stage, null for the first stage
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Label of the whole response from received to completed. */
+    public static final String RESPONSE = "response";
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final SimClock clock = SimClock.current();
+    private final Map<Long, Timeline> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byStage = new ConcurrentHashMap<>();
+    private final Map<Key, LatencyHistogram> bySeverityAndZone = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder reassignments = new LongAdder();
+    private final LongAdder reroutes = new LongAdder();
+    private final Map<FaultType, LongAdder> faults = new ConcurrentHashMap<>();
+
+    /**
+     * Times one incident reached each stage, {@link #UNSET} for stages it has not reached yet
+     */
+    private static final class Timeline {
+        final String severity;
+        final int zone;
+        final long[] at = new long[STAGES.length];
+
+        Timeline(String severity, int zone) {
+            this.severity = severity;
+            this.zone = zone;
+            Arrays.fill(at, UNSET);
+        }
+    }
+
+    /**
+     * Histogram key for one stage, severity and zone
+     */
+    record Key(String stage, String severity, int zone) {
+    }
+
+    /**
+     * Records an incident arriving from the fire incident subsystem
+     */
+    public void received(Incident incident) {
+        received.increment();
+        Timeline timeline = new Timeline(incident.getSeverity(), incident.getZone());
+        timeline.at[Stage.RECEIVED.ordinal()] = clock.nanos();
+        inFlight.put(incident.getIncidentNumber(), timeline);
+    }
+
+    /**
+     * Records an incident reaching a stage. A stage reached before the stage ahead of it, or reached a second
+     * time, is ignored, so repeated status updates are only counted once.
+     */
+    public void reached(Incident incident, Stage stage) {
+        if (stage == Stage.RECEIVED) throw new IllegalArgumentException("Use received() for new incidents");
+        if (incident == null) return;
+        Timeline timeline = inFlight.get(incident.getIncidentNumber());
+        if (timeline == null) return;
+        long now = clock.nanos();
+        long previous;
+        synchronized (timeline) {
+            int i = stage.ordinal();
+            previous = timeline.at[i - 1];
+            if (previous == UNSET || timeline.at[i] != UNSET) return;
+            timeline.at[i] = now;
+        }
+        record(stage.getLabel(), timeline, now - previous);
+        if (stage == Stage.COMPLETED) {
+            inFlight.remove(incident.getIncidentNumber());
+            completed.increment();
+            record(RESPONSE, timeline, now - timeline.at[Stage.RECEIVED.ordinal()]);
+        }
+    }
+
+    /**
+     * Records an incident going back to the pending queue, it is timed again from queued
+     */
+    public void requeued(Incident incident) {
+        if (incident == null) return;
+        Timeline timeline = inFlight.get(incident.getIncidentNumber());
+        if (timeline == null) return;
+        synchronized (timeline) {
+            for (int i = Stage.ASSIGNED.ordinal(); i < STAGES.length; i++) timeline.at[i] = UNSET;
+            timeline.at[Stage.QUEUED.ordinal()] = clock.nanos();
+        }
+    }
+
+    public void reassigned(Incident incident) {
+        reassignments.increment();
+        requeued(incident);
+    }
+
+    public void rerouted(Incident incident) {
+        reroutes.increment();
+        requeued(incident);
+    }
+
+    public void fault(FaultType type) {
+        if (type != null) faults.computeIfAbsent(type, t -> new LongAdder()).increment();
+    }
+
+    private void record(String label, Timeline timeline, long nanos) {
+        byStage.computeIfAbsent(label, l -> new LatencyHistogram()).record(nanos);
+        bySeverityAndZone.computeIfAbsent(new Key(label, timeline.severity, timeline.zone),
+                k -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Returns the histogram of a stage label or {@link #RESPONSE} over all severities and zones
+     */
+    public LatencyHistogram getHistogram(String label) {
+        return byStage.computeIfAbsent(label, l -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the histograms per stage label, severity and zone, sorted so the output is stable
+     */
+    public Map<Key, LatencyHistogram> getHistograms() {
+        Map<Key, LatencyHistogram> sorted = new TreeMap<>((a, b) -> {
+            int c = a.stage().compareTo(b.stage());
+            if (c == 0) c = a.severity().compareTo(b.severity());
+            return c != 0 ? c : Integer.compare(a.zone(), b.zone());
+        });
+        sorted.putAll(bySeverityAndZone);
+        return sorted;
+    }
+
+    public Map<FaultType, Long> getFaultCounts() {
+        Map<FaultType, Long> counts = new TreeMap<>();
+        faults.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as DroneSystem:type=SchedulerMetrics
+     */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("DroneSystem:type=SchedulerMetrics");
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            System.err.println("Could not register scheduler metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getIncidentsReceived() {
+        return received.sum();
+    }
+
+    @Override
+    public long getIncidentsCompleted() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getIncidentsInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public long getReassignments() {
+        return reassignments.sum();
+    }
+
+    @Override
+    public long getReroutes() {
+        return reroutes.sum();
+    }
+
+    @Override
+    public long getFaults() {
+        long total = 0;
+        for (LongAdder count : faults.values()) total += count.sum();
+        return total;
+    }
+
+    @Override
+    public double getDispatchLatencyP50Millis() {
+        return percentileMillis(Stage.ASSIGNED.getLabel(), 50);
+    }
+
+    @Override
+    public double getDispatchLatencyP99Millis() {
+        return percentileMillis(Stage.ASSIGNED.getLabel(), 99);
+    }
+
+    @Override
+    public double getResponseLatencyP50Millis() {
+        return percentileMillis(RESPONSE, 50);
+    }
+
+    @Override
+    public double getResponseLatencyP99Millis() {
+        return percentileMillis(RESPONSE, 99);
+    }
+
+    private double percentileMillis(String label, double percentile) {
+        return getHistogram(label).valueAtPercentile(percentile) / 1e6;
+    }
+}
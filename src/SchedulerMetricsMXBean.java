@@ -0,0 +1,24 @@
+/**
+ * JMX view of {@link SchedulerMetrics}. Latencies are in milliseconds over all severities and zones.
+ */
+public interface SchedulerMetricsMXBean {
+    long getIncidentsReceived();
+
+    long getIncidentsCompleted();
+
+    long getIncidentsInFlight();
+
+    long getReassignments();
+
+    long getReroutes();
+
+    long getFaults();
+
+    double getDispatchLatencyP50Millis();
+
+    double getDispatchLatencyP99Millis();
+
+    double getResponseLatencyP50Millis();
+
+    double getResponseLatencyP99Millis();
+}
@@ -0,0 +1,94 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class SchedulerMetricsTest {
+    private final VirtualClock clock = new VirtualClock();
+    private final SimClock previous = SimClock.current();
+
+    private SchedulerMetrics newMetrics() {
+        SimClock.install(clock);
+        return new SchedulerMetrics();
+    }
+
+    @After
+    public void restoreClock() {
+        SimClock.install(previous);
+        clock.close();
+    }
+
+    private void advance(long millis) throws InterruptedException {
+        clock.sleep(millis);
+    }
+
+    @Test
+    public void testStagesAreTimedFromThePreviousStage() throws Exception {
+        SchedulerMetrics metrics = newMetrics();
+        Incident incident = new Incident(42, "14:00:00", 3, "FIRE_DETECTED", "High");
+        metrics.received(incident);
+        metrics.reached(incident, SchedulerMetrics.Stage.QUEUED);
+        advance(2000);
+        metrics.reached(incident, SchedulerMetrics.Stage.ASSIGNED);
+        advance(1000);
+        metrics.reached(incident, SchedulerMetrics.Stage.EN_ROUTE);
+        advance(5000);
+        // Repeated status updates while flying are not counted again
+        metrics.reached(incident, SchedulerMetrics.Stage.EN_ROUTE);
+        metrics.reached(incident, SchedulerMetrics.Stage.DROPPING);
+        advance(3000);
+        metrics.reached(incident, SchedulerMetrics.Stage.COMPLETED);
+
+        assertEquals(2000, metrics.getDispatchLatencyP50Millis(), 2000 * 0.016);
+        assertEquals(1, metrics.getHistogram("launch").getCount());
+        assertEquals(5000, metrics.getHistogram("travel").getMax() / 1_000_000);
+        assertEquals(11000, metrics.getResponseLatencyP99Millis(), 11000 * 0.016);
+        assertEquals(1, metrics.getIncidentsCompleted());
+        assertEquals(0, metrics.getIncidentsInFlight());
+        assertTrue(metrics.getHistograms().containsKey(new SchedulerMetrics.Key("dispatch", "High", 3)));
+    }
+
+    @Test
+    public void testRerouteRestartsFromQueued() throws Exception {
+        SchedulerMetrics metrics = newMetrics();
+        Incident incident = new Incident(7, "14:00:00", 1, "DRONE_REQUEST", "Low");
+        metrics.received(incident);
+        metrics.reached(incident, SchedulerMetrics.Stage.QUEUED);
+        metrics.reached(incident, SchedulerMetrics.Stage.ASSIGNED);
+        advance(1000);
+        metrics.rerouted(incident);
+        // Not assigned again yet, a late status from the old drone is ignored
+        metrics.reached(incident, SchedulerMetrics.Stage.EN_ROUTE);
+        advance(4000);
+        metrics.reached(incident, SchedulerMetrics.Stage.ASSIGNED);
+
+        assertEquals(1, metrics.getReroutes());
+        assertEquals(0, metrics.getHistogram("launch").getCount());
+        assertEquals(2, metrics.getHistogram("dispatch").getCount());
+        assertEquals(4000, metrics.getHistogram("dispatch").getMax() / 1_000_000);
+    }
+
+    @Test
+    public void testPrometheusEndpoint() throws Exception {
+        SchedulerMetrics metrics = newMetrics();
+        Incident incident = new Incident(1, "14:00:00", 2, "FIRE_DETECTED", "Moderate");
+        metrics.received(incident);
+        metrics.reached(incident, SchedulerMetrics.Stage.QUEUED);
+        metrics.fault(FaultType.NOZZLE);
+        try (MetricsServer server = new MetricsServer(metrics, 0)) {
+            server.start();
+            String body;
+            try (InputStream in = URI.create("http://localhost:" + server.getPort() + "/metrics").toURL().openStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(body.contains("drone_incidents_received_total 1\n"));
+            assertTrue(body.contains("drone_faults_total{type=\"NOZZLE\"} 1\n"));
+            assertTrue(body.contains("drone_incident_latency_seconds_count{stage=\"queue\",severity=\"Moderate\",zone=\"2\"} 1\n"));
+            assertTrue(body.contains("quantile=\"0.99\""));
+        }
+    }
+}
@@ -1,17 +1,24 @@
 import javax.swing.*;
 import javax.swing.Timer;
-import javax.swing.text.Style;
-import javax.swing.text.StyleConstants;
-import javax.swing.text.StyledDocument;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.io.FileWriter;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Monitor window for the scheduler. The panels are tables fed by scheduler events: changes are collected
+ * as they happen and applied every 100 ms, so a tick only reformats the drones and incidents that changed
+ * and only their rows are repainted.
+ */
 public class SchedulerMonitorGUI extends JFrame {
     private static final Color BG_COLOR = new Color(18, 18, 18);
     private static final Color TEXT_COLOR = new Color(204, 204, 204);
@@ -19,29 +26,40 @@ public class SchedulerMonitorGUI extends JFrame {
     private static final Color VALUE_COLOR = new Color(95, 175, 95);
     private static final Color ALERT_COLOR = new Color(240, 113, 120);
     private static final Color HIGHLIGHT_COLOR = new Color(247, 200, 92);
+    private static final Color TIME_COLOR = new Color(186, 140, 241);
+    private static final int MAX_COMPLETED_ROWS = 500;
+    private static final int MAX_FAULT_ROWS = 200;
+    private static final int MAX_LOGGED_INCIDENTS = 4096;
 
-    private final Set<Integer> printedFaults = new HashSet<>();
-
-    private JTextPane dronesArea;
-    private JTextPane pendingArea;
-    private JTextPane completedArea;
-    private JTextPane faultArea;
     private final Map<Integer, Scheduler.DroneStatus> allDrones;
-    private final Queue<Incident> pendingIncidents;
-    private final List<Incident> completedIncidents;
+    private final CompletedIncidentStore completedIncidents;
     private final Scheduler scheduler;
+    private final MonitorTableModel<Integer> dronesModel =
+            new MonitorTableModel<>("Drone", "Position", "State", "Zone", "Distance");
+    private final MonitorTableModel<String> pendingModel = new MonitorTableModel<>("Zone", "Type", "Severity");
+    private final MonitorTableModel<String> completedModel = new MonitorTableModel<>("Zone", "Type", "Response Time");
+    private final MonitorTableModel<Long> faultModel = new MonitorTableModel<>("Drone", "Fault", "Fix");
+    private final JLabel completedTitle = new JLabel();
     private final JLabel elapsedTimeLabel = new JLabel("Elapsed Time: 00:00");
     private final MapPanel mapPanel;
-    private final String logFilePath = "log.txt";
+    private AsyncLogWriter logWriter;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private final Set<String> loggedIncidents = new HashSet<>();
+    // Incidents already logged as pending, so a requeued incident is not logged again
+    private final Set<String> loggedIncidents = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_LOGGED_INCIDENTS;
+        }
+    });
+    private final Set<Integer> changedDrones = ConcurrentHashMap.newKeySet();
+    private final Queue<Runnable> incidentChanges = new ConcurrentLinkedQueue<>();
+    private long faultCount = 0;
 
     public SchedulerMonitorGUI(Map<Integer, Scheduler.DroneStatus> drones,
                                Queue<Incident> pending,
-                               List<Incident> completed,
+                               CompletedIncidentStore completed,
                                Scheduler scheduler) {
         this.allDrones = drones;
-        this.pendingIncidents = pending;
         this.completedIncidents = completed;
         this.scheduler = scheduler;
         this.mapPanel = new MapPanel(
@@ -58,11 +76,6 @@ public class SchedulerMonitorGUI extends JFrame {
         setLayout(new BorderLayout(5, 5));
         getContentPane().setBackground(BG_COLOR);
 
-        dronesArea = createStyledTextPane();
-        pendingArea = createStyledTextPane();
-        completedArea = createStyledTextPane();
-        faultArea = createStyledTextPane();
-
         elapsedTimeLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
         elapsedTimeLabel.setForeground(HEADER_COLOR);
         elapsedTimeLabel.setHorizontalAlignment(SwingConstants.LEFT);
@@ -73,32 +86,118 @@ public class SchedulerMonitorGUI extends JFrame {
         JPanel gridPanel = new JPanel(new GridLayout(2, 2, 5, 5));
         gridPanel.setBackground(BG_COLOR);
 
-        gridPanel.add(createTitledPanel("FAULT REPORTS", faultArea));
-        gridPanel.add(createTitledPanel("DRONES STATUS", dronesArea));
-        gridPanel.add(createTitledPanel("PENDING INCIDENTS", pendingArea));
-        gridPanel.add(createTitledPanel("COMPLETED INCIDENTS", completedArea));
+        gridPanel.add(createTitledPanel(new JLabel(" FAULT REPORTS "),
+                createTable(faultModel, HIGHLIGHT_COLOR, ALERT_COLOR, VALUE_COLOR)));
+        gridPanel.add(createTitledPanel(new JLabel(" DRONES STATUS "), createDronesTable()));
+        gridPanel.add(createTitledPanel(new JLabel(" PENDING INCIDENTS "),
+                createTable(pendingModel, HIGHLIGHT_COLOR, VALUE_COLOR, ALERT_COLOR)));
+        gridPanel.add(createTitledPanel(completedTitle,
+                createTable(completedModel, HIGHLIGHT_COLOR, VALUE_COLOR, TIME_COLOR)));
 
         add(gridPanel, BorderLayout.CENTER);
         add(mapPanel, BorderLayout.EAST);
+
+        // Listen before reading the current state, so nothing that changes in between is missed
+        scheduler.addListener(new SchedulerListener() {
+            @Override
+            public void droneUpdated(int droneId) {
+                changedDrones.add(droneId);
+            }
+
+            @Override
+            public void incidentQueued(Incident incident) {
+                incidentChanges.add(() -> showPending(incident));
+            }
+
+            @Override
+            public void incidentAssigned(Incident incident, int droneId) {
+                incidentChanges.add(() -> pendingModel.remove(incident.getIncidentID()));
+            }
+
+            @Override
+            public void incidentCompleted(Incident incident, int droneId) {
+                incidentChanges.add(() -> showCompleted(incident));
+            }
+
+            @Override
+            public void faultRaised(int droneId, FaultType faultType) {
+                incidentChanges.add(() -> showFault(droneId, faultType));
+            }
+        });
+        changedDrones.addAll(drones.keySet());
+        for (Incident incident : pending) showPending(incident);
+        for (Incident incident : completed.recent()) showCompleted(incident);
+        updateCompletedTitle();
+
         new Timer(100, (ActionEvent e) -> updateDisplays()).start();
 
         setVisible(true);
     }
 
-    private JTextPane createStyledTextPane() {
-        JTextPane textPane = new JTextPane();
-        textPane.setEditable(false);
-        textPane.setBackground(BG_COLOR);
-        textPane.setFont(new Font("Consolas", Font.PLAIN, 12));
-        return textPane;
+    private JTable createTable(MonitorTableModel<?> model, Color... columnColors) {
+        JTable table = new JTable(model);
+        table.setDefaultRenderer(Object.class, new CellRenderer(columnColors));
+        styleTable(table);
+        return table;
     }
 
-    private JPanel createTitledPanel(String title, JTextPane textPane) {
+    private JTable createDronesTable() {
+        JTable table = new JTable(dronesModel);
+        table.setDefaultRenderer(Object.class, new CellRenderer(HIGHLIGHT_COLOR, VALUE_COLOR, null, null, VALUE_COLOR) {
+            @Override
+            Color colorFor(String value, int column) {
+                if (column == 2) {
+                    return value.equals("IDLE") ? TEXT_COLOR : value.equals("RETURNING") ? VALUE_COLOR : HIGHLIGHT_COLOR;
+                }
+                if (column == 3) return value.equals("None") ? TEXT_COLOR : ALERT_COLOR;
+                return super.colorFor(value, column);
+            }
+        });
+        styleTable(table);
+        return table;
+    }
+
+    private void styleTable(JTable table) {
+        table.setBackground(BG_COLOR);
+        table.setForeground(TEXT_COLOR);
+        table.setGridColor(BG_COLOR);
+        table.setFont(new Font("Consolas", Font.PLAIN, 12));
+        table.setFillsViewportHeight(true);
+        table.setRowSelectionAllowed(false);
+        table.getTableHeader().setBackground(BG_COLOR);
+        table.getTableHeader().setForeground(HEADER_COLOR);
+    }
+
+    /**
+     * Colors each column of a table, cells keep the text they were formatted with
+     */
+    private static class CellRenderer extends DefaultTableCellRenderer {
+        private final Color[] columnColors;
+
+        CellRenderer(Color... columnColors) {
+            this.columnColors = columnColors;
+        }
+
+        Color colorFor(String value, int column) {
+            Color color = column < columnColors.length ? columnColors[column] : null;
+            return color != null ? color : TEXT_COLOR;
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, false, false, row, column);
+            setBackground(BG_COLOR);
+            setForeground(colorFor(String.valueOf(value), column));
+            return this;
+        }
+    }
+
+    private JPanel createTitledPanel(JLabel titleLabel, JComponent content) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(BG_COLOR);
         panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
 
-        JLabel titleLabel = new JLabel(" " + title + " ");
         titleLabel.setFont(new Font("Consolas", Font.BOLD, 14));
         titleLabel.setForeground(HEADER_COLOR);
         titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
@@ -107,235 +206,146 @@ public class SchedulerMonitorGUI extends JFrame {
                 BorderFactory.createEmptyBorder(3, 0, 3, 0)
         ));
 
+        JScrollPane scrollPane = new JScrollPane(content);
+        scrollPane.getViewport().setBackground(BG_COLOR);
         panel.add(titleLabel, BorderLayout.NORTH);
-        panel.add(new JScrollPane(textPane), BorderLayout.CENTER);
+        panel.add(scrollPane, BorderLayout.CENTER);
         return panel;
     }
 
+    /**
+     * Applies the changes collected since the last tick
+     */
     private void updateDisplays() {
         String timeInfo = scheduler.getElapsedTimeFormatted();
         elapsedTimeLabel.setText(timeInfo);
-        updateDronesArea();
-        updatePendingArea();
-        updateCompletedArea();
-        updateFaultArea();
-        mapPanel.repaint();
-    }
-
-    private void updateFaultArea() {
-        StyledDocument doc = faultArea.getStyledDocument();
-
-        Style defaultStyle = faultArea.addStyle("default", null);
-        StyleConstants.setForeground(defaultStyle, TEXT_COLOR);
-
-        Style idStyle = faultArea.addStyle("id", null);
-        StyleConstants.setForeground(idStyle, HIGHLIGHT_COLOR);
-        StyleConstants.setBold(idStyle, true);
-
-        Style errorStyle = faultArea.addStyle("error", null);
-        StyleConstants.setForeground(errorStyle, ALERT_COLOR);
-
-        Style fixStyle = faultArea.addStyle("fix", null);
-        StyleConstants.setForeground(fixStyle, VALUE_COLOR);
-
-        try {
-            for (Map.Entry<Integer, Scheduler.DroneStatus> entry : allDrones.entrySet()) {
-                int id = entry.getKey();
-                Scheduler.DroneStatus status = entry.getValue();
-
-                String current = status.faultMessage;
-                if (current != null) {
-                    try {
-                        doc.insertString(doc.getLength(), "Drone ", defaultStyle);
-                        doc.insertString(doc.getLength(), String.valueOf(id), idStyle);
-                        doc.insertString(doc.getLength(), ": ", defaultStyle);
-                        doc.insertString(doc.getLength(), current + "\n", errorStyle);
-
-                        String fix = diagnoseFix(current);
-                        doc.insertString(doc.getLength(), "Fix: ", defaultStyle);
-                        doc.insertString(doc.getLength(), fix + "\n\n", fixStyle);
-
-                        faultArea.setCaretPosition(doc.getLength());
-
-                        String logContent = "Drone " + id + ": " + current + " | Fix: " + fix;
-                        logToFile("FAULT REPORT", logContent);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        Runnable change;
+        while ((change = incidentChanges.poll()) != null) {
+            change.run();
         }
+        List<Integer> drones = new ArrayList<>();
+        for (Iterator<Integer> it = changedDrones.iterator(); it.hasNext(); ) {
+            int id = it.next();
+            it.remove();
+            showDrone(id);
+            drones.add(id);
+        }
+        mapPanel.refresh(drones);
     }
 
-    private String diagnoseFix(String msg) {
-        msg = msg.toLowerCase();
-        if (msg.contains("nozzle")) return "Force nozzle reset and return to base.";
-        if (msg.contains("stuck")) return "Initiate return-to-base maneuver.";
-        if (msg.contains("packet loss")) return "Re-establish communication.";
-        return "Manual inspection required.";
+    private void showDrone(int id) {
+        Scheduler.DroneStatus status = allDrones.get(id);
+        if (status == null) {
+            dronesModel.remove(id);
+            return;
+        }
+        Incident incident = status.currentIncident;
+        String zone = incident != null ? String.valueOf(incident.getZone()) : "None";
+        String distance = incident != null ? String.format("%.2f meters", scheduler.getDistanceToIncident(id)) : "";
+        dronesModel.put(id, String.valueOf(id), "(" + status.droneInfo.x + ", " + status.droneInfo.y + ")",
+                status.state, zone, distance);
     }
 
-    private void updateDronesArea() {
-        StyledDocument doc = dronesArea.getStyledDocument();
-
-        Style defaultStyle = dronesArea.addStyle("default", null);
-        StyleConstants.setForeground(defaultStyle, TEXT_COLOR);
-
-        Style valueStyle = dronesArea.addStyle("value", null);
-        StyleConstants.setForeground(valueStyle, VALUE_COLOR);
-
-        Style highlightStyle = dronesArea.addStyle("highlight", null);
-        StyleConstants.setForeground(highlightStyle, HIGHLIGHT_COLOR);
-        StyleConstants.setBold(highlightStyle, true);
-
-        Style alertStyle = dronesArea.addStyle("alert", null);
-        StyleConstants.setForeground(alertStyle, ALERT_COLOR);
-
-        try {
-            doc.remove(0, doc.getLength());
-
-            allDrones.forEach((id, status) -> {
-                String zone = status.currentIncident != null ? String.valueOf(status.currentIncident.getZone()) : "None";
-                try {
-                    doc.insertString(doc.getLength(), "Drone ", defaultStyle);
-                    doc.insertString(doc.getLength(), String.valueOf(id), highlightStyle);
-                    doc.insertString(doc.getLength(), ": (", defaultStyle);
-                    doc.insertString(doc.getLength(), String.valueOf(status.droneInfo.x), valueStyle);
-                    doc.insertString(doc.getLength(), ", ", defaultStyle);
-                    doc.insertString(doc.getLength(), String.valueOf(status.droneInfo.y), valueStyle);
-                    doc.insertString(doc.getLength(), ") State: ", defaultStyle);
-
-                    Style stateStyle = status.state.equals("IDLE") ? defaultStyle :
-                            status.state.equals("RETURNING") ? valueStyle : highlightStyle;
-                    doc.insertString(doc.getLength(), status.state, stateStyle);
-
-                    doc.insertString(doc.getLength(), " Zone: ", defaultStyle);
-                    Style zoneStyle = zone.equals("None") ? defaultStyle : alertStyle;
-                    doc.insertString(doc.getLength(), zone, zoneStyle);
-                    if (status.currentIncident != null) {
-                        double distance = scheduler.getDistanceToIncident(id);
-                        doc.insertString(doc.getLength(), " Distance: ", defaultStyle);
-                        doc.insertString(doc.getLength(), String.format("%.2f meters", distance), valueStyle);
-                    }
-                    doc.insertString(doc.getLength(), "\n", defaultStyle);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            });
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void showPending(Incident inc) {
+        String incidentID = inc.getIncidentID();
+        pendingModel.put(incidentID, String.valueOf(inc.getZone()), inc.getEventType(), inc.getSeverity());
+        if (loggedIncidents.add(incidentID)) {
+            logToFile("PENDING INCIDENT", "Zone " + inc.getZone() + " | Type: " + inc.getEventType() +
+                    " | Sev: " + inc.getSeverity());
         }
     }
 
-    private void updatePendingArea() {
-        StyledDocument doc = pendingArea.getStyledDocument();
-
-        Style defaultStyle = pendingArea.addStyle("default", null);
-        StyleConstants.setForeground(defaultStyle, TEXT_COLOR);
-
-        Style zoneStyle = pendingArea.addStyle("zone", null);
-        StyleConstants.setForeground(zoneStyle, HIGHLIGHT_COLOR);
-        StyleConstants.setBold(zoneStyle, true);
-
-        Style typeStyle = pendingArea.addStyle("type", null);
-        StyleConstants.setForeground(typeStyle, VALUE_COLOR);
+    private void showCompleted(Incident inc) {
+        String incidentID = inc.getIncidentID();
+        if (completedModel.contains(incidentID)) return;
+        pendingModel.remove(incidentID);
+        String completionTime = inc.getCompletionTimeFormatted();
+        completedModel.put(incidentID, String.valueOf(inc.getZone()), inc.getEventType(), completionTime);
+        completedModel.trimTo(MAX_COMPLETED_ROWS);
+        updateCompletedTitle();
+        logToFile("COMPLETED INCIDENT", "Zone " + inc.getZone() + " | Type: " + inc.getEventType() +
+                " | Response Time: " + completionTime);
+    }
 
-        Style sevStyle = pendingArea.addStyle("severity", null);
-        StyleConstants.setForeground(sevStyle, ALERT_COLOR);
+    private void updateCompletedTitle() {
+        CompletedIncidentStore.Aggregate total = completedIncidents.getTotal();
+        completedTitle.setText(String.format(" COMPLETED INCIDENTS (%d, mean %s) ",
+                total.getCount(), formatMillis((long) total.getMeanMillis())));
+    }
 
-        try {
-            doc.remove(0, doc.getLength());
-            for (Incident inc : pendingIncidents) {
-                String incidentID = inc.getIncidentID();
-
-                doc.insertString(doc.getLength(), "Zone ", defaultStyle);
-                doc.insertString(doc.getLength(), String.valueOf(inc.getZone()), zoneStyle);
-                doc.insertString(doc.getLength(), " | Type: ", defaultStyle);
-                doc.insertString(doc.getLength(), inc.getEventType(), typeStyle);
-                doc.insertString(doc.getLength(), " | Sev: ", defaultStyle);
-                doc.insertString(doc.getLength(), inc.getSeverity(), sevStyle);
-                doc.insertString(doc.getLength(), "\n", defaultStyle);
-                
-                if (!loggedIncidents.contains(incidentID)) {
-                    String logContent = "Zone " + inc.getZone() + " | Type: " + inc.getEventType() +
-                            " | Sev: " + inc.getSeverity();
-                    logToFile("PENDING INCIDENT", logContent);
-                    loggedIncidents.add(incidentID);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void showFault(int droneId, FaultType faultType) {
+        String description = faultType.getDescription();
+        String fix = faultType.getRecovery();
+        faultModel.put(faultCount++, String.valueOf(droneId), description, fix);
+        faultModel.trimTo(MAX_FAULT_ROWS);
+        logToFile("FAULT REPORT", "Drone " + droneId + ": " + description + " | Fix: " + fix);
     }
 
+    /**
+     * Opens the monitor log. The file, its rotation and what happens when the writer falls behind come from
+     * the scheduler.logFile, scheduler.logMaxBytes, scheduler.logRotateMillis and scheduler.logOverflow
+     * properties.
+     */
     private void initLogFile() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(logFilePath))) {
-            writer.println("========== SCHEDULER MONITOR LOG ==========");
-            writer.println("Started: " + dateFormat.format(new Date()));
-            writer.println("=========================================");
-            writer.println();
+        try {
+            logWriter = new AsyncLogWriter(System.getProperty("scheduler.logFile", "log.txt"), 8192);
+            logWriter.setMaxBytes(Long.getLong("scheduler.logMaxBytes", 10L * 1024 * 1024));
+            logWriter.setRotateIntervalMillis(Long.getLong("scheduler.logRotateMillis", 0));
+            logWriter.setOverflowPolicy(AsyncLogWriter.OverflowPolicy.valueOf(
+                    System.getProperty("scheduler.logOverflow", "DROP_OLDEST").toUpperCase()));
+            Runtime.getRuntime().addShutdownHook(new Thread(logWriter::close));
         } catch (IOException e) {
             System.err.println("Error initializing log file: " + e.getMessage());
+            return;
         }
+        logWriter.append("========== SCHEDULER MONITOR LOG ==========");
+        logWriter.append("Started: " + dateFormat.format(new Date()));
+        logWriter.append("=========================================");
+        logWriter.append("");
     }
 
     private void logToFile(String category, String content) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(logFilePath, true))) {
-            writer.println(dateFormat.format(new Date()) + " - " + category + ": " + content);
-        } catch (IOException e) {
-            System.err.println("Error writing to log file: " + e.getMessage());
-        }
+        if (logWriter != null) logWriter.append(dateFormat.format(new Date()) + " - " + category + ": " + content);
     }
 
-    private void updateCompletedArea() {
-        StyledDocument doc = completedArea.getStyledDocument();
-
-        Style defaultStyle = completedArea.addStyle("default", null);
-        StyleConstants.setForeground(defaultStyle, TEXT_COLOR);
-
-        Style zoneStyle = completedArea.addStyle("zone", null);
-        StyleConstants.setForeground(zoneStyle, HIGHLIGHT_COLOR);
-        StyleConstants.setBold(zoneStyle, true);
-
-        Style typeStyle = completedArea.addStyle("type", null);
-        StyleConstants.setForeground(typeStyle, VALUE_COLOR);
-
-        Style timeStyle = completedArea.addStyle("time", null);
-        StyleConstants.setForeground(timeStyle, new Color(186, 140, 241));
-
-        try {
-            doc.remove(0, doc.getLength());
-            for (Incident inc : completedIncidents) {
-                String incidentID = inc.getIncidentID();
-
-                doc.insertString(doc.getLength(), "Zone ", defaultStyle);
-                doc.insertString(doc.getLength(), String.valueOf(inc.getZone()), zoneStyle);
-                doc.insertString(doc.getLength(), " | Type: ", defaultStyle);
-                doc.insertString(doc.getLength(), inc.getEventType(), typeStyle);
-                doc.insertString(doc.getLength(), " | Response Time: ", defaultStyle);
-
-                String completionTime = inc.getCompletionTimeFormatted();
-                doc.insertString(doc.getLength(), completionTime, timeStyle);
-                doc.insertString(doc.getLength(), "\n", defaultStyle);
-
-                if (!loggedIncidents.contains("completed:" + incidentID)) {
-                    String logContent = "Zone " + inc.getZone() + " | Type: " + inc.getEventType() +
-                            " | Response Time: " + completionTime;
-                    logToFile("COMPLETED INCIDENT", logContent);
-                    loggedIncidents.add("completed:" + incidentID);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private static String formatMillis(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
     }
 }
 
+/**
+ * Map of the zones, drones and active incidents, with pan (drag), zoom (mouse wheel) and a double click to
+ * fit the zones again. The zone outlines are drawn into an image that is only redrawn when the view or the
+ * zones change. Drone positions and incident counts are copied on each {@link #refresh(Collection)} and only
+ * the areas that changed are repainted. When more drones are on screen than can be told apart they are
+ * drawn as clusters: one circle per grid cell with the number of drones and a bar split by state.
+ */
 class MapPanel extends JPanel {
+    private static final int SCALE = 10;
+    private static final int CLUSTER_CELL_PX = 40;
+    private static final int MAX_INDIVIDUAL_DRONES = 400;
+    private static final double MIN_ZOOM = 0.25, MAX_ZOOM = 64;
+    private static final Map<String, Color> STATE_COLORS = Map.of(
+            "IDLE", new Color(204, 204, 204),
+            "EN_ROUTE", new Color(247, 200, 92),
+            "DROPPING_AGENT", new Color(240, 113, 120),
+            "RETURNING", new Color(95, 175, 95));
     private final Scheduler scheduler;
     private final Color bgColor, zoneColor, droneColor, incidentColor;
+    private BufferedImage zoneLayer;
+    private int layerZoneCount = -1;
+    private boolean viewChanged = true;
+    private boolean userMoved = false;
+    // Screen position of map coordinate 0,0 and pixels per map unit
+    private double originX, originY;
+    private double scale = 1.0 / SCALE;
+    private final Map<Integer, Rectangle> markerBounds = new HashMap<>();
+    // What is on screen: drones by grid cell, and the incident count per zone
+    private final DroneClusters clusters = new DroneClusters(CLUSTER_CELL_PX * SCALE);
+    private Map<Integer, Integer> incidentCounts = new HashMap<>();
+    private boolean clustered = false;
+    private Point dragStart;
 
     public MapPanel(Scheduler scheduler, Color bgColor, Color zoneColor, Color droneColor, Color incidentColor) {
         this.scheduler = scheduler;
@@ -346,79 +356,248 @@ class MapPanel extends JPanel {
 
         setPreferredSize(new Dimension(500, 500));
         setBackground(bgColor);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart == null) return;
+                originX += e.getX() - dragStart.x;
+                originY += e.getY() - dragStart.y;
+                dragStart = e.getPoint();
+                userMoved = true;
+                viewChanged();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    userMoved = false;
+                    fitZones();
+                    viewChanged();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double zoom = scale * SCALE * Math.pow(2, -e.getWheelRotation());
+                zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+                double newScale = zoom / SCALE;
+                // Keep the point under the cursor in place
+                originX = e.getX() - (e.getX() - originX) * newScale / scale;
+                originY = e.getY() - (e.getY() - originY) * newScale / scale;
+                scale = newScale;
+                userMoved = true;
+                viewChanged();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        List<Zone> zones = scheduler.getZones();
-        Map<Integer, Scheduler.DroneStatus> drones = scheduler.getAllDrones();
+    /**
+     * Picks up the new positions of drones that changed and the current incident counts, and repaints
+     * just the areas they cover
+     * @param changedDrones ids of drones that changed since the last refresh
+     */
+    void refresh(Collection<Integer> changedDrones) {
+        if (layoutChanged()) {
+            for (int id : changedDrones) copyDrone(id);
+            incidentCounts = new HashMap<>(scheduler.getActiveIncidentsByZone());
+            repaint();
+            return;
+        }
+        Rectangle visible = visibleArea();
+        boolean nowClustered = clusters.countIn(visible.x, visible.y, visible.x + visible.width,
+                visible.y + visible.height) > MAX_INDIVIDUAL_DRONES;
+        for (int id : changedDrones) {
+            Rectangle before = droneBounds(id, nowClustered);
+            if (!copyDrone(id)) continue;
+            if (before != null) repaint(before);
+            Rectangle after = droneBounds(id, nowClustered);
+            if (after != null) repaint(after);
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>(scheduler.getActiveIncidentsByZone());
+        if (!counts.equals(incidentCounts)) {
+            Set<Integer> changedZones = new HashSet<>(counts.keySet());
+            changedZones.addAll(incidentCounts.keySet());
+            Map<Integer, Integer> previous = incidentCounts;
+            incidentCounts = counts;
+            for (int zone : changedZones) {
+                Rectangle bounds = markerBounds.get(zone);
+                if (bounds != null && !Objects.equals(previous.get(zone), counts.get(zone))) repaint(bounds);
+            }
+        }
+        if (nowClustered != clustered) repaint();
+    }
+
+    /**
+     * Copies a drone's position and state into the clusters
+     * @return true if it changed
+     */
+    private boolean copyDrone(int id) {
+        Scheduler.DroneStatus status = scheduler.getAllDrones().get(id);
+        if (status == null) {
+            boolean known = clusters.get(id) != null;
+            clusters.remove(id);
+            return known;
+        }
+        return clusters.update(id, status.droneInfo.x, status.droneInfo.y, status.state);
+    }
+
+    /**
+     * Returns the screen area a drone is drawn in, its cluster's area when clustered
+     */
+    private Rectangle droneBounds(int id, boolean asCluster) {
+        DroneClusters.Drone drone = clusters.get(id);
+        if (drone == null) return null;
+        if (asCluster) {
+            int cell = clusters.getCellSize();
+            int x = screenX((long) drone.cluster.cellX * cell), y = screenY((long) drone.cluster.cellY * cell);
+            return new Rectangle(x - 2, y - 2, CLUSTER_CELL_PX + 4, CLUSTER_CELL_PX + 4);
+        }
+        return new Rectangle(screenX(drone.x) - 4, screenY(drone.y) - 4, 8, 8);
+    }
+
+    private int screenX(double mapX) {
+        return (int) Math.round(originX + mapX * scale);
+    }
+
+    private int screenY(double mapY) {
+        return (int) Math.round(originY + mapY * scale);
+    }
+
+    /**
+     * Returns the part of the map on screen, in map coordinates
+     */
+    private Rectangle visibleArea() {
+        int minX = (int) Math.floor(-originX / scale), minY = (int) Math.floor(-originY / scale);
+        return new Rectangle(minX, minY, (int) Math.ceil(getWidth() / scale), (int) Math.ceil(getHeight() / scale));
+    }
+
+    private void viewChanged() {
+        viewChanged = true;
+        repaint();
+    }
+
+    private boolean layoutChanged() {
+        return viewChanged || zoneLayer == null || layerZoneCount != scheduler.getZones().size()
+                || zoneLayer.getWidth() != getWidth() || zoneLayer.getHeight() != getHeight();
+    }
 
+    /**
+     * Centers the zones in the panel at the default zoom
+     */
+    private void fitZones() {
+        List<Zone> zones = scheduler.getZones();
         int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
         int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
         for (Zone z : zones) {
-            int sx = z.getStartX() / 10;
-            int sy = z.getStartY() / 10;
-            int ex = z.getEndX() / 10;
-            int ey = z.getEndY() / 10;
-            minX = Math.min(minX, sx);
-            minY = Math.min(minY, sy);
-            maxX = Math.max(maxX, ex);
-            maxY = Math.max(maxY, ey);
+            minX = Math.min(minX, z.getStartX());
+            minY = Math.min(minY, z.getStartY());
+            maxX = Math.max(maxX, z.getEndX());
+            maxY = Math.max(maxY, z.getEndY());
         }
+        if (zones.isEmpty()) {
+            minX = minY = maxX = maxY = 0;
+        }
+        scale = 1.0 / SCALE;
+        originX = (getWidth() - (maxX - minX) * scale) / 2 - minX * scale;
+        originY = (getHeight() - (maxY - minY) * scale) / 2 - minY * scale;
+    }
 
-        int mapWidth = maxX - minX;
-        int mapHeight = maxY - minY;
-        int panelWidth = getWidth();
-        int panelHeight = getHeight();
-        int offsetX = (panelWidth - mapWidth) / 2 - minX;
-        int offsetY = (panelHeight - mapHeight) / 2 - minY;
+    /**
+     * Draws the zone outlines into the zone layer for the current view
+     */
+    private void layoutZones() {
+        if (!userMoved) fitZones();
+        viewChanged = false;
+        clusters.setCellSize((int) Math.ceil(CLUSTER_CELL_PX / scale));
 
-        Graphics2D g2 = (Graphics2D) g;
+        List<Zone> zones = scheduler.getZones();
+        zoneLayer = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()), BufferedImage.TYPE_INT_RGB);
+        layerZoneCount = zones.size();
+        markerBounds.clear();
+        Graphics2D g2 = zoneLayer.createGraphics();
+        g2.setColor(bgColor);
+        g2.fillRect(0, 0, zoneLayer.getWidth(), zoneLayer.getHeight());
         g2.setColor(zoneColor);
-
-        Set<String> activeIncidentIDs = new HashSet<>();
-        Queue<Incident> pending = scheduler.getPendingIncidents();
-        for (Incident i : pending) activeIncidentIDs.add(i.getIncidentID());
-        for (Scheduler.DroneStatus status : drones.values()) {
-            if (status.currentIncident != null) {
-                activeIncidentIDs.add(status.currentIncident.getIncidentID());
-            }
-        }
-
         for (Zone zone : zones) {
-            int x = zone.getStartX() / 10 + offsetX;
-            int y = zone.getStartY() / 10 + offsetY;
-            int width = (zone.getEndX() - zone.getStartX()) / 10;
-            int height = (zone.getEndY() - zone.getStartY()) / 10;
+            int x = screenX(zone.getStartX());
+            int y = screenY(zone.getStartY());
+            int width = screenX(zone.getEndX()) - x;
+            int height = screenY(zone.getEndY()) - y;
             g2.drawRect(x, y, width, height);
+            // Room for the dot and a count next to it
+            markerBounds.put(zone.getId(), new Rectangle(x + width / 2 - 4, y + height / 2 - 6, 32, 12));
+        }
+        g2.dispose();
+    }
 
-            boolean hasIncident = false;
-            for (Incident inc : pending) {
-                if (inc.getZone() == zone.getId()) {
-                    hasIncident = true;
-                    break;
-                }
-            }
-            for (Scheduler.DroneStatus status : drones.values()) {
-                if (status.currentIncident != null && status.currentIncident.getZone() == zone.getId()) {
-                    hasIncident = true;
-                    break;
-                }
-            }
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (layoutChanged()) layoutZones();
+        g.drawImage(zoneLayer, 0, 0, null);
+        Rectangle clip = g.getClipBounds();
 
-            if (hasIncident) {
-                g2.setColor(incidentColor);
-                g2.fillOval(x + width / 2 - 4, y + height / 2 - 4, 8, 8);
-                g2.setColor(zoneColor);
-            }
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setColor(incidentColor);
+        for (Map.Entry<Integer, Integer> entry : incidentCounts.entrySet()) {
+            Rectangle bounds = markerBounds.get(entry.getKey());
+            if (bounds == null || (clip != null && !clip.intersects(bounds))) continue;
+            g2.fillOval(bounds.x, bounds.y + 2, 8, 8);
+            if (entry.getValue() > 1) g2.drawString(String.valueOf(entry.getValue()), bounds.x + 10, bounds.y + 11);
+        }
+
+        // Only the drones in the clip are looked at, found through their cells
+        Rectangle area = clip != null ? clip : new Rectangle(0, 0, getWidth(), getHeight());
+        int minX = (int) Math.floor((area.x - originX) / scale), minY = (int) Math.floor((area.y - originY) / scale);
+        int maxX = (int) Math.ceil((area.x + area.width - originX) / scale);
+        int maxY = (int) Math.ceil((area.y + area.height - originY) / scale);
+        Rectangle visible = visibleArea();
+        clustered = clusters.countIn(visible.x, visible.y, visible.x + visible.width,
+                visible.y + visible.height) > MAX_INDIVIDUAL_DRONES;
+        int margin = (int) Math.ceil(4 / scale);
+        if (clustered) {
+            clusters.forEachCluster(minX, minY, maxX, maxY, cluster -> paintCluster(g2, cluster));
+        } else {
+            g2.setColor(droneColor);
+            clusters.forEachCluster(minX - margin, minY - margin, maxX + margin, maxY + margin, cluster -> {
+                for (DroneClusters.Drone drone : cluster.drones) {
+                    g2.fillOval(screenX(drone.x) - 3, screenY(drone.y) - 3, 6, 6);
+                }
+            });
         }
+    }
 
+    /**
+     * Draws a circle sized by the number of drones in a cell, the count, and a bar split by state
+     */
+    private void paintCluster(Graphics2D g2, DroneClusters.Cluster cluster) {
+        int cell = clusters.getCellSize();
+        int left = screenX((long) cluster.cellX * cell), top = screenY((long) cluster.cellY * cell);
+        int count = cluster.count();
+        int diameter = Math.min(CLUSTER_CELL_PX - 8, 10 + (int) (4 * Math.log(count)));
+        int cx = left + CLUSTER_CELL_PX / 2, cy = top + CLUSTER_CELL_PX / 2 - 4;
         g2.setColor(droneColor);
-        for (Scheduler.DroneStatus drone : drones.values()) {
-            int dx = drone.droneInfo.x / 10 + offsetX;
-            int dy = drone.droneInfo.y / 10 + offsetY;
-            g2.fillOval(dx - 3, dy - 3, 6, 6);
+        g2.fillOval(cx - diameter / 2, cy - diameter / 2, diameter, diameter);
+        g2.setColor(bgColor);
+        String label = String.valueOf(count);
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString(label, cx - metrics.stringWidth(label) / 2, cy + metrics.getAscent() / 2 - 1);
+
+        int barWidth = CLUSTER_CELL_PX - 8, x = left + 4, y = top + CLUSTER_CELL_PX - 6;
+        for (Map.Entry<String, Integer> state : cluster.states().entrySet()) {
+            int width = (int) Math.round((double) barWidth * state.getValue() / count);
+            g2.setColor(STATE_COLORS.getOrDefault(state.getKey(), zoneColor));
+            g2.fillRect(x, y, width, 3);
+            x += width;
         }
     }
-}
\ No newline at end of file
+}
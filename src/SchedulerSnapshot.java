@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of the scheduler's state: zones, the drone registry, pending incidents, incidents
+ * assigned to drones and completed incident totals, together with the journal sequence number it was taken at.
+ * A restart loads the newest snapshot and replays only the journal records after that sequence number.
+ *
+ * <pre>
+ * header     magic, version, sequence, taken at millis
+ * zones      count, (id, startX, startY, endX, endY)
+ * drones     count, (id, x, y, address length, address, port, state, available)
+ * pending    count, incident block
+ * in flight  count, (droneId, incident block)
+ * completed  count, (zone, severity code, count, total millis, min millis, max millis)
+ * crc32 of everything before it
+ * </pre>
+ * Snapshots are written to a temporary file and renamed, so a crash while writing leaves the previous one.
+ */
+public class SchedulerSnapshot {
+    private static final int MAGIC = 0x44534E50;
+    private static final byte VERSION = 3;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int KEEP = 2;
+    private static final DroneSubsystem.DroneState[] STATES = DroneSubsystem.DroneState.values();
+
+    final long sequence;
+    final long takenAtMillis;
+    final List<Zone> zones = new ArrayList<>();
+    final List<Drone> drones = new ArrayList<>();
+    final List<Incident> pending = new ArrayList<>();
+    final Map<Integer, Incident> inFlight = new LinkedHashMap<>();
+    final Map<CompletedIncidentStore.Key, CompletedIncidentStore.Aggregate> completed;
+
+    /**
+     * Registry entry for one drone
+     */
+    record Drone(int id, int x, int y, InetAddress address, int port, String state, boolean available) {
+    }
+
+    SchedulerSnapshot(long sequence, long takenAtMillis,
+                      Map<CompletedIncidentStore.Key, CompletedIncidentStore.Aggregate> completed) {
+        this.sequence = sequence;
+        this.takenAtMillis = takenAtMillis;
+        this.completed = completed;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Writes the snapshot into a directory and removes all but the newest snapshots
+     * @return the snapshot file
+     */
+    public Path save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        ByteBuffer buffer = encode();
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) out.write(buffer);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        List<Path> files = list(directory);
+        for (int i = KEEP; i < files.size(); i++) Files.deleteIfExists(files.get(i));
+        return file;
+    }
+
+    /**
+     * Loads the newest snapshot in a directory that is intact
+     * @return the snapshot, or null if there is none
+     */
+    public static SchedulerSnapshot loadNewest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return null;
+        for (Path file : list(directory)) {
+            SchedulerSnapshot snapshot = decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+            if (snapshot != null) return snapshot;
+            System.out.println("Skipping damaged snapshot " + file);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the snapshot files in a directory, newest first
+     */
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) files.add(file);
+        }
+        files.sort((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()));
+        return files;
+    }
+
+    ByteBuffer encode() {
+        int size = 4 + 1 + 8 + 8
+                + 4 + zones.size() * 5 * 4
+                + 4 + drones.size() * (3 * 4 + 1 + 16 + 4 + 2)
+                + 4 + pending.size() * MessageCodec.INCIDENT_BLOCK_SIZE
+                + 4 + inFlight.size() * (4 + MessageCodec.INCIDENT_BLOCK_SIZE)
+                + 4 + completed.size() * (4 + 1 + 4 * 8)
+                + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(sequence);
+        buffer.putLong(takenAtMillis);
+
+        buffer.putInt(zones.size());
+        for (Zone zone : zones) {
+            buffer.putInt(zone.getId());
+            buffer.putInt(zone.getStartX());
+            buffer.putInt(zone.getStartY());
+            buffer.putInt(zone.getEndX());
+            buffer.putInt(zone.getEndY());
+        }
+
+        buffer.putInt(drones.size());
+        for (Drone drone : drones) {
+            buffer.putInt(drone.id());
+            buffer.putInt(drone.x());
+            buffer.putInt(drone.y());
+            byte[] address = drone.address() == null ? new byte[0] : drone.address().getAddress();
+            buffer.put((byte) address.length);
+            buffer.put(address);
+            buffer.putInt(drone.port());
+            buffer.put(stateCode(drone.state()));
+            buffer.put((byte) (drone.available() ? 1 : 0));
+        }
+
+        buffer.putInt(pending.size());
+        for (Incident incident : pending) {
+            MessageCodec.incidentBlock(buffer, incident, incident.getX(), incident.getY());
+        }
+        buffer.putInt(inFlight.size());
+        for (Map.Entry<Integer, Incident> entry : inFlight.entrySet()) {
+            buffer.putInt(entry.getKey());
+            MessageCodec.incidentBlock(buffer, entry.getValue(), entry.getValue().getX(), entry.getValue().getY());
+        }
+
+        buffer.putInt(completed.size());
+        for (Map.Entry<CompletedIncidentStore.Key, CompletedIncidentStore.Aggregate> entry : completed.entrySet()) {
+            CompletedIncidentStore.Aggregate aggregate = entry.getValue();
+            buffer.putInt(entry.getKey().zone());
+            buffer.put(MessageCodec.severityCode(entry.getKey().severity()));
+            buffer.putLong(aggregate.getCount());
+            buffer.putLong(aggregate.getTotalMillis());
+            buffer.putLong(aggregate.getMinMillis());
+            buffer.putLong(aggregate.getMaxMillis());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return the decoded snapshot, or null if the data is damaged
+     */
+    static SchedulerSnapshot decode(ByteBuffer buffer) {
+        try {
+            int end = buffer.limit() - 4;
+            if (end < 0) return null;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, end);
+            if (buffer.getInt(end) != (int) crc.getValue()) return null;
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) return null;
+            long sequence = buffer.getLong();
+            long takenAtMillis = buffer.getLong();
+
+            List<Zone> zones = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                zones.add(new Zone(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+
+            List<Drone> drones = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                int id = buffer.getInt(), x = buffer.getInt(), y = buffer.getInt();
+                byte[] address = new byte[buffer.get()];
+                buffer.get(address);
+                int port = buffer.getInt();
+                String state = stateName(buffer.get());
+                boolean available = buffer.get() != 0;
+                drones.add(new Drone(id, x, y, address.length == 0 ? null : InetAddress.getByAddress(address),
+                        port, state, available));
+            }
+
+            MessageCodec.Message message = new MessageCodec.Message();
+            List<Incident> pending = new ArrayList<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                MessageCodec.readIncidentBlock(buffer, message);
+                pending.add(message.toIncident());
+            }
+            Map<Integer, Incident> inFlight = new LinkedHashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                int droneId = buffer.getInt();
+                MessageCodec.readIncidentBlock(buffer, message);
+                inFlight.put(droneId, message.toIncident());
+            }
+
+            Map<CompletedIncidentStore.Key, CompletedIncidentStore.Aggregate> completed = new HashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                CompletedIncidentStore.Key key = new CompletedIncidentStore.Key(buffer.getInt(),
+                        MessageCodec.severityName(buffer.get()));
+                completed.put(key, new CompletedIncidentStore.Aggregate(buffer.getLong(), buffer.getLong(),
+                        buffer.getLong(), buffer.getLong()));
+            }
+
+            SchedulerSnapshot snapshot = new SchedulerSnapshot(sequence, takenAtMillis, completed);
+            snapshot.zones.addAll(zones);
+            snapshot.drones.addAll(drones);
+            snapshot.pending.addAll(pending);
+            snapshot.inFlight.putAll(inFlight);
+            return snapshot;
+        } catch (RuntimeException | IOException e) {
+            return null;
+        }
+    }
+
+    private static byte stateCode(String state) {
+        for (DroneSubsystem.DroneState s : STATES) {
+            if (s.name().equals(state)) return (byte) s.ordinal();
+        }
+        return -1;
+    }
+
+    private static String stateName(byte code) {
+        return code >= 0 && code < STATES.length ? STATES[code].name() : "UNKNOWN";
+    }
+}
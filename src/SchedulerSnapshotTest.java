@@ -0,0 +1,99 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SchedulerSnapshotTest {
+
+    private static SchedulerSnapshot sample(long sequence) throws Exception {
+        SchedulerSnapshot snapshot = new SchedulerSnapshot(sequence, 1234, Map.of(
+                new CompletedIncidentStore.Key(1, "Moderate"),
+                new CompletedIncidentStore.Aggregate(2, 90_000, 30_000, 60_000)));
+        snapshot.zones.add(new Zone(1, 0, 0, 700, 600));
+        snapshot.drones.add(new SchedulerSnapshot.Drone(3, 40, 50, InetAddress.getLoopbackAddress(), 6003,
+                "EN_ROUTE", false));
+        Incident waiting = new Incident(5, "10:00:00", 1, "DRONE_REQUEST", "Low");
+        waiting.setLocation(10, 20);
+        snapshot.pending.add(waiting);
+        snapshot.inFlight.put(3, new Incident(6, "10:01:00", 1, "FIRE_DETECTED", "High"));
+        return snapshot;
+    }
+
+    @Test
+    public void testRoundTripAndDamagedFallback() throws Exception {
+        Path dir = Files.createTempDirectory("snapshots");
+        sample(10).save(dir);
+        sample(20).save(dir);
+
+        SchedulerSnapshot loaded = SchedulerSnapshot.loadNewest(dir);
+        assertEquals(20, loaded.getSequence());
+        assertEquals(700, loaded.zones.get(0).getEndX());
+        assertEquals("EN_ROUTE", loaded.drones.get(0).state());
+        assertEquals(6003, loaded.drones.get(0).port());
+        assertEquals(20, loaded.pending.get(0).getY());
+        assertEquals(6, loaded.inFlight.get(3).getIncidentNumber());
+        CompletedIncidentStore.Aggregate moderate = loaded.completed.get(new CompletedIncidentStore.Key(1, "Moderate"));
+        assertEquals(2, moderate.getCount());
+        assertEquals(60_000, moderate.getMaxMillis());
+
+        // A damaged newest snapshot falls back to the one before it
+        Path newest = dir.resolve(String.format("snapshot-%020d.bin", 20));
+        byte[] bytes = Files.readAllBytes(newest);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(newest, bytes);
+        assertEquals(10, SchedulerSnapshot.loadNewest(dir).getSequence());
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndJournalTail() throws Exception {
+        Path dir = Files.createTempDirectory("snapshots");
+        File journalFile = File.createTempFile("scheduler", ".journal");
+        journalFile.deleteOnExit();
+        Incident first = new Incident(1, "10:00:00", 1, "FIRE_DETECTED", "High");
+        Incident second = new Incident(2, "10:01:00", 2, "FIRE_DETECTED", "Moderate");
+        Incident third = new Incident(3, "10:02:00", 1, "DRONE_REQUEST", "Low");
+
+        Scheduler before = new Scheduler();
+        before.loadZones("src/resources/Sample_zone_file.csv");
+        before.recover(dir.toString(), journalFile.getPath());
+        Scheduler.DroneStatus status = new Scheduler.DroneStatus(
+                new Scheduler.DroneInfo(4, 100, 200, InetAddress.getLoopbackAddress()));
+        status.state = "IDLE";
+        status.isAvailable = true;
+        before.getAllDrones().put(4, status);
+        before.getPendingIncidents().add(first);
+        before.getJournal().append(EventJournal.RECEIVED, 0, first);
+        before.getPendingIncidents().add(second);
+        before.getJournal().append(EventJournal.RECEIVED, 0, second);
+        before.writeSnapshot(dir);
+
+        // Changes after the snapshot only exist in the journal
+        before.getJournal().append(EventJournal.RECEIVED, 0, third);
+        before.getJournal().append(EventJournal.ASSIGNED, 4, first);
+        before.getJournal().append(EventJournal.COMPLETED, 4, first);
+        before.getJournal().close();
+        assertEquals(1, before.getJournal().getCompactionCount());
+        // Only the last covered record is kept, next to the three appended after the snapshot
+        assertEquals(4L * EventJournal.RECORD_SIZE, journalFile.length());
+
+        Scheduler after = new Scheduler();
+        after.recover(dir.toString(), journalFile.getPath());
+        try {
+            assertEquals(before.getZones().size(), after.getZones().size());
+            assertEquals(100, after.getAllDrones().get(4).droneInfo.x);
+            assertEquals(1, after.getCompletedCount());
+            assertEquals(1, after.getCompletedIncidents().get(0).getIncidentNumber());
+            assertEquals(2, after.getPendingIncidents().size());
+            assertTrue(after.getPendingIncidents().stream().anyMatch(i -> i.getIncidentNumber() == 3));
+            assertEquals(Map.of(1, 1, 2, 1), after.getActiveIncidentsByZone());
+            assertEquals(6, after.getJournal().append(EventJournal.RECEIVED, 0, third));
+        } finally {
+            after.getJournal().close();
+        }
+    }
+}
@@ -2,8 +2,10 @@ import org.junit.Before;
 import org.junit.After;
 import org.junit.Test;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.Assert.*;
 
@@ -37,9 +39,13 @@ public class SchedulerTest {
     @Test
     public void testFireToSchedulerCommunication() throws Exception {
         DatagramSocket testSocket = new DatagramSocket();
-        String testMessage = "Incident,1,100,200,Fire,High,500,12:00:00";
+        Incident reported = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        reported.setWaterAmountNeeded(500);
+        reported.setLocation(100, 200);
+        ByteBuffer testMessage = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeIncident(testMessage, reported);
         testSocket.send(new DatagramPacket(
-                testMessage.getBytes(), testMessage.getBytes().length,
+                testMessage.array(), testMessage.position(),
                 LOCALHOST, 4000));
         testSocket.close();
 
@@ -66,8 +72,11 @@ public class SchedulerTest {
         byte[] buffer = new byte[1024];
         DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
         droneSocket.receive(packet);
-        String msg = new String(packet.getData(), 0, packet.getLength());
-        assertTrue(msg.startsWith("Assign,1,"));
+        MessageCodec.Message msg = new MessageCodec.Message();
+        assertTrue(MessageCodec.decode(ByteBuffer.wrap(buffer, 0, packet.getLength()), msg));
+        assertEquals(MessageCodec.ASSIGN, msg.type);
+        assertEquals(1, msg.zone);
+        assertEquals(incident.getIncidentID(), msg.toIncident().getIncidentID());
         droneSocket.close();
     }
 
@@ -76,17 +85,24 @@ public class SchedulerTest {
         Scheduler.DroneInfo droneInfo = new Scheduler.DroneInfo(TEST_DRONE_ID, 0, 0, LOCALHOST);
         Scheduler.DroneStatus status = new Scheduler.DroneStatus(droneInfo);
         status.state = "ASSIGNED";
-        status.currentIncident = new Incident("12:00:00", 1, "Fire", "High");
+        Incident incident = new Incident("12:00:00", 1, "Fire", "High");
+        status.currentIncident = incident;
         scheduler.getAllDrones().put(TEST_DRONE_ID, status);
 
-        String faultMessage = "Drone " + TEST_DRONE_ID +
-                " Fault: ERROR: Drone is stuck in flight";
+        ByteBuffer faultMessage = ByteBuffer.allocate(MessageCodec.MAX_MESSAGE_SIZE);
+        MessageCodec.encodeFault(faultMessage, TEST_DRONE_ID, FaultType.STUCK);
         new DatagramSocket().send(new DatagramPacket(
-                faultMessage.getBytes(), faultMessage.getBytes().length,
+                faultMessage.array(), faultMessage.position(),
                 LOCALHOST, 6000));
 
-        Thread.sleep(1000);
-        assertEquals(1, scheduler.getPendingIncidents().size());
+        // The drone is reset on the drone control thread once the fault reset delay is over
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!scheduler.getAllDrones().get(TEST_DRONE_ID).isAvailable && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        // Only this incident, an earlier test's fire subsystem can still be sending to the incident port
+        assertTrue(scheduler.getPendingIncidents().contains(incident));
+        assertNull(status.currentIncident);
         assertTrue(scheduler.getAllDrones().get(TEST_DRONE_ID).isAvailable);
     }
 
@@ -115,4 +131,51 @@ public class SchedulerTest {
         assertFalse(updated.isAvailable);
         assertEquals(incident, updated.currentIncident);
     }
+
+    @Test
+    public void testBatchDispatchMatchesBurstToIdleDrones() throws Exception {
+        scheduler.loadZones("src/resources/sample_zone_file.csv");
+        scheduler.setDispatchMode(Scheduler.DispatchMode.BATCH);
+        var lockField = Scheduler.class.getDeclaredField("dispatchLock");
+        lockField.setAccessible(true);
+        ReentrantLock dispatchLock = (ReentrantLock) lockField.get(scheduler);
+
+        // Greedy in queue order gives the first incident drone 902 (40) and the second drone 901 (200),
+        // the batch sends each drone to the incident on its own side (60 + 100)
+        Incident near = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        near.setLocation(60, 100);
+        Incident far = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        far.setLocation(200, 100);
+        Incident leftover = new Incident("12:00:00", 1, "FIRE_DETECTED", "High");
+        leftover.setLocation(300, 100);
+        Incident zoneless = new Incident("12:00:00", 99, "FIRE_DETECTED", "High");
+
+        // Held so the dispatcher sees the whole burst in one round
+        dispatchLock.lock();
+        try {
+            for (int id : new int[]{901, 902}) {
+                Scheduler.DroneStatus status = new Scheduler.DroneStatus(
+                        new Scheduler.DroneInfo(id, id == 901 ? 0 : 100, 100, LOCALHOST));
+                status.state = "IDLE";
+                status.isAvailable = true;
+                scheduler.getAllDrones().put(id, status);
+            }
+            scheduler.getPendingIncidents().add(near);
+            scheduler.getPendingIncidents().add(far);
+            scheduler.getPendingIncidents().add(leftover);
+            scheduler.getPendingIncidents().add(zoneless);
+        } finally {
+            dispatchLock.unlock();
+        }
+        Thread.sleep(500);
+
+        assertEquals(near, scheduler.getAllDrones().get(901).currentIncident);
+        assertEquals(far, scheduler.getAllDrones().get(902).currentIncident);
+        // The leftover went through the greedy path and the incident without a zone never matched, both
+        // wait for a drone to free up
+        DispatchQueue queue = (DispatchQueue) scheduler.getPendingIncidents();
+        assertEquals(2, queue.parkedCount());
+        assertTrue(queue.containsIncident(leftover.getIncidentID()));
+        assertTrue(queue.containsIncident(zoneless.getIncidentID()));
+    }
 }
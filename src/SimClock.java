@@ -0,0 +1,96 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Source of time for the scheduler, the drones and the fire incident subsystem. The default clock is the
+ * system clock. Installing a {@link VirtualClock} before the subsystems are created runs them as a
+ * discrete-event simulation where sleeping skips ahead instead of waiting.
+ *
+ * Threads that take part in the simulation call {@link #enter()} when they start working on something
+ * and {@link #exit()} before they block waiting for input such as a datagram, so the clock knows when
+ * everyone is either sleeping or idle. Both do nothing on the system clock.
+ */
+public abstract class SimClock {
+    public static final SimClock SYSTEM = new SimClock() {
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanos() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(long nanos) throws InterruptedException {
+            if (nanos > 0) Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        }
+
+        @Override
+        public LocalDateTime now() {
+            // Full precision, so times compare the same as LocalDateTime.now() taken elsewhere
+            return LocalDateTime.now();
+        }
+    };
+
+    private static volatile SimClock current = SYSTEM;
+
+    /**
+     * Returns the clock in use
+     */
+    public static SimClock current() {
+        return current;
+    }
+
+    /**
+     * Sets the clock used by subsystems created from now on
+     * @param clock clock to use
+     */
+    public static void install(SimClock clock) {
+        current = clock;
+    }
+
+    /**
+     * Returns the current time in milliseconds since the epoch
+     */
+    public abstract long millis();
+
+    /**
+     * Returns a monotonic time in nanoseconds, only differences between two values are meaningful
+     */
+    public abstract long nanos();
+
+    /**
+     * Blocks the calling thread for a number of nanoseconds of clock time
+     */
+    public abstract void sleepNanos(long nanos) throws InterruptedException;
+
+    /**
+     * Blocks the calling thread for a number of milliseconds of clock time
+     */
+    public void sleep(long millis) throws InterruptedException {
+        sleepNanos(millis * 1_000_000);
+    }
+
+    /**
+     * Returns the current time as a local date and time, derived from {@link #millis()} so a
+     * virtual clock's date follows its own time
+     */
+    public LocalDateTime now() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis()), ZoneId.systemDefault());
+    }
+
+    /**
+     * Marks the calling thread as busy until the matching {@link #exit()}
+     */
+    public void enter() {
+    }
+
+    /**
+     * Marks the calling thread as idle, waiting for input from another thread
+     */
+    public void exit() {
+    }
+}
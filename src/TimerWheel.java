@@ -0,0 +1,206 @@
+/**
+ * Hashed timing wheel that runs every delayed task of the scheduler on one thread, so the number of
+ * threads stays the same however many timers are pending. Time is cut into ticks and a timer goes into the
+ * slot of the tick it is due in, wrapping around the wheel, so scheduling and cancelling are O(1). The
+ * wheel thread does not wake for empty ticks: it finds the earliest deadline, sleeps straight to it and runs
+ * every task due by then, and a new timer due sooner wakes it early. Tasks run late by up to one tick. With
+ * no timers pending the thread waits without sleeping on the clock, so a {@link VirtualClock} can still go
+ * quiet.
+ */
+public class TimerWheel implements AutoCloseable {
+    private final SimClock clock;
+    private final long tickNanos;
+    private final Timeout[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Thread worker;
+    private long tick = 0;
+    private int pending = 0;
+    private boolean running = true;
+    private boolean sleeping = false;
+    private long wakeTick;
+
+    /**
+     * A scheduled task, which can be cancelled until it runs
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev, next;
+        private int slot = -1;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * @return true if the task was still waiting and will not run
+         */
+        public boolean cancel() {
+            synchronized (TimerWheel.this) {
+                if (slot < 0) return false;
+                unlink(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param clock clock the delays are measured on
+     * @param tickMillis length of a tick, how late a task can run
+     * @param slots slots in the wheel, rounded up to a power of two
+     */
+    public TimerWheel(SimClock clock, long tickMillis, int slots) {
+        this.clock = clock;
+        this.tickNanos = tickMillis * 1_000_000;
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.wheel = new Timeout[size];
+        this.mask = size - 1;
+        this.startNanos = clock.nanos();
+        worker = new Thread(this::run, "scheduler-timers");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Runs a task on the wheel thread after a delay
+     * @param delayMillis delay on the wheel's clock
+     * @param task task to run, should not block
+     * @return handle to cancel the task with
+     */
+    public synchronized Timeout schedule(long delayMillis, Runnable task) {
+        long elapsed = clock.nanos() - startNanos;
+        if (pending == 0) {
+            // Nothing was due, so the wheel thread skipped ahead to now rather than visiting empty ticks
+            tick = Math.max(tick, elapsed / tickNanos);
+        }
+        long due = (elapsed + delayMillis * 1_000_000 + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(task, Math.max(due, tick + 1));
+        int slot = (int) (timeout.deadlineTick & mask);
+        timeout.slot = slot;
+        timeout.next = wheel[slot];
+        if (wheel[slot] != null) wheel[slot].prev = timeout;
+        wheel[slot] = timeout;
+        if (pending++ == 0) notifyAll();
+        else if (sleeping && timeout.deadlineTick < wakeTick) worker.interrupt();
+        return timeout;
+    }
+
+    /**
+     * Returns how many tasks are waiting to run
+     */
+    public synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * Stops the wheel thread, pending tasks do not run
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        worker.interrupt();
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) timeout.prev.next = timeout.next;
+        else wheel[timeout.slot] = timeout.next;
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+        timeout.slot = -1;
+        pending--;
+    }
+
+    /**
+     * Wheel thread loop. It takes part in the clock while timers are pending, so virtual time does not move
+     * past a deadline while the tasks due by it are running.
+     */
+    private void run() {
+        clock.enter();
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (running && pending == 0) {
+                        clock.exit();
+                        try {
+                            wait();
+                        } catch (InterruptedException ignored) {
+                        } finally {
+                            clock.enter();
+                        }
+                    }
+                    if (!running) return;
+                    wakeTick = nextDeadline();
+                    sleeping = true;
+                }
+                try {
+                    clock.sleepNanos(startNanos + wakeTick * tickNanos - clock.nanos());
+                } catch (InterruptedException ignored) {
+                    // A sooner timer was scheduled, or the wheel is closing
+                }
+                synchronized (this) {
+                    sleeping = false;
+                    // An interrupt sent just as the sleep ended must not reach the tasks
+                    Thread.interrupted();
+                    if (!running) return;
+                }
+                runDue((clock.nanos() - startNanos) / tickNanos);
+            }
+        } finally {
+            clock.exit();
+        }
+    }
+
+    /**
+     * Returns the earliest deadline of the pending timers. Every deadline is after the current tick, so the
+     * first slot in one round from it holding a timer due in that round has the earliest one.
+     */
+    private long nextDeadline() {
+        long earliest = Long.MAX_VALUE;
+        for (long t = tick + 1; t <= tick + wheel.length; t++) {
+            for (Timeout timeout = wheel[(int) (t & mask)]; timeout != null; timeout = timeout.next) {
+                if (timeout.deadlineTick == t) return t;
+                earliest = Math.min(earliest, timeout.deadlineTick);
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Takes the tasks due by a tick out of the slots passed since the last run and runs them, later rounds
+     * stay in their slots
+     */
+    private void runDue(long dueTick) {
+        Timeout due = null, last = null;
+        synchronized (this) {
+            if (dueTick <= tick) return;
+            long from = Math.max(tick + 1, dueTick - mask);
+            tick = dueTick;
+            for (long t = from; t <= dueTick; t++) {
+                Timeout timeout = wheel[(int) (t & mask)];
+                while (timeout != null) {
+                    Timeout following = timeout.next;
+                    if (timeout.deadlineTick <= dueTick) {
+                        unlink(timeout);
+                        if (last == null) due = timeout;
+                        else last.next = timeout;
+                        last = timeout;
+                    }
+                    timeout = following;
+                }
+            }
+        }
+        for (; due != null; due = due.next) {
+            try {
+                due.task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Timer task failed: " + e);
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+
+    @Test
+    public void testTasksRunInDeadlineOrderAcrossRounds() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 8);
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        clock.enter();
+        // 250ms and 60s land in slots one round of the wheel apart
+        timers.schedule(60_000, () -> { fired.add("60000@" + clock.millis()); done.countDown(); });
+        timers.schedule(250, () -> { fired.add("250@" + clock.millis()); done.countDown(); });
+        timers.schedule(1000, () -> { fired.add("1000@" + clock.millis()); done.countDown(); });
+        clock.exit();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("250@300", "1000@1000", "60000@60000"), fired);
+        assertEquals(0, timers.size());
+        timers.close();
+        clock.close();
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        TimerWheel timers = new TimerWheel(clock, 100, 8);
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        clock.enter();
+        TimerWheel.Timeout cancelled = timers.schedule(500, () -> fired.add("cancelled"));
+        timers.schedule(1000, () -> { fired.add("kept"); done.countDown(); });
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, timers.size());
+        clock.exit();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("kept"), fired);
+        timers.close();
+        clock.close();
+    }
+
+    @Test
+    public void testSoonerTimerWakesSleepingWheel() throws Exception {
+        TimerWheel timers = new TimerWheel(SimClock.SYSTEM, 10, 64);
+        CountDownLatch done = new CountDownLatch(1);
+        timers.schedule(60_000, () -> { });
+        Thread.sleep(50);
+        // The wheel is asleep until the 60s deadline and has to be woken for this one
+        long start = System.nanoTime();
+        timers.schedule(100, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertEquals(1, timers.size());
+        timers.close();
+    }
+
+    @Test
+    public void testThreadCountDoesNotGrowWithTimers() throws Exception {
+        TimerWheel timers = new TimerWheel(SimClock.SYSTEM, 10, 64);
+        int threads = Thread.activeCount();
+        CountDownLatch done = new CountDownLatch(10_000);
+        for (int i = 0; i < 10_000; i++) timers.schedule(i % 200, done::countDown);
+        assertTrue(Thread.activeCount() <= threads);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        timers.close();
+    }
+}
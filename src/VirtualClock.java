@@ -0,0 +1,199 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Discrete-event clock. Virtual time only moves when every thread that has {@link #enter() entered} is
+ * sleeping or has {@link #exit() exited}, and then jumps straight to the earliest wake up time. A short
+ * real-time quiet period is required before each jump so datagrams that are already sent reach the thread
+ * waiting for them first. Sleeps therefore cost no wall-clock time and a scenario runs as fast as the
+ * threads can do their work, while every sleep still ends at the same virtual time it would have in real
+ * time. Sleepers park instead of waiting on a monitor so drones on virtual threads do not pin their
+ * carrier threads while they sleep.
+ */
+public class VirtualClock extends SimClock {
+    /** Long enough for a datagram on the loopback interface to be received and handled. */
+    private static final long DEFAULT_QUIET_NANOS = 2_000_000;
+
+    private final long startMillis;
+    private final long quietNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Sleeper> sleepers = new PriorityQueue<>();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private volatile long now = 0;
+    private long sequence = 0;
+    private int active = 0;
+    private long lastActivity = System.nanoTime();
+    private boolean running = true;
+
+    private static final class Sleeper implements Comparable<Sleeper> {
+        final long wakeAt;
+        final long sequence;
+        final boolean participant;
+        final Thread thread = Thread.currentThread();
+        volatile boolean woken;
+
+        Sleeper(long wakeAt, long sequence, boolean participant) {
+            this.wakeAt = wakeAt;
+            this.sequence = sequence;
+            this.participant = participant;
+        }
+
+        @Override
+        public int compareTo(Sleeper other) {
+            int c = Long.compare(wakeAt, other.wakeAt);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public VirtualClock() {
+        this(System.currentTimeMillis(), DEFAULT_QUIET_NANOS);
+    }
+
+    /**
+     * @param startMillis time in milliseconds since the epoch the virtual clock starts at
+     * @param quietNanos real time every thread must have been idle or sleeping before time jumps ahead
+     */
+    public VirtualClock(long startMillis, long quietNanos) {
+        this.startMillis = startMillis;
+        this.quietNanos = quietNanos;
+        Thread driver = new Thread(this::drive, "virtual-clock");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    @Override
+    public long millis() {
+        return startMillis + now / 1_000_000;
+    }
+
+    @Override
+    public long nanos() {
+        return now;
+    }
+
+    @Override
+    public void enter() {
+        depth.get()[0]++;
+        lock.lock();
+        try {
+            active++;
+            lastActivity = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void exit() {
+        int[] d = depth.get();
+        if (d[0] == 0) return;
+        d[0]--;
+        lock.lock();
+        try {
+            active--;
+            lastActivity = System.nanoTime();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sleeps until virtual time reaches now plus the given amount. Threads that have not entered can also
+     * sleep, but time does not wait for them.
+     */
+    @Override
+    public void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos <= 0) return;
+        boolean participant = depth.get()[0] > 0;
+        Sleeper sleeper;
+        lock.lock();
+        try {
+            sleeper = new Sleeper(now + nanos, sequence++, participant);
+            sleepers.add(sleeper);
+            if (participant) active--;
+            lastActivity = System.nanoTime();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        while (!sleeper.woken) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                lock.lock();
+                try {
+                    if (!sleeper.woken) {
+                        sleepers.remove(sleeper);
+                        if (participant) active++;
+                        lastActivity = System.nanoTime();
+                        throw new InterruptedException();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                // Woken at the same time as interrupted, keep the interrupt for the caller
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns true if no thread is busy or sleeping and nothing has happened for the given real time
+     * @param forNanos real time in nanoseconds
+     */
+    public boolean isQuiescent(long forNanos) {
+        lock.lock();
+        try {
+            return active == 0 && sleepers.isEmpty() && System.nanoTime() - lastActivity >= forNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops advancing time, threads still sleeping stay blocked until interrupted
+     */
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function run by the driver thread, moves time to the next wake up once every participant is waiting
+     */
+    private void drive() {
+        lock.lock();
+        try {
+            while (running) {
+                if (active > 0 || sleepers.isEmpty()) {
+                    changed.await();
+                    continue;
+                }
+                long remaining = quietNanos - (System.nanoTime() - lastActivity);
+                if (remaining > 0) {
+                    changed.awaitNanos(remaining);
+                    continue;
+                }
+                now = Math.max(now, sleepers.peek().wakeAt);
+                while (!sleepers.isEmpty() && sleepers.peek().wakeAt <= now) {
+                    Sleeper sleeper = sleepers.poll();
+                    sleeper.woken = true;
+                    if (sleeper.participant) active++;
+                    LockSupport.unpark(sleeper.thread);
+                }
+                lastActivity = System.nanoTime();
+            }
+        } catch (InterruptedException ignored) {
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class VirtualClockTest {
+
+    @Test
+    public void testSleepSkipsAheadInVirtualTime() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        long wallStart = System.nanoTime();
+        clock.enter();
+        clock.sleep(60 * 60 * 1000);
+        clock.exit();
+        assertEquals(60 * 60 * 1000, clock.millis());
+        assertTrue("An hour of virtual time should pass in well under a second",
+                System.nanoTime() - wallStart < 1_000_000_000L);
+        clock.close();
+    }
+
+    @Test
+    public void testSleepersWakeInVirtualTimeOrder() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        List<String> wakeups = new CopyOnWriteArrayList<>();
+        Thread slow = new Thread(() -> sleepAndRecord(clock, 5000, "slow", wakeups));
+        Thread fast = new Thread(() -> sleepAndRecord(clock, 2000, "fast", wakeups));
+        // Hold time still until both threads are asleep
+        clock.enter();
+        slow.start();
+        fast.start();
+        Thread.sleep(50);
+        clock.exit();
+        slow.join(5000);
+        fast.join(5000);
+        assertEquals(List.of("fast@2000", "slow@5000"), wakeups);
+        clock.close();
+    }
+
+    @Test
+    public void testTimeWaitsForBusyThread() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1_000_000);
+        clock.enter();
+        Thread sleeper = new Thread(() -> sleepAndRecord(clock, 1000, "sleeper", new CopyOnWriteArrayList<>()));
+        sleeper.start();
+        Thread.sleep(50);
+        assertEquals("Time must not move while a participant is busy", 0, clock.millis());
+        clock.exit();
+        sleeper.join(5000);
+        assertEquals(1000, clock.millis());
+        clock.close();
+    }
+
+    private static void sleepAndRecord(VirtualClock clock, long millis, String name, List<String> wakeups) {
+        clock.enter();
+        try {
+            clock.sleep(millis);
+            wakeups.add(name + "@" + clock.millis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clock.exit();
+        }
+    }
+}
@@ -2,6 +2,7 @@ public class Zone {
     private int id;
     private int startX, startY;
     private int endX, endY;
+    private final int centerX, centerY;
 
     public Zone(int id, int startX, int startY, int endX, int endY) {
         this.id = id;
@@ -9,6 +10,8 @@ public class Zone {
         this.startY = startY;
         this.endX = endX;
         this.endY = endY;
+        this.centerX = (startX + endX) / 2;
+        this.centerY = (startY + endY) / 2;
     }
 
     public int getId() {
@@ -16,11 +19,22 @@ public class Zone {
     }
 
     public int getCenterX() {
-        return (startX + endX) / 2;
+        return centerX;
     }
 
     public int getCenterY() {
-        return (startY + endY) / 2;
+        return centerY;
+    }
+
+    /**
+     * Checks if a point lies in the zone, the start edges are inclusive and the end edges exclusive
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the point is inside the zone
+     */
+    public boolean contains(int x, int y) {
+        return x >= Math.min(startX, endX) && x < Math.max(startX, endX)
+                && y >= Math.min(startY, endY) && y < Math.max(startY, endY);
     }
 
     public int getStartX() {
@@ -0,0 +1,191 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the zones loaded by the scheduler. Zones are looked up by id through an array indexed by id, and
+ * by coordinate through a uniform grid where every cell lists the zones overlapping it. The grid is rebuilt
+ * on the first coordinate lookup after zones are added, since zone files are loaded once at start up.
+ */
+public class ZoneTable {
+    /** Ids above this are kept in a map instead of growing the array. */
+    private static final int MAX_ARRAY_ID = 1 << 20;
+
+    private final List<Zone> zones = new CopyOnWriteArrayList<>();
+    private volatile Zone[] byId = new Zone[16];
+    private final Map<Integer, Zone> sparseById = new HashMap<>();
+    private volatile PointGrid grid = null;
+
+    /**
+     * Adds a zone, replacing any zone with the same id
+     * @param zone zone to add
+     */
+    public synchronized void add(Zone zone) {
+        int id = zone.getId();
+        Zone previous;
+        if (id >= 0 && id < MAX_ARRAY_ID) {
+            Zone[] table = byId;
+            if (id >= table.length) {
+                table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+            }
+            previous = table[id];
+            table[id] = zone;
+            byId = table;
+        } else {
+            previous = sparseById.put(id, zone);
+        }
+        if (previous != null) zones.remove(previous);
+        zones.add(zone);
+        grid = null;
+    }
+
+    /**
+     * Returns the zone with the given id
+     * @param id zone id
+     * @return zone or null if there is no zone with that id
+     */
+    public Zone get(int id) {
+        if (id >= 0 && id < MAX_ARRAY_ID) {
+            Zone[] table = byId;
+            return id < table.length ? table[id] : null;
+        }
+        synchronized (this) {
+            return sparseById.get(id);
+        }
+    }
+
+    /**
+     * Returns the zone containing a point
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return zone or null if the point is outside every zone
+     */
+    public Zone zoneAt(int x, int y) {
+        PointGrid current = grid;
+        if (current == null) current = buildGrid();
+        return current.zoneAt(x, y);
+    }
+
+    /**
+     * Returns all zones in load order. The list can be iterated while zones are added.
+     */
+    public List<Zone> list() {
+        return zones;
+    }
+
+    public int size() {
+        return zones.size();
+    }
+
+    /**
+     * Reads a zone file with one "id,(startX;startY),(endX;endY)" line per zone after a header line
+     * @param file path of the zone file
+     * @return zones in file order
+     */
+    public static List<Zone> readZoneFile(String file) throws IOException {
+        List<Zone> result = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            br.readLine();
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] parts = line.split(",");
+                int id = Integer.parseInt(parts[0].trim());
+                String[] start = parts[1].replace("(", "").replace(")", "").split(";");
+                String[] end = parts[2].replace("(", "").replace(")", "").split(";");
+                result.add(new Zone(id, Integer.parseInt(start[0].trim()), Integer.parseInt(start[1].trim()),
+                        Integer.parseInt(end[0].trim()), Integer.parseInt(end[1].trim())));
+            }
+        }
+        return result;
+    }
+
+    private synchronized PointGrid buildGrid() {
+        if (grid == null) grid = new PointGrid(new ArrayList<>(zones));
+        return grid;
+    }
+
+    /**
+     * Immutable grid over the bounding box of all zones, sized so a cell is about as large as an average zone.
+     * Small zones spread far apart would need a huge number of cells, so the cell size grows until the grid
+     * fits in {@link #MAX_CELLS}.
+     */
+    private static final class PointGrid {
+        static final int MAX_CELLS = 1 << 20;
+
+        final long minX, minY, cellSize;
+        final int cols, rows;
+        final Zone[][] cells;
+
+        PointGrid(List<Zone> zones) {
+            if (zones.isEmpty()) {
+                minX = minY = 0;
+                cellSize = 1;
+                cols = rows = 0;
+                cells = new Zone[0][];
+                return;
+            }
+            int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE;
+            int hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+            long totalSide = 0;
+            for (Zone z : zones) {
+                loX = Math.min(loX, Math.min(z.getStartX(), z.getEndX()));
+                loY = Math.min(loY, Math.min(z.getStartY(), z.getEndY()));
+                hiX = Math.max(hiX, Math.max(z.getStartX(), z.getEndX()));
+                hiY = Math.max(hiY, Math.max(z.getStartY(), z.getEndY()));
+                totalSide += Math.abs((long) z.getEndX() - z.getStartX()) + Math.abs((long) z.getEndY() - z.getStartY());
+            }
+            minX = loX;
+            minY = loY;
+            long size = Math.max(1, totalSide / (2L * zones.size()));
+            long width = (long) hiX - loX, height = (long) hiY - loY;
+            while (width / size >= MAX_CELLS || height / size >= MAX_CELLS
+                    || (width / size + 1) * (height / size + 1) > MAX_CELLS) {
+                size *= 2;
+            }
+            cellSize = size;
+            cols = (int) (width / cellSize + 1);
+            rows = (int) (height / cellSize + 1);
+
+            List<List<Zone>> buckets = new ArrayList<>(cols * rows);
+            for (int i = 0; i < cols * rows; i++) buckets.add(null);
+            for (Zone z : zones) {
+                int c0 = (int) ((Math.min(z.getStartX(), z.getEndX()) - minX) / cellSize);
+                int c1 = (int) ((Math.max(z.getStartX(), z.getEndX()) - minX) / cellSize);
+                int r0 = (int) ((Math.min(z.getStartY(), z.getEndY()) - minY) / cellSize);
+                int r1 = (int) ((Math.max(z.getStartY(), z.getEndY()) - minY) / cellSize);
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        int i = r * cols + c;
+                        if (buckets.get(i) == null) buckets.set(i, new ArrayList<>(2));
+                        buckets.get(i).add(z);
+                    }
+                }
+            }
+            cells = new Zone[cols * rows][];
+            for (int i = 0; i < cells.length; i++) {
+                List<Zone> bucket = buckets.get(i);
+                cells[i] = bucket == null ? null : bucket.toArray(new Zone[0]);
+            }
+        }
+
+        Zone zoneAt(int x, int y) {
+            if (cols == 0 || x < minX || y < minY) return null;
+            long c = (x - minX) / cellSize;
+            long r = (y - minY) / cellSize;
+            if (c >= cols || r >= rows) return null;
+            Zone[] cell = cells[(int) r * cols + (int) c];
+            if (cell == null) return null;
+            for (Zone z : cell) {
+                if (z.contains(x, y)) return z;
+            }
+            return null;
+        }
+    }
+}
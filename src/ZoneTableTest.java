@@ -0,0 +1,81 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ZoneTableTest {
+
+    @Test
+    public void testGetById() {
+        ZoneTable table = new ZoneTable();
+        Zone first = new Zone(1, 0, 0, 100, 100);
+        Zone second = new Zone(40, 100, 0, 200, 100);
+        table.add(first);
+        table.add(second);
+
+        assertSame(first, table.get(1));
+        assertSame(second, table.get(40));
+        assertNull(table.get(2));
+        assertNull(table.get(-1));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testSparseAndLargeIds() {
+        ZoneTable table = new ZoneTable();
+        Zone large = new Zone(Integer.MAX_VALUE, 0, 0, 10, 10);
+        Zone negative = new Zone(-5, 10, 0, 20, 10);
+        table.add(large);
+        table.add(negative);
+
+        assertSame(large, table.get(Integer.MAX_VALUE));
+        assertSame(negative, table.get(-5));
+        assertSame(large, table.zoneAt(5, 5));
+        assertSame(negative, table.zoneAt(15, 5));
+    }
+
+    @Test
+    public void testZoneAtSharedEdgeAndGap() {
+        ZoneTable table = new ZoneTable();
+        table.add(new Zone(1, 0, 0, 100, 100));
+        table.add(new Zone(2, 100, 0, 200, 100));
+        table.add(new Zone(3, 300, 0, 400, 100));
+
+        // Start edges are inclusive and end edges exclusive, so a shared edge belongs to the later zone
+        assertEquals(2, table.zoneAt(100, 50).getId());
+        assertEquals(1, table.zoneAt(99, 50).getId());
+        assertNull(table.zoneAt(250, 50));
+        assertNull(table.zoneAt(400, 50));
+        assertNull(table.zoneAt(50, 100));
+        assertNull(table.zoneAt(-1, 50));
+    }
+
+    @Test
+    public void testReplacingZoneId() {
+        ZoneTable table = new ZoneTable();
+        table.add(new Zone(1, 0, 0, 100, 100));
+        assertEquals(1, table.zoneAt(50, 50).getId());
+
+        Zone moved = new Zone(1, 500, 500, 600, 600);
+        table.add(moved);
+
+        assertSame(moved, table.get(1));
+        assertEquals(1, table.size());
+        assertNull(table.zoneAt(50, 50));
+        assertSame(moved, table.zoneAt(550, 550));
+    }
+
+    @Test
+    public void testSmallZonesFarApart() {
+        ZoneTable table = new ZoneTable();
+        table.add(new Zone(1, 0, 0, 10, 10));
+        table.add(new Zone(2, 1_000_000, 1_000_000, 1_000_010, 1_000_010));
+        table.add(new Zone(3, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 10, Integer.MIN_VALUE + 10));
+        table.add(new Zone(4, Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 10, Integer.MAX_VALUE, Integer.MAX_VALUE));
+
+        assertEquals(1, table.zoneAt(5, 5).getId());
+        assertEquals(2, table.zoneAt(1_000_005, 1_000_005).getId());
+        assertEquals(3, table.zoneAt(Integer.MIN_VALUE + 5, Integer.MIN_VALUE + 5).getId());
+        assertEquals(4, table.zoneAt(Integer.MAX_VALUE - 5, Integer.MAX_VALUE - 5).getId());
+        assertNull(table.zoneAt(500_000, 500_000));
+    }
+}